@@ -0,0 +1,78 @@
+package MyNoteBenchmark;
+
+import org.MyNote.Note;
+import org.MyNote.NoteRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Многопоточные бенчмарки потокобезопасных хранилищ: смешанная нагрузка чтения и записи
+ * и пропускная способность отдельных операций. Число потоков задается параметром -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentRepositoryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"Concurrent", "Snapshot", "Sharded"})
+    private String implementation;
+
+    private NoteRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = Repositories.create(implementation);
+        Repositories.fill(repository, size);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Note getNoteById() {
+        return repository.getNoteById(randomId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean updateNote() {
+        return repository.updateNoteIfPresent(Repositories.note(randomId()));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Note mixedRead() {
+        return repository.getNoteById(randomId());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean mixedWrite() {
+        return repository.updateNoteIfPresent(Repositories.note(randomId()));
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+}
@@ -0,0 +1,80 @@
+package MyNoteBenchmark;
+
+import org.MyNote.ImmutableNote;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.LatencyHistogram;
+import org.MyNote.MetricsNoteRepository;
+import org.MyNote.NoteMetrics;
+import org.MyNote.NoteRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость записи метрик. Запускать с профилировщиком памяти, чтобы убедиться, что запись
+ * не выделяет память (gc.alloc.rate.norm около 0 B/op для recordLatency и одинаковый
+ * для getNoteValue с метриками и без):
+ * java -jar target/benchmarks.jar MetricsBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    private static final int SIZE = 100_000;
+
+    private LatencyHistogram histogram;
+    private NoteRepository plain;
+    private NoteRepository measured;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        histogram = new LatencyHistogram();
+        InMemoryNoteRepository repository = new InMemoryNoteRepository();
+        Repositories.fill(repository, SIZE);
+        plain = repository;
+        measured = new MetricsNoteRepository(repository, new NoteMetrics());
+    }
+
+    @Benchmark
+    public void recordLatency() {
+        histogram.record(ThreadLocalRandom.current().nextInt(1_000_000));
+    }
+
+    /**
+     * Запись из нескольких потоков: счетчики корзин общие для всех потоков.
+     */
+    @Benchmark
+    @Threads(4)
+    public void recordLatencyContended() {
+        histogram.record(ThreadLocalRandom.current().nextInt(1_000_000));
+    }
+
+    @Benchmark
+    public ImmutableNote getNoteValue() {
+        return plain.getNoteValue(randomId());
+    }
+
+    @Benchmark
+    public ImmutableNote getNoteValueWithMetrics() {
+        return measured.getNoteValue(randomId());
+    }
+
+    private static int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(SIZE);
+    }
+}
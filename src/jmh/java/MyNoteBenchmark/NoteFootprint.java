@@ -0,0 +1,49 @@
+package MyNoteBenchmark;
+
+import org.MyNote.Note;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.LocalDateTime;
+
+/**
+ * Замер размера заметки в куче с помощью JOL: обходится граф объектов заметки вместе
+ * с текстом и временной меткой. Для сравнения замеряется прежнее представление -
+ * две строки и LocalDateTime.
+ */
+public final class NoteFootprint {
+    private NoteFootprint() {
+    }
+
+    public static void main(String[] args) {
+        String[][] samples = {
+                {"Заметка 1", "Dei voluntas"},
+                {"Shopping list", "Milk, bread, eggs, coffee"},
+                {"Заметка о терпении", "Patientia et perseverantia. Терпение и устремленность."},
+        };
+        System.out.printf("%-22s %10s %10s %8s%n", "title", "before, B", "after, B", "ratio");
+        for (String[] sample : samples) {
+            Note note = new Note(1, sample[0], sample[1]);
+            StringNote before = new StringNote(1, sample[0], sample[1], note.getTimestamp());
+            long beforeSize = GraphLayout.parseInstance(before).totalSize();
+            long afterSize = GraphLayout.parseInstance(note).totalSize();
+            System.out.printf("%-22s %10d %10d %8.2f%n", sample[0], beforeSize, afterSize, (double) afterSize / beforeSize);
+        }
+        System.out.println();
+        System.out.println(GraphLayout.parseInstance(new Note(1, samples[0][0], samples[0][1])).toFootprint());
+    }
+
+    /** Прежнее представление заметки. */
+    private static final class StringNote {
+        final int id;
+        final String title;
+        final String content;
+        final LocalDateTime timestamp;
+
+        StringNote(int id, String title, String content, LocalDateTime timestamp) {
+            this.id = id;
+            this.title = title;
+            this.content = content;
+            this.timestamp = timestamp;
+        }
+    }
+}
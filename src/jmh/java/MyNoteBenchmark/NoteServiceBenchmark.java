@@ -0,0 +1,79 @@
+package MyNoteBenchmark;
+
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки NoteServiceImpl поверх InMemoryNoteRepository: валидация плюс обращение к хранилищу.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteServiceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private NoteServiceImpl service;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryNoteRepository repository = new InMemoryNoteRepository();
+        Repositories.fill(repository, size);
+        service = new NoteServiceImpl(repository);
+        nextId = size + 1;
+    }
+
+    @Benchmark
+    public Note getNoteById() {
+        return service.getNoteById(randomId());
+    }
+
+    @Benchmark
+    public Note updateNote() {
+        Note note = Repositories.note(randomId());
+        service.updateNote(note);
+        return note;
+    }
+
+    /**
+     * Добавление и удаление новой заметки: размер хранилища остается постоянным.
+     */
+    @Benchmark
+    public int addAndDeleteNote() {
+        int id = nextId++;
+        service.addNote(Repositories.note(id));
+        service.deleteNote(id);
+        return id;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Note> getAllNotes() {
+        return service.getAllNotes();
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+}
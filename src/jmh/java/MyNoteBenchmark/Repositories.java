@@ -0,0 +1,56 @@
+package MyNoteBenchmark;
+
+import org.MyNote.ConcurrentNoteRepository;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteRepository;
+import org.MyNote.OffHeapNoteRepository;
+import org.MyNote.ShardedNoteRepository;
+import org.MyNote.SnapshotNoteRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Создание и заполнение хранилищ для бенчмарков.
+ */
+final class Repositories {
+    private Repositories() {
+    }
+
+    static NoteRepository create(String implementation) {
+        switch (implementation) {
+            case "InMemory":
+                return new InMemoryNoteRepository();
+            case "Concurrent":
+                return new ConcurrentNoteRepository();
+            case "Snapshot":
+                return new SnapshotNoteRepository();
+            case "OffHeap":
+                return new OffHeapNoteRepository();
+            case "Sharded":
+                return new ShardedNoteRepository();
+            default:
+                throw new IllegalArgumentException("Unknown repository: " + implementation);
+        }
+    }
+
+    /**
+     * Заполняет хранилище заметками с id от 1 до size.
+     */
+    static void fill(NoteRepository repository, int size) {
+        List<Note> batch = new ArrayList<>(10_000);
+        for (int id = 1; id <= size; id++) {
+            batch.add(note(id));
+            if (batch.size() == 10_000) {
+                repository.addNotes(batch);
+                batch.clear();
+            }
+        }
+        repository.addNotes(batch);
+    }
+
+    static Note note(int id) {
+        return new Note(id, "Заметка " + id, "Patientia et perseverantia " + id);
+    }
+}
@@ -0,0 +1,93 @@
+package MyNoteBenchmark;
+
+import org.MyNote.ImmutableNote;
+import org.MyNote.Note;
+import org.MyNote.NoteQuery;
+import org.MyNote.NoteRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Однопоточные бенчмарки операций NoteRepository на хранилищах разного размера.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    private static final NoteQuery QUERY = NoteQuery.builder().contentContains("perseverantia 7").build();
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"InMemory", "Concurrent", "Snapshot", "OffHeap", "Sharded"})
+    private String implementation;
+
+    private NoteRepository repository;
+    private Note[] updates;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = Repositories.create(implementation);
+        Repositories.fill(repository, size);
+        updates = new Note[1024];
+        for (int i = 0; i < updates.length; i++) {
+            updates[i] = Repositories.note(1 + ThreadLocalRandom.current().nextInt(size));
+        }
+        nextId = size + 1;
+    }
+
+    @Benchmark
+    public Note getNoteById() {
+        return repository.getNoteById(1 + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public boolean updateNote() {
+        return repository.updateNoteIfPresent(updates[ThreadLocalRandom.current().nextInt(updates.length)]);
+    }
+
+    /**
+     * Добавление и удаление новой заметки: размер хранилища остается постоянным.
+     */
+    @Benchmark
+    public boolean addAndDeleteNote() {
+        int id = nextId++;
+        repository.addNote(Repositories.note(id));
+        return repository.deleteNoteIfPresent(id);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Note> getAllNotes() {
+        return repository.getAllNotes();
+    }
+
+    /**
+     * Отбор с условием по байтам текста и выбором первых 10 заметок по убыванию id.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<ImmutableNote> findNoteValues() {
+        return repository.findNoteValues(QUERY::matches, NoteQuery.Order.ID_DESCENDING.comparator(), 10);
+    }
+}
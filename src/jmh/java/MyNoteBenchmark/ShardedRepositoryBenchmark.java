@@ -0,0 +1,67 @@
+package MyNoteBenchmark;
+
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.ShardedNoteRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Масштабирование ShardedNoteRepository по числу шардов: задержка параллельного обхода
+ * и пропускная способность записи из всех доступных потоков.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedRepositoryBenchmark {
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"1", "4", "16", "32"})
+    private int shards;
+
+    private ShardedNoteRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new ShardedNoteRepository(shards, index -> new InMemoryNoteRepository(), ForkJoinPool.commonPool());
+        Repositories.fill(repository, size);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long countMatching() {
+        return repository.count(note -> note.getId() % 7 == 0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int getAllNotes() {
+        return repository.getAllNotes().size();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean updateNote() {
+        return repository.updateNoteIfPresent(Repositories.note(ThreadLocalRandom.current().nextInt(1, size + 1)));
+    }
+}
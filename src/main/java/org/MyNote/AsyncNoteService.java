@@ -0,0 +1,215 @@
+package org.MyNote;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Класс AsyncNoteService - асинхронный фасад над NoteServiceImpl.
+ * Каждая операция возвращает CompletableFuture и выполняется в отдельном виртуальном
+ * потоке, поэтому медленное хранилище не занимает поток вызывающего, а тысячи операций
+ * могут ожидать одновременно без большого пула потоков. Если виртуальные потоки
+ * недоступны (Java 19 без --enable-preview), используется пул из maxConcurrency потоков.
+ *
+ * Одновременно к сервису обращается не больше maxConcurrency операций, остальные ждут
+ * своей очереди в припаркованных виртуальных потоках. Ошибки проверки приходят как
+ * исключительное завершение future с исходным исключением.
+ *
+ * Отмена future снимает операцию, которая еще ждет своей очереди; она так и не будет
+ * выполнена. Если задан timeout, не завершившаяся за это время операция завершается
+ * TimeoutException. Уже запущенная операция при этом не прерывается и доходит до конца:
+ * прерывание посреди записи в FileChannel закрывает канал, и LogNoteRepository после этого
+ * отказывал бы во всех следующих записях. После close() новые операции сразу завершаются
+ * RejectedExecutionException.
+ */
+public class AsyncNoteService implements AutoCloseable {
+    private final NoteServiceImpl noteService;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long timeoutNanos;
+
+    /**
+     * Создает фасад с ограничением в 256 одновременных операций и без тайм-аута.
+     */
+    public AsyncNoteService(NoteServiceImpl noteService) {
+        this(noteService, 256, null);
+    }
+
+    /**
+     * @param maxConcurrency наибольшее число операций, одновременно обращающихся к сервису
+     * @param timeout        предельное время операции с учетом ожидания очереди или null
+     */
+    public AsyncNoteService(NoteServiceImpl noteService, int maxConcurrency, Duration timeout) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        this.noteService = noteService;
+        this.executor = newExecutor(maxConcurrency);
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeoutNanos = timeout == null ? 0 : timeout.toNanos();
+    }
+
+    public CompletableFuture<Void> addNote(Note note) {
+        return run(() -> noteService.addNote(note));
+    }
+
+    /**
+     * Добавляет заметку с id, который назначает сервис; future завершается назначенным id.
+     */
+    public CompletableFuture<Integer> addNote(String title, String content) {
+        return submit(() -> noteService.addNote(title, content));
+    }
+
+    public CompletableFuture<Void> addNoteIfAbsent(Note note) {
+        return run(() -> noteService.addNoteIfAbsent(note));
+    }
+
+    public CompletableFuture<BatchResult> addNotes(Collection<Note> notes) {
+        return submit(() -> noteService.addNotes(notes));
+    }
+
+    public CompletableFuture<Void> updateNote(Note note) {
+        return run(() -> noteService.updateNote(note));
+    }
+
+    public CompletableFuture<UpdateResult> updateNoteIfVersion(Note note, long expectedVersion) {
+        return submit(() -> noteService.updateNoteIfVersion(note, expectedVersion));
+    }
+
+    public CompletableFuture<BatchResult> updateNotes(Collection<Note> notes) {
+        return submit(() -> noteService.updateNotes(notes));
+    }
+
+    public CompletableFuture<Void> deleteNote(int id) {
+        return run(() -> noteService.deleteNote(id));
+    }
+
+    public CompletableFuture<BatchResult> deleteNotes(int[] ids) {
+        return submit(() -> noteService.deleteNotes(ids));
+    }
+
+    public CompletableFuture<Note> getNoteById(int id) {
+        return submit(() -> noteService.getNoteById(id));
+    }
+
+    public CompletableFuture<ImmutableNote> getNoteValue(int id) {
+        return submit(() -> noteService.getNoteValue(id));
+    }
+
+    public CompletableFuture<List<Note>> getNotesByIds(int[] ids) {
+        return submit(() -> noteService.getNotesByIds(ids));
+    }
+
+    public CompletableFuture<List<Note>> getAllNotes() {
+        return submit(noteService::getAllNotes);
+    }
+
+    public CompletableFuture<List<Note>> getNotesPage(int afterId, int limit) {
+        return submit(() -> noteService.getNotesPage(afterId, limit));
+    }
+
+    public CompletableFuture<List<Note>> search(String query, int limit) {
+        return submit(() -> noteService.search(query, limit));
+    }
+
+    public CompletableFuture<List<Note>> getNotesBetween(LocalDateTime from, LocalDateTime to) {
+        return submit(() -> noteService.getNotesBetween(from, to));
+    }
+
+    public CompletableFuture<List<Note>> getNotesChangedSince(LocalDateTime since) {
+        return submit(() -> noteService.getNotesChangedSince(since));
+    }
+
+    public CompletableFuture<List<Note>> getNewestNotes(int limit) {
+        return submit(() -> noteService.getNewestNotes(limit));
+    }
+
+    public CompletableFuture<List<ImmutableNote>> query(NoteQuery query) {
+        return submit(() -> noteService.query(query));
+    }
+
+    public <T> CompletableFuture<List<T>> query(NoteQuery query, Function<? super ImmutableNote, ? extends T> projection) {
+        return submit(() -> noteService.query(query, projection));
+    }
+
+    /**
+     * Прекращает прием операций; уже принятые операции завершаются.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private CompletableFuture<Void> run(Runnable operation) {
+        return submit(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    future.completeExceptionally(new CancellationException());
+                    return;
+                }
+                try {
+                    // Операция, отмененная или просроченная в очереди, не выполняется
+                    if (!future.isDone()) {
+                        future.complete(operation.call());
+                    }
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (timeoutNanos > 0) {
+            future.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        // Снимаем с очереди пула отмененную или просроченную операцию; запущенную не прерываем
+        future.whenComplete((result, failure) -> {
+            if (failure != null) {
+                task.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    private static ExecutorService newExecutor(int maxConcurrency) {
+        try {
+            // Виртуальные потоки в Java 19 - preview API, поэтому ищем его во время выполнения
+            Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return (ExecutorService) executor;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrency, task -> {
+                Thread thread = new Thread(task, "async-note-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.MyNote;
+
+/**
+ * Класс BatchResult описывает результат пакетной операции NoteServiceImpl.
+ * Для каждого элемента пакета хранится сообщение об ошибке или null, если элемент
+ * обработан успешно.
+ */
+public final class BatchResult {
+    private final String[] errors;
+    private final int failureCount;
+
+    BatchResult(String[] errors) {
+        this.errors = errors;
+        int failures = 0;
+        for (String error : errors) {
+            if (error != null) {
+                failures++;
+            }
+        }
+        this.failureCount = failures;
+    }
+
+    /** Число элементов в пакете. */
+    public int size() {
+        return errors.length;
+    }
+
+    public boolean isSuccess(int index) {
+        return errors[index] == null;
+    }
+
+    /** Сообщение об ошибке для элемента пакета или null, если элемент обработан. */
+    public String getError(int index) {
+        return errors[index];
+    }
+
+    public int getSuccessCount() {
+        return errors.length - failureCount;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public boolean isAllSuccessful() {
+        return failureCount == 0;
+    }
+}
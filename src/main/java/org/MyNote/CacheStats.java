@@ -0,0 +1,60 @@
+package org.MyNote;
+
+/**
+ * Класс CacheStats - снимок счетчиков CachingNoteRepository.
+ * Попадания в отрицательный кэш (id, которого нет в хранилище) учитываются отдельно
+ * и входят в общее число попаданий.
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long negativeHitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long flushCount;
+
+    CacheStats(long hitCount, long negativeHitCount, long missCount, long evictionCount, long flushCount) {
+        this.hitCount = hitCount;
+        this.negativeHitCount = negativeHitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.flushCount = flushCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /** Число пакетов отложенной записи, переданных в хранилище. */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /** Доля попаданий среди всех чтений или 1, если чтений не было. */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", negativeHitCount=" + negativeHitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", flushCount=" + flushCount +
+                '}';
+    }
+}
@@ -0,0 +1,963 @@
+package org.MyNote;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Класс CachingNoteRepository - ограниченный кэш перед медленным хранилищем заметок.
+ * Кэш хранит ImmutableNote по id, а также отрицательные записи для id, которых в хранилище
+ * нет, поэтому повторные проверки существования не доходят до хранилища.
+ *
+ * Вытеснение - W-TinyLFU: новые записи попадают в небольшое LRU-окно (1% объема), а
+ * вытесненные из окна проходят в основную область, только если по FrequencySketch к ним
+ * обращались чаще, чем к кандидату на вытеснение из основной области. Основная область -
+ * сегментированный LRU: повторное обращение переводит запись из испытательного сегмента
+ * в защищенный (80% основной области). Объем ограничивается числом записей или суммарным
+ * весом, который вычисляет weigher (например, WEIGH_BY_BYTES).
+ *
+ * Попадания в кэш не берут lock: узел читается из ConcurrentHashMap, а обращение
+ * записывается в буфер, который политика вытеснения разбирает пакетом под lock, когда
+ * он свободен. Буфер при переполнении затирает старые записи, поэтому порядок обращений
+ * для политики приблизительный.
+ *
+ * В режиме WRITE_THROUGH запись сначала выполняется в хранилище, затем в кэше.
+ * В режиме WRITE_BEHIND запись попадает в кэш и в очередь, которая сбрасывается в хранилище
+ * пакетами addNotes/deleteNotes раз в flushInterval, при накоплении FLUSH_BATCH изменений,
+ * а также вызовами flush и close. Очередь не растет дальше MAX_PENDING изменений: запись
+ * в полную очередь сама сбрасывает ее в хранилище и ждет окончания сброса. Несколько
+ * изменений одного id в очереди объединяются в последнее. Списочные операции (getAllNotes, streamNotes, exportNotes) сначала сбрасывают
+ * очередь и читают хранилище напрямую.
+ *
+ * Версии заметок присваивает хранилище. В режиме WRITE_BEHIND заметка из очереди имеет
+ * версию 0 и получает версию при сбросе; updateNoteIfVersion сначала сбрасывает очередь
+ * и выполняется в хранилище.
+ *
+ * Кэш считает, что все изменения хранилища идут через этот декоратор; после изменений
+ * в обход него нужно вызвать invalidateAll.
+ */
+public class CachingNoteRepository implements NoteRepository, AutoCloseable {
+    /** Размер очереди отложенной записи, при котором сброс запускается досрочно. */
+    public static final int FLUSH_BATCH = 1024;
+
+    /** Наибольший размер очереди отложенной записи; запись в полную очередь сбрасывает ее сама. */
+    public static final int MAX_PENDING = 16 * FLUSH_BATCH;
+
+    /** Вес записи - примерный размер заметки в памяти в байтах. */
+    public static final ToIntFunction<ImmutableNote> WEIGH_BY_BYTES =
+            note -> 64 + length(note.titleBytes()) + length(note.contentBytes());
+
+    public enum WriteMode {
+        WRITE_THROUGH,
+        WRITE_BEHIND
+    }
+
+    private static final int STRIPES = 64;
+    // Отметка удаления в очереди отложенной записи; сравнивается по ссылке
+    private static final ImmutableNote DELETED = new ImmutableNote(0, (byte[]) null, null, Note.NO_TIMESTAMP);
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final int READ_BUFFER_SIZE = 128;
+
+    private final NoteRepository backend;
+    private final ToIntFunction<ImmutableNote> weigher;
+    private final WriteMode writeMode;
+
+    // Очереди, веса и FrequencySketch защищены lock; nodes, pending и flushing изменяются
+    // под lock, а читаются без него
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, Node> nodes = new ConcurrentHashMap<>();
+    private final Node[] queues = {Node.sentinel(), Node.sentinel(), Node.sentinel()};
+    private final long[] weights = new long[3];
+    private final long windowMaximum;
+    private final long mainMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+    // Счетчики записей по полосам id: загрузка из хранилища не кэшируется, если за время
+    // загрузки в ее полосе была запись, иначе она могла бы вернуть в кэш устаревшее значение
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+    private volatile Map<Integer, ImmutableNote> pending = new ConcurrentHashMap<>();
+    private volatile Map<Integer, ImmutableNote> flushing = Map.of();
+    private boolean flushScheduled;
+    private boolean closed;
+
+    // Обращения к узлам кэша, еще не учтенные политикой вытеснения
+    private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readBufferWrites = new AtomicLong();
+    private long readBufferDrained;
+
+    // Записи одного id выполняются по очереди, чтобы порядок в хранилище и в кэше совпадал
+    private final ReentrantLock[] writeLocks = new ReentrantLock[STRIPES];
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final long flushIntervalNanos;
+    private boolean flusherStarted;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    /**
+     * Создает кэш на maximumSize записей со сквозной записью.
+     */
+    public CachingNoteRepository(NoteRepository backend, long maximumSize) {
+        this(backend, maximumSize, null, WriteMode.WRITE_THROUGH, null);
+    }
+
+    /**
+     * @param maximumWeight наибольший суммарный вес записей
+     * @param weigher       вес заметки или null, чтобы каждая запись весила 1
+     * @param writeMode     режим записи
+     * @param flushInterval период сброса очереди для WRITE_BEHIND
+     */
+    public CachingNoteRepository(NoteRepository backend, long maximumWeight, ToIntFunction<ImmutableNote> weigher,
+                                 WriteMode writeMode, Duration flushInterval) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (writeMode == WriteMode.WRITE_BEHIND
+                && (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero())) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.backend = backend;
+        this.weigher = weigher;
+        this.writeMode = writeMode;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.mainMaximum = Math.max(1, maximumWeight - windowMaximum);
+        this.protectedMaximum = mainMaximum * 8 / 10;
+        // Для кэша по весу число записей заранее неизвестно; оцениваем его по весу 1 КБ на запись
+        this.sketch = new FrequencySketch(weigher == null ? maximumWeight : Math.max(1, maximumWeight >> 10));
+        for (int i = 0; i < STRIPES; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+        if (writeMode == WriteMode.WRITE_BEHIND) {
+            // Периодический сброс запускает первая отложенная запись, а не конструктор
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "note-cache-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushIntervalNanos = flushInterval.toNanos();
+        } else {
+            flusher = null;
+            flushIntervalNanos = 0;
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), flushes.sum());
+    }
+
+    /** Число записей в кэше, включая отрицательные. */
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public void addNote(Note note) {
+        int id = note.getId();
+        ReentrantLock writeLock = writeLock(id);
+        writeLock.lock();
+        try {
+            if (writeMode == WriteMode.WRITE_BEHIND) {
+                write(id, queuedValue(note), true);
+            } else {
+                backend.addNote(note);
+                write(id, ImmutableNote.of(note), false);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateNote(Note note) {
+        updateNoteIfPresent(note);
+    }
+
+    @Override
+    public void deleteNote(int id) {
+        deleteNoteIfPresent(id);
+    }
+
+    @Override
+    public boolean addNoteIfAbsent(Note note) {
+        int id = note.getId();
+        ReentrantLock writeLock = writeLock(id);
+        writeLock.lock();
+        try {
+            if (writeMode == WriteMode.WRITE_BEHIND) {
+                if (lookup(id) != null) {
+                    return false;
+                }
+                write(id, queuedValue(note), true);
+                return true;
+            }
+            if (isKnownPresent(id)) {
+                return false;
+            }
+            boolean added = backend.addNoteIfAbsent(note);
+            if (added) {
+                write(id, ImmutableNote.of(note), false);
+            }
+            return added;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateNoteIfPresent(Note note) {
+        int id = note.getId();
+        ReentrantLock writeLock = writeLock(id);
+        writeLock.lock();
+        try {
+            if (writeMode == WriteMode.WRITE_BEHIND) {
+                if (lookup(id) == null) {
+                    return false;
+                }
+                write(id, queuedValue(note), true);
+                return true;
+            }
+            if (isKnownMissing(id)) {
+                return false;
+            }
+            boolean updated = backend.updateNoteIfPresent(note);
+            write(id, updated ? ImmutableNote.of(note) : null, false);
+            return updated;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        int id = note.getId();
+        ReentrantLock writeLock = writeLock(id);
+        writeLock.lock();
+        try {
+            // Под блокировкой id в очередь не попадут новые изменения этой заметки
+            flushPending();
+            if (isKnownMissing(id)) {
+                return UpdateResult.NOT_FOUND;
+            }
+            UpdateResult result = backend.updateNoteIfVersion(note, expectedVersion);
+            if (result == UpdateResult.UPDATED) {
+                write(id, ImmutableNote.of(note), false);
+            } else if (result == UpdateResult.NOT_FOUND) {
+                write(id, null, false);
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteNoteIfPresent(int id) {
+        ReentrantLock writeLock = writeLock(id);
+        writeLock.lock();
+        try {
+            if (writeMode == WriteMode.WRITE_BEHIND) {
+                if (lookup(id) == null) {
+                    return false;
+                }
+                write(id, DELETED, true);
+                return true;
+            }
+            if (isKnownMissing(id)) {
+                return false;
+            }
+            boolean deleted = backend.deleteNoteIfPresent(id);
+            write(id, null, false);
+            return deleted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Note getNoteById(int id) {
+        ImmutableNote value = lookup(id);
+        return value == null ? null : value.toNote();
+    }
+
+    @Override
+    public ImmutableNote getNoteValue(int id) {
+        return lookup(id);
+    }
+
+    /**
+     * Отсутствующие в кэше заметки загружаются из хранилища одним вызовом getNotesByIds.
+     */
+    @Override
+    public List<Note> getNotesByIds(int[] ids) {
+        ImmutableNote[] values = new ImmutableNote[ids.length];
+        int[] missing = new int[ids.length];
+        long[] missingVersions = new long[ids.length];
+        int missingCount = 0;
+        for (int i = 0; i < ids.length; i++) {
+            long version = versions.get(stripe(ids[i]));
+            Node node = cached(ids[i]);
+            if (node != null) {
+                values[i] = node.value;
+            } else {
+                missing[missingCount] = ids[i];
+                missingVersions[missingCount++] = version;
+            }
+        }
+        if (missingCount > 0) {
+            int[] missingIds = Arrays.copyOf(missing, missingCount);
+            List<Note> loaded = backend.getNotesByIds(missingIds);
+            Map<Integer, ImmutableNote> loadedValues = new HashMap<>(missingCount * 2);
+            lock.lock();
+            try {
+                drainReadBuffer();
+                for (int i = 0; i < missingCount; i++) {
+                    sketch.increment(missingIds[i]);
+                    Note note = loaded.get(i);
+                    ImmutableNote value = note == null ? null : ImmutableNote.of(note);
+                    loadedValues.put(missingIds[i], value);
+                    cacheLoaded(missingIds[i], value, missingVersions[i]);
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (int i = 0; i < ids.length; i++) {
+                if (values[i] == null && loadedValues.containsKey(ids[i])) {
+                    values[i] = loadedValues.get(ids[i]);
+                }
+            }
+        }
+        List<Note> notes = new ArrayList<>(ids.length);
+        for (ImmutableNote value : values) {
+            notes.add(value == null ? null : value.toNote());
+        }
+        return notes;
+    }
+
+    @Override
+    public List<Note> getAllNotes() {
+        flushPending();
+        return backend.getAllNotes();
+    }
+
+    @Override
+    public Stream<Note> streamNotes() {
+        flushPending();
+        return backend.streamNotes();
+    }
+
+    @Override
+    public Stream<ImmutableNote> streamNoteValues() {
+        flushPending();
+        return backend.streamNoteValues();
+    }
+
+    @Override
+    public List<Note> getNotesPage(int afterId, int limit) {
+        flushPending();
+        return backend.getNotesPage(afterId, limit);
+    }
+
+    @Override
+    public List<ImmutableNote> findNoteValues(Predicate<? super ImmutableNote> filter,
+                                              Comparator<? super ImmutableNote> order, int limit) {
+        flushPending();
+        return backend.findNoteValues(filter, order, limit);
+    }
+
+    @Override
+    public void addNotes(Collection<Note> notes) {
+        if (writeMode == WriteMode.WRITE_BEHIND) {
+            for (Note note : notes) {
+                addNote(note);
+            }
+            return;
+        }
+        lockAll();
+        try {
+            backend.addNotes(notes);
+            List<ImmutableNote> values = toValues(notes);
+            lock.lock();
+            try {
+                for (ImmutableNote value : values) {
+                    put(value.getId(), value);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public boolean[] updateNotes(Collection<Note> notes) {
+        if (writeMode == WriteMode.WRITE_BEHIND) {
+            return NoteRepository.super.updateNotes(notes);
+        }
+        lockAll();
+        try {
+            boolean[] updated = backend.updateNotes(notes);
+            List<ImmutableNote> values = toValues(notes);
+            lock.lock();
+            try {
+                for (int i = 0; i < updated.length; i++) {
+                    put(values.get(i).getId(), updated[i] ? values.get(i) : null);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return updated;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public boolean[] deleteNotes(int[] ids) {
+        if (writeMode == WriteMode.WRITE_BEHIND) {
+            return NoteRepository.super.deleteNotes(ids);
+        }
+        lockAll();
+        try {
+            boolean[] deleted = backend.deleteNotes(ids);
+            lock.lock();
+            try {
+                for (int id : ids) {
+                    put(id, null);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return deleted;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public long exportNotes(WritableByteChannel out) throws IOException {
+        flushPending();
+        return backend.exportNotes(out);
+    }
+
+    /**
+     * Загружает архив напрямую в хранилище и очищает кэш, чтобы большой импорт
+     * не вытеснял из кэша часто читаемые заметки.
+     */
+    @Override
+    public long importNotes(ReadableByteChannel in) throws IOException {
+        flushPending();
+        lockAll();
+        try {
+            return backend.importNotes(in);
+        } finally {
+            invalidateAll();
+            unlockAll();
+        }
+    }
+
+    /**
+     * Удаляет из кэша все записи, включая отрицательные. Очередь отложенной записи сохраняется.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            // Загрузки, начатые до очистки, не должны вернуть в кэш прежние значения
+            for (int i = 0; i < STRIPES; i++) {
+                versions.incrementAndGet(i);
+            }
+            nodes.clear();
+            for (int i = 0; i < queues.length; i++) {
+                queues[i].next = queues[i];
+                queues[i].prev = queues[i];
+                weights[i] = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Передает накопленные изменения в хранилище. Если хранилище отклонило пакет, изменения
+     * возвращаются в очередь и исключение пробрасывается вызывающему.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Integer, ImmutableNote> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                // Читатели без lock смотрят pending, затем flushing: пакет должен попасть
+                // в flushing раньше, чем исчезнет из pending
+                flushing = batch;
+                pending = new ConcurrentHashMap<>();
+                flushScheduled = false;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                List<Note> added = new ArrayList<>(batch.size());
+                List<ImmutableNote> addedValues = new ArrayList<>(batch.size());
+                int[] deleted = new int[batch.size()];
+                int deletedCount = 0;
+                for (Map.Entry<Integer, ImmutableNote> entry : batch.entrySet()) {
+                    if (entry.getValue() == DELETED) {
+                        deleted[deletedCount++] = entry.getKey();
+                    } else {
+                        added.add(entry.getValue().toNote());
+                        addedValues.add(entry.getValue());
+                    }
+                }
+                // Каждый id встречается в пакете один раз, поэтому порядок вызовов не важен
+                if (!added.isEmpty()) {
+                    backend.addNotes(added);
+                    cacheVersions(added, addedValues);
+                }
+                if (deletedCount > 0) {
+                    backend.deleteNotes(Arrays.copyOf(deleted, deletedCount));
+                }
+                flushes.increment();
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    // Более новые изменения из очереди важнее возвращаемых
+                    batch.putAll(pending);
+                    pending = batch;
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            } finally {
+                lock.lock();
+                try {
+                    flushing = Map.of();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Останавливает фоновый сброс и передает в хранилище оставшиеся изменения.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            flush();
+        }
+    }
+
+    /**
+     * Заменяет в кэше сброшенные заметки копиями с версиями, присвоенными хранилищем,
+     * если после постановки в очередь их не изменили.
+     */
+    private void cacheVersions(List<Note> added, List<ImmutableNote> queued) {
+        lock.lock();
+        try {
+            for (int i = 0; i < added.size(); i++) {
+                Node node = nodes.get(added.get(i).getId());
+                if (node != null && node.value == queued.get(i)) {
+                    ImmutableNote value = ImmutableNote.of(added.get(i));
+                    int weight = weigh(value);
+                    weights[node.queue] += weight - node.weight;
+                    node.value = value;
+                    node.weight = weight;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        if (writeMode == WriteMode.WRITE_BEHIND) {
+            flush();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Изменения остались в очереди; следующий сброс повторит попытку
+        }
+    }
+
+    /**
+     * Находит заметку в очереди, в кэше или в хранилище. Попадание в кэш не берет lock.
+     *
+     * @return заметка или null, если ее нет
+     */
+    private ImmutableNote lookup(int id) {
+        // Счетчик полосы читается до поиска в кэше: запись, которую поиск не увидел,
+        // изменит его, и загруженное значение не попадет в кэш
+        long version = versions.get(stripe(id));
+        Node node = cached(id);
+        if (node != null) {
+            return node.value;
+        }
+        ImmutableNote value = backend.getNoteValue(id);
+        lock.lock();
+        try {
+            drainReadBuffer();
+            sketch.increment(id);
+            cacheLoaded(id, value, version);
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Ищет id в очереди отложенной записи и в кэше без lock и учитывает обращение
+     * в статистике и в буфере обращений.
+     *
+     * @return узел с ответом или null при промахе; для отложенных изменений - временный узел
+     */
+    private Node cached(int id) {
+        ImmutableNote queued = pending.get(id);
+        if (queued == null) {
+            queued = flushing.get(id);
+        }
+        Node node = nodes.get(id);
+        if (queued != null) {
+            hits.increment();
+            if (node != null) {
+                recordAccess(node);
+            }
+            return new Node(id, queued == DELETED ? null : queued, 0);
+        }
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (node.value == null) {
+            negativeHits.increment();
+        }
+        recordAccess(node);
+        return node;
+    }
+
+    private boolean isKnownMissing(int id) {
+        Node node = nodes.get(id);
+        if (node == null || node.value != null) {
+            return false;
+        }
+        hits.increment();
+        negativeHits.increment();
+        recordAccess(node);
+        return true;
+    }
+
+    private boolean isKnownPresent(int id) {
+        Node node = nodes.get(id);
+        if (node == null || node.value == null) {
+            return false;
+        }
+        hits.increment();
+        recordAccess(node);
+        return true;
+    }
+
+    /**
+     * Записывает обращение в буфер; заполнив буфер, поток разбирает его, если lock свободен.
+     * Если нет, запись затрет более старую: потерянное обращение лишь немного искажает политику.
+     */
+    private void recordAccess(Node node) {
+        long index = readBufferWrites.getAndIncrement();
+        int slot = (int) index & (READ_BUFFER_SIZE - 1);
+        readBuffer.lazySet(slot, node);
+        if (slot == READ_BUFFER_SIZE - 1 && lock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Применяет накопленные обращения к политике вытеснения. Вызывается под lock. */
+    private void drainReadBuffer() {
+        long writes = readBufferWrites.get();
+        if (writes == readBufferDrained) {
+            return;
+        }
+        readBufferDrained = writes;
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Node node = readBuffer.getAndSet(i, null);
+            if (node != null) {
+                sketch.increment(node.id);
+                // Узел мог быть вытеснен или удален после записи в буфер
+                if (nodes.get(node.id) == node) {
+                    onAccess(node);
+                }
+            }
+        }
+    }
+
+    /** Кэширует загруженное значение, если за время загрузки в полосе id не было записей. */
+    private void cacheLoaded(int id, ImmutableNote value, long version) {
+        if (versions.get(stripe(id)) == version && !nodes.containsKey(id)) {
+            insert(id, value);
+        }
+    }
+
+    /**
+     * Записывает значение в кэш и при queued - в очередь отложенной записи.
+     *
+     * @param value заметка, null для отсутствующей или DELETED для удаления в очереди
+     */
+    private void write(int id, ImmutableNote value, boolean queued) {
+        if (queued) {
+            // Полную очередь писатель сбрасывает сам; если сброс уже идет в фоне,
+            // flush дождется его окончания
+            while (pending.size() >= MAX_PENDING) {
+                flush();
+            }
+        }
+        boolean flushNow = false;
+        lock.lock();
+        try {
+            if (queued) {
+                if (closed) {
+                    throw new IllegalStateException("Repository is closed");
+                }
+                startFlusher();
+                pending.put(id, value);
+                if (!flushScheduled && pending.size() >= FLUSH_BATCH) {
+                    flushScheduled = true;
+                    flushNow = true;
+                }
+            }
+            put(id, value == DELETED ? null : value);
+        } finally {
+            lock.unlock();
+        }
+        if (flushNow) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Репозиторий закрывается; close сбросит очередь сам
+            }
+        }
+    }
+
+    /** Запускает периодический сброс при первой отложенной записи. Вызывается под lock. */
+    private void startFlusher() {
+        if (!flusherStarted) {
+            flusherStarted = true;
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalNanos, flushIntervalNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Вызывается под lock. */
+    private void put(int id, ImmutableNote value) {
+        versions.incrementAndGet(stripe(id));
+        Node node = nodes.get(id);
+        if (node == null) {
+            insert(id, value);
+            return;
+        }
+        int weight = weigh(value);
+        weights[node.queue] += weight - node.weight;
+        node.value = value;
+        node.weight = weight;
+        onAccess(node);
+        evict();
+    }
+
+    private void insert(int id, ImmutableNote value) {
+        Node node = new Node(id, value, weigh(value));
+        nodes.put(id, node);
+        link(WINDOW, node);
+        evict();
+    }
+
+    private void onAccess(Node node) {
+        if (node.queue == PROBATION) {
+            unlink(node);
+            link(PROTECTED, node);
+            // Переполненный защищенный сегмент возвращает давно не читанные записи на испытание
+            while (weights[PROTECTED] > protectedMaximum) {
+                Node demoted = queues[PROTECTED].prev;
+                unlink(demoted);
+                link(PROBATION, demoted);
+            }
+        } else {
+            unlink(node);
+            link(node.queue, node);
+        }
+    }
+
+    private void evict() {
+        while (weights[WINDOW] > windowMaximum) {
+            Node candidate = queues[WINDOW].prev;
+            unlink(candidate);
+            admit(candidate);
+        }
+        while (weights[PROBATION] + weights[PROTECTED] > mainMaximum) {
+            remove(victim());
+        }
+    }
+
+    /**
+     * Фильтр TinyLFU: кандидат из окна вытесняет записи основной области, только пока он
+     * популярнее каждой из них; иначе вытесняется сам кандидат.
+     */
+    private void admit(Node candidate) {
+        if (candidate.weight > mainMaximum) {
+            nodes.remove(candidate.id);
+            evictions.increment();
+            return;
+        }
+        int frequency = sketch.frequency(candidate.id);
+        while (weights[PROBATION] + weights[PROTECTED] + candidate.weight > mainMaximum) {
+            Node victim = victim();
+            if (frequency <= sketch.frequency(victim.id)) {
+                nodes.remove(candidate.id);
+                evictions.increment();
+                return;
+            }
+            remove(victim);
+        }
+        link(PROBATION, candidate);
+    }
+
+    private Node victim() {
+        Node probation = queues[PROBATION];
+        return probation.prev != probation ? probation.prev : queues[PROTECTED].prev;
+    }
+
+    private void remove(Node node) {
+        unlink(node);
+        nodes.remove(node.id);
+        evictions.increment();
+    }
+
+    private void link(int queue, Node node) {
+        Node head = queues[queue];
+        node.queue = queue;
+        node.prev = head;
+        node.next = head.next;
+        head.next.prev = node;
+        head.next = node;
+        weights[queue] += node.weight;
+    }
+
+    private void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        weights[node.queue] -= node.weight;
+    }
+
+    private int weigh(ImmutableNote value) {
+        return value == null || weigher == null ? 1 : Math.max(1, weigher.applyAsInt(value));
+    }
+
+    private ReentrantLock writeLock(int id) {
+        return writeLocks[stripe(id)];
+    }
+
+    private void lockAll() {
+        for (ReentrantLock writeLock : writeLocks) {
+            writeLock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            writeLocks[i].unlock();
+        }
+    }
+
+    private static int stripe(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /** Значение для очереди отложенной записи: версию присвоит хранилище при сбросе. */
+    private static ImmutableNote queuedValue(Note note) {
+        return ImmutableNote.of(note).withVersion(0);
+    }
+
+    private static List<ImmutableNote> toValues(Collection<Note> notes) {
+        List<ImmutableNote> values = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            values.add(ImmutableNote.of(note));
+        }
+        return values;
+    }
+
+    private static int length(byte[] text) {
+        return text == null ? 0 : text.length;
+    }
+
+    /** Узел очереди кэша; value == null означает отрицательную запись. */
+    private static final class Node {
+        final int id;
+        // Читается без lock, изменяется под lock
+        volatile ImmutableNote value;
+        int weight;
+        int queue;
+        Node prev;
+        Node next;
+
+        Node(int id, ImmutableNote value, int weight) {
+            this.id = id;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        static Node sentinel() {
+            Node node = new Node(0, null, 0);
+            node.prev = node;
+            node.next = node;
+            return node;
+        }
+    }
+}
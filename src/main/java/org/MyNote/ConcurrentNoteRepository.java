@@ -0,0 +1,176 @@
+package org.MyNote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**Класс ConcurrentNoteRepository - потокобезопасное хранилище заметок в памяти.
+ * Чтение выполняется без блокировок через ConcurrentHashMap. Каждое изменение заметки -
+ * одна атомарная операция карты (compute, computeIfPresent, remove), которая блокирует
+ * только корзину таблицы с этим id, поэтому записи разных заметок почти не конкурируют
+ * между собой, а отдельных блокировок у хранилища нет. getAllNotes возвращает слабо
+ * согласованный снимок и не блокирует писателей; порядок заметок в нем не гарантируется.
+ *
+ * Версия заметки вычисляется внутри той же операции карты. updateNoteIfVersion работает
+ * без блокировок: читает текущую заметку, сравнивает версию и заменяет заметку через
+ * replace(id, current, next), повторяя попытку, если другой писатель успел раньше.
+ * replace атомарен относительно остальных операций карты, поэтому условное обновление
+ * не теряет и не перекрывает другие записи. Заметки лежат в карте в обертках Entry, которые
+ * сравниваются по ссылке: ImmutableNote.equals не учитывает версию, и replace по нему
+ * принял бы за текущую заметку с тем же текстом, но другой версией.
+ * Заметки сохраняются как ImmutableNote, а читатели получают копии: иначе два читателя
+ * делили бы один изменяемый экземпляр, и версия, прочитанная одним, менялась бы под
+ * записью другого.*/
+public class ConcurrentNoteRepository implements NoteRepository {
+    private final ConcurrentHashMap<Integer, Entry> notes;
+
+    public ConcurrentNoteRepository() {
+        this(16);
+    }
+
+    /**
+     * @param initialCapacity ожидаемое число заметок; таблица сразу создается под него
+     *                        и не перестраивается, пока заметок не станет больше
+     */
+    public ConcurrentNoteRepository(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity cannot be negative");
+        }
+        notes = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    @Override
+    public void addNote(Note note) {
+        ImmutableNote value = ImmutableNote.of(note);
+        Entry stored = notes.compute(note.getId(), (id, current) -> withNextVersion(value, current));
+        note.setVersion(stored.note.getVersion());
+    }
+
+    @Override
+    public void updateNote(Note note) {
+        updateNoteIfPresent(note);
+    }
+
+    @Override
+    public void deleteNote(int id) {
+        deleteNoteIfPresent(id);
+    }
+
+    @Override
+    public boolean addNoteIfAbsent(Note note) {
+        Entry entry = new Entry(ImmutableNote.of(note).withVersion(1));
+        if (notes.putIfAbsent(note.getId(), entry) != null) {
+            return false;
+        }
+        note.setVersion(1);
+        return true;
+    }
+
+    @Override
+    public boolean updateNoteIfPresent(Note note) {
+        ImmutableNote value = ImmutableNote.of(note);
+        Entry stored = notes.computeIfPresent(note.getId(), (id, current) -> withNextVersion(value, current));
+        if (stored == null) {
+            return false;
+        }
+        note.setVersion(stored.note.getVersion());
+        return true;
+    }
+
+    @Override
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        Entry next = new Entry(ImmutableNote.of(note).withVersion(expectedVersion + 1));
+        while (true) {
+            Entry current = notes.get(note.getId());
+            if (current == null) {
+                return UpdateResult.NOT_FOUND;
+            }
+            if (current.note.getVersion() != expectedVersion) {
+                return UpdateResult.VERSION_CONFLICT;
+            }
+            // Другой писатель успел заменить заметку: читаем ее заново и снова сравниваем версию
+            if (notes.replace(note.getId(), current, next)) {
+                note.setVersion(next.note.getVersion());
+                return UpdateResult.UPDATED;
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteNoteIfPresent(int id) {
+        return notes.remove(id) != null;
+    }
+
+    @Override
+    public void addNotes(Collection<Note> batch) {
+        for (Note note : batch) {
+            addNote(note);
+        }
+    }
+
+    @Override
+    public boolean[] updateNotes(Collection<Note> batch) {
+        boolean[] updated = new boolean[batch.size()];
+        int index = 0;
+        for (Note note : batch) {
+            updated[index++] = updateNoteIfPresent(note);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean[] deleteNotes(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            deleted[i] = notes.remove(ids[i]) != null;
+        }
+        return deleted;
+    }
+
+    @Override
+    public Note getNoteById(int id) {
+        Entry entry = notes.get(id);
+        return entry == null ? null : entry.note.toNote();
+    }
+
+    @Override
+    public ImmutableNote getNoteValue(int id) {
+        Entry entry = notes.get(id);
+        return entry == null ? null : entry.note;
+    }
+
+    @Override
+    public List<Note> getAllNotes() {
+        List<Note> result = new ArrayList<>(notes.size());
+        for (Entry entry : notes.values()) {
+            result.add(entry.note.toNote());
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Note> streamNotes() {
+        return notes.values().stream().map(entry -> entry.note.toNote());
+    }
+
+    @Override
+    public Stream<ImmutableNote> streamNoteValues() {
+        return notes.values().stream().map(entry -> entry.note);
+    }
+
+    /** Копия value с версией на единицу больше current. Вызывается внутри операции карты. */
+    private static Entry withNextVersion(ImmutableNote value, Entry current) {
+        return new Entry(value.withVersion(current == null ? 1 : current.note.getVersion() + 1));
+    }
+
+    /** Сохраненная заметка; equals не переопределен, поэтому replace сравнивает записи по ссылке. */
+    private static final class Entry {
+        final ImmutableNote note;
+
+        Entry(ImmutableNote note) {
+            this.note = note;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.MyNote;
+
+/**
+ * Класс FrequencySketch - приблизительный счетчик частоты обращений к id (count-min sketch).
+ * Каждый id учитывается в четырех 4-битных счетчиках, частота - минимум из них. Счетчики
+ * упакованы по 16 в long, поэтому память не зависит от числа разных id. Когда число
+ * учтенных обращений достигает размера выборки, все счетчики уменьшаются вдвое, и
+ * давно популярные id постепенно теряют частоту. Класс не потокобезопасен.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedSize ожидаемое число элементов в кэше
+     */
+    FrequencySketch(long expectedSize) {
+        int length = Integer.highestOneBit((int) Math.max(16, Math.min(expectedSize, 1 << 20)) - 1) << 1;
+        table = new long[length];
+        mask = length - 1;
+        sampleSize = 10 * length;
+    }
+
+    int frequency(int id) {
+        int hash = spread(id);
+        int start = (hash & 3) << 2;
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xFL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(int id) {
+        int hash = spread(id);
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long counterMask = 0xFL << offset;
+        if ((table[index] & counterMask) == counterMask) {
+            return false;
+        }
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    /** Уменьшает все счетчики вдвое. */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static int spread(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
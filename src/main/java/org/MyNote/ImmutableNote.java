@@ -0,0 +1,136 @@
+package org.MyNote;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Класс ImmutableNote - неизменяемое представление заметки.
+ * Все поля финальные, поэтому экземпляр можно передавать между потоками и отдавать
+ * нескольким читателям без блокировок и защитных копий. Изменение заметки создает
+ * новый экземпляр методами withTitle, withContent и withTimestamp; неизмененный текст
+ * новый экземпляр разделяет со старым.
+ *
+ * Note остается изменяемым адаптером для прежнего API: ImmutableNote.of(note)
+ * и toNote() переводят одно представление в другое без перекодирования текста.
+ */
+public final class ImmutableNote {
+    private final int id;
+    private final byte[] title;
+    private final byte[] content;
+    private final long timestamp;
+    private final long version;
+
+    public ImmutableNote(int id, String title, String content, LocalDateTime timestamp) {
+        this(id, Note.encode(title), Note.encode(content), Note.toMillis(timestamp));
+    }
+
+    ImmutableNote(int id, byte[] title, byte[] content, long timestamp) {
+        this(id, title, content, timestamp, 0);
+    }
+
+    ImmutableNote(int id, byte[] title, byte[] content, long timestamp, long version) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        this.timestamp = timestamp;
+        this.version = version;
+    }
+
+    /**
+     * Возвращает неизменяемую копию текущего состояния заметки.
+     */
+    public static ImmutableNote of(Note note) {
+        // Note заменяет массивы целиком и никогда не меняет их содержимое, поэтому их можно разделять
+        return new ImmutableNote(note.getId(), note.titleBytes(), note.contentBytes(), note.getTimestampMillis(),
+                note.getVersion());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return Note.decode(title);
+    }
+
+    public String getContent() {
+        return Note.decode(content);
+    }
+
+    public LocalDateTime getTimestamp() {
+        return Note.fromMillis(timestamp);
+    }
+
+    /** Временная метка в миллисекундах от начала эпохи или Note.NO_TIMESTAMP. */
+    public long getTimestampMillis() {
+        return timestamp;
+    }
+
+    /** Версия заметки в хранилище, см. Note.getVersion. */
+    public long getVersion() {
+        return version;
+    }
+
+    public ImmutableNote withTitle(String title) {
+        return new ImmutableNote(id, Note.encode(title), content, timestamp, version);
+    }
+
+    public ImmutableNote withContent(String content) {
+        return new ImmutableNote(id, title, Note.encode(content), timestamp, version);
+    }
+
+    public ImmutableNote withTimestamp(LocalDateTime timestamp) {
+        return withTimestampMillis(Note.toMillis(timestamp));
+    }
+
+    public ImmutableNote withTimestampMillis(long timestamp) {
+        return timestamp == this.timestamp ? this : new ImmutableNote(id, title, content, timestamp, version);
+    }
+
+    ImmutableNote withVersion(long version) {
+        return version == this.version ? this : new ImmutableNote(id, title, content, timestamp, version);
+    }
+
+    /**
+     * Возвращает изменяемую заметку с тем же состоянием. Изменения возвращенной заметки
+     * не затрагивают этот экземпляр.
+     */
+    public Note toNote() {
+        return new Note(id, title, content, timestamp, version);
+    }
+
+    byte[] titleBytes() {
+        return title;
+    }
+
+    byte[] contentBytes() {
+        return content;
+    }
+
+    /** Сравнивает содержимое заметок; версия - сведения хранилища и в сравнении не участвует. */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ImmutableNote)) {
+            return false;
+        }
+        ImmutableNote note = (ImmutableNote) other;
+        return id == note.id && timestamp == note.timestamp
+                && Arrays.equals(title, note.title) && Arrays.equals(content, note.content);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id;
+        result = 31 * result + Long.hashCode(timestamp);
+        result = 31 * result + Arrays.hashCode(title);
+        return 31 * result + Arrays.hashCode(content);
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableNote{id=" + id + ", title=" + getTitle() + ", timestamp=" + getTimestamp() + ", version=" + version + "}";
+    }
+}
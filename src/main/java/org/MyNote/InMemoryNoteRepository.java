@@ -1,36 +1,176 @@
 package org.MyNote;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
-/**Класс InMemoryNoteRepository используется для хранения заметок в памяти*/
+import java.util.Objects;
+import java.util.stream.Stream;
+/**Класс InMemoryNoteRepository используется для хранения заметок в памяти.
+ * Заметки лежат в массиве в порядке добавления, а индекс IntIntHashMap хранит позицию
+ * заметки по ее идентификатору, поэтому добавление, получение, обновление и удаление
+ * выполняются за O(1). Заметка с уже существующим id заменяет сохраненную.
+ * Заметки сохраняются как ImmutableNote, а читатели получают копии, поэтому изменение
+ * переданной или полученной Note не затрагивает хранилище и его версии.*/
 public class InMemoryNoteRepository implements NoteRepository {
-    private final List<Note> notes = new ArrayList<>();
+    private static final int MIN_COMPACT_SIZE = 64;
+
+    private final IntIntHashMap positions = new IntIntHashMap();
+    // Удаленные заметки оставляют null, пока массив не будет уплотнен
+    private ImmutableNote[] notes = new ImmutableNote[16];
+    private int end;
 
     @Override
     public void addNote(Note note) {
-        notes.add(note);
+        int position = positions.get(note.getId());
+        if (position != IntIntHashMap.NO_VALUE) {
+            replace(position, note);
+            return;
+        }
+        if (end == notes.length) {
+            grow();
+        }
+        positions.put(note.getId(), end);
+        notes[end++] = ImmutableNote.of(note).withVersion(1);
+        note.setVersion(1);
     }
 
     @Override
-    public void updateNote(Note note) {
-        int index = notes.indexOf(getNoteById(note.getId()));
-        if (index >= 0) {
-            notes.set(index, note);
+    public void addNotes(Collection<Note> batch) {
+        // Резервируем место под весь пакет сразу, чтобы массив расширялся не более одного раза
+        int required = end + batch.size();
+        if (required > notes.length) {
+            notes = Arrays.copyOf(notes, Math.max(required, notes.length << 1));
+        }
+        for (Note note : batch) {
+            addNote(note);
         }
     }
 
+    @Override
+    public void updateNote(Note note) {
+        updateNoteIfPresent(note);
+    }
+
     @Override
     public void deleteNote(int id) {
-        notes.removeIf(note -> note.getId() == id);
+        deleteNoteIfPresent(id);
+    }
+
+    @Override
+    public boolean addNoteIfAbsent(Note note) {
+        if (positions.containsKey(note.getId())) {
+            return false;
+        }
+        addNote(note);
+        return true;
+    }
+
+    @Override
+    public boolean updateNoteIfPresent(Note note) {
+        int position = positions.get(note.getId());
+        if (position == IntIntHashMap.NO_VALUE) {
+            return false;
+        }
+        replace(position, note);
+        return true;
+    }
+
+    @Override
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        int position = positions.get(note.getId());
+        if (position == IntIntHashMap.NO_VALUE) {
+            return UpdateResult.NOT_FOUND;
+        }
+        if (notes[position].getVersion() != expectedVersion) {
+            return UpdateResult.VERSION_CONFLICT;
+        }
+        replace(position, note);
+        return UpdateResult.UPDATED;
+    }
+
+    @Override
+    public boolean deleteNoteIfPresent(int id) {
+        int position = positions.remove(id);
+        if (position == IntIntHashMap.NO_VALUE) {
+            return false;
+        }
+        notes[position] = null;
+        compactIfSparse();
+        return true;
     }
 
     @Override
     public Note getNoteById(int id) {
-        return notes.stream().filter(note -> note.getId() == id).findFirst().orElse(null);
+        int position = positions.get(id);
+        return position == IntIntHashMap.NO_VALUE ? null : notes[position].toNote();
+    }
+
+    @Override
+    public ImmutableNote getNoteValue(int id) {
+        int position = positions.get(id);
+        return position == IntIntHashMap.NO_VALUE ? null : notes[position];
     }
 
     @Override
     public List<Note> getAllNotes() {
-        return notes.stream().collect(Collectors.toList());
+        List<Note> result = new ArrayList<>(positions.size());
+        for (int i = 0; i < end; i++) {
+            if (notes[i] != null) {
+                result.add(notes[i].toNote());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Note> streamNotes() {
+        return streamNoteValues().map(ImmutableNote::toNote);
+    }
+
+    @Override
+    public Stream<ImmutableNote> streamNoteValues() {
+        return Arrays.stream(notes, 0, end).filter(Objects::nonNull);
+    }
+
+    private void replace(int position, Note note) {
+        long version = notes[position].getVersion() + 1;
+        notes[position] = ImmutableNote.of(note).withVersion(version);
+        note.setVersion(version);
+    }
+
+    private void grow() {
+        // Если дырок много, достаточно уплотнить массив вместо расширения
+        if (positions.size() < end / 2) {
+            compact();
+        } else {
+            ImmutableNote[] grown = new ImmutableNote[notes.length << 1];
+            System.arraycopy(notes, 0, grown, 0, end);
+            notes = grown;
+        }
+    }
+
+    private void compactIfSparse() {
+        int live = positions.size();
+        if (end >= MIN_COMPACT_SIZE && live < end / 4) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < end; i++) {
+            ImmutableNote note = notes[i];
+            if (note != null) {
+                if (target != i) {
+                    notes[target] = note;
+                    positions.put(note.getId(), target);
+                }
+                target++;
+            }
+        }
+        for (int i = target; i < end; i++) {
+            notes[i] = null;
+        }
+        end = target;
     }
 }
@@ -0,0 +1,202 @@
+package org.MyNote;
+
+import java.util.Arrays;
+
+/**
+ * Класс IntIntHashMap - хеш-таблица с открытой адресацией для пар int -> int.
+ * Ключи и значения хранятся в примитивных массивах, поэтому идентификаторы заметок
+ * не упаковываются в Integer. Значения должны быть неотрицательными: отрицательное
+ * значение NO_VALUE возвращается, если ключ отсутствует.
+ */
+class IntIntHashMap {
+    static final int NO_VALUE = -1;
+
+    private static final int FREE_KEY = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    // Ключ 0 совпадает с маркером свободной ячейки, поэтому хранится отдельно
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    IntIntHashMap() {
+        this(16);
+    }
+
+    IntIntHashMap(int expectedSize) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR));
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : NO_VALUE;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            int k = keys[index];
+            if (k == key) {
+                return values[index];
+            }
+            if (k == FREE_KEY) {
+                return NO_VALUE;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Сохраняет значение для ключа и возвращает предыдущее значение или NO_VALUE.
+     */
+    int put(int key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasFreeKey ? freeKeyValue : NO_VALUE;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return previous;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            int k = keys[index];
+            if (k == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            if (k == FREE_KEY) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return NO_VALUE;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Удаляет ключ и возвращает его значение или NO_VALUE, если ключа не было.
+     */
+    int remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return NO_VALUE;
+            }
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            int k = keys[index];
+            if (k == key) {
+                int previous = values[index];
+                size--;
+                shiftKeys(index);
+                return previous;
+            }
+            if (k == FREE_KEY) {
+                return NO_VALUE;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Обходит все пары ключ-значение в порядке хеш-таблицы.
+     */
+    void forEach(EntryConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE_KEY, freeKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    // Удаление со сдвигом назад: цепочки линейного пробирования остаются без "надгробий"
+    private void shiftKeys(int index) {
+        int last;
+        while (true) {
+            last = index;
+            index = (index + 1) & mask;
+            while (true) {
+                int k = keys[index];
+                if (k == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    return;
+                }
+                int slot = hash(k) & mask;
+                if (last <= index ? (last >= slot || slot > index) : (last >= slot && slot > index)) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[last] = keys[index];
+            values[last] = values[index];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k != FREE_KEY) {
+                int index = hash(k) & mask;
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = k;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+        return Math.max(capacity, 8);
+    }
+
+    interface EntryConsumer {
+        void accept(int key, int value);
+    }
+}
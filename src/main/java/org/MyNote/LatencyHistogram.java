@@ -0,0 +1,104 @@
+package org.MyNote;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс LatencyHistogram - гистограмма задержек в наносекундах без блокировок.
+ * Значения раскладываются по логарифмическим корзинам: каждый интервал [2^k, 2^(k+1))
+ * делится на 16 равных корзин, поэтому ошибка квантиля не больше 1/16 (6.25%).
+ * Запись - атомарный инкремент счетчика корзины и счетчиков LongAdder без выделения
+ * памяти в установившемся режиме, поэтому ее можно выполнять на каждом вызове.
+ * Чтение квантилей не блокирует запись и видит приблизительно согласованное состояние.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Значения от 2^40 нс (около 18 минут) попадают в последнюю корзину
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.getAndIncrement(bucketOf(nanos));
+        totalCount.increment();
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * Возвращает значение, не меньше которого оказалась доля quantile записанных задержек
+     * (верхнюю границу корзины квантиля), или 0, если записей нет.
+     *
+     * @param quantile доля от 0 до 1, например 0.99
+     */
+    public long valueAtQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        // Старший бит отбрасывается, следующие четыре выбирают корзину внутри интервала
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long base = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return base + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,773 @@
+package org.MyNote;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Класс LogNoteRepository - хранилище заметок на диске в виде журнала только для дописывания.
+ * Каждое добавление, обновление и удаление записывается в журнал отдельной записью
+ * с контрольной суммой CRC32C, а текущее состояние хранится в памяти для чтения без диска
+ * в виде ImmutableNote, поэтому изменение переданной заметки не расходится с журналом.
+ *
+ * Журнал разбит на сегменты. Сегмент начинается с заголовка (магическое число, версия формата,
+ * флаги), за ним идут записи: длина тела (int), контрольная сумма тела (int), тело - тип
+ * операции (byte) и заметка в формате NoteCodec или id для удаления.
+ *
+ * Запись возвращает управление только после fsync. Fsync групповой: один поток сбрасывает
+ * на диск все, что успели дописать другие писатели, остальные ждут его результата.
+ * Изменение видно читателям сразу после записи в журнал, еще до fsync.
+ *
+ * При открытии сегменты читаются через отображение в память. Оборванная последняя запись
+ * последнего сегмента (сбой во время записи), которая доходит до конца файла, отбрасывается,
+ * и файл обрезается до последней целой записи. Повреждение в середине журнала, в том числе
+ * в середине последнего сегмента, считается ошибкой: конструктор бросает IOException.
+ *
+ * Когда закрытых сегментов становится больше порога, фоновый поток уплотняет журнал:
+ * записывает снимок состояния во временный файл, атомарно подменяет им последний
+ * закрытый сегмент и удаляет более старые.
+ */
+public class LogNoteRepository implements NoteRepository, Closeable {
+    private static final int MAGIC = 0x4D4E4C47;
+    // Во второй версии формата записи заметок содержат ее версию
+    private static final int FORMAT_VERSION = 2;
+    private static final int FLAG_SNAPSHOT = 1;
+    private static final int SEGMENT_HEADER = 12;
+    private static final int RECORD_HEADER = 8;
+
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACTION_SUFFIX = ".compact";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final int compactionThreshold;
+    private final ConcurrentHashMap<Integer, ImmutableNote> index;
+
+    // Состояние писателя защищено writeLock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final TreeSet<Long> segments = new TreeSet<>();
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    private long activeSegment;
+    private long activeSize;
+    private boolean closed;
+
+    // Позиции в журнале считаются в байтах записей от момента открытия
+    private volatile FileChannel active;
+    private volatile long appendedPosition;
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private long durablePosition;
+    private boolean syncing;
+
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "note-log-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Открывает журнал в каталоге с сегментами по 64 МБ и уплотнением после 4 закрытых сегментов.
+     */
+    public LogNoteRepository(Path directory) throws IOException {
+        this(directory, 64L << 20, 4);
+    }
+
+    /**
+     * @param maxSegmentBytes     размер сегмента, после которого начинается новый сегмент
+     * @param compactionThreshold число закрытых сегментов, при котором запускается уплотнение
+     */
+    public LogNoteRepository(Path directory, long maxSegmentBytes, int compactionThreshold) throws IOException {
+        if (maxSegmentBytes <= SEGMENT_HEADER || maxSegmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size is out of range");
+        }
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.compactionThreshold = compactionThreshold;
+        Files.createDirectories(directory);
+        index = recover();
+    }
+
+    @Override
+    public void addNote(Note note) {
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            ImmutableNote value = nextVersion(note);
+            appendNote(ADD, value);
+            index.put(value.getId(), value);
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    @Override
+    public void updateNote(Note note) {
+        updateNoteIfPresent(note);
+    }
+
+    @Override
+    public void deleteNote(int id) {
+        deleteNoteIfPresent(id);
+    }
+
+    @Override
+    public boolean addNoteIfAbsent(Note note) {
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            if (index.containsKey(note.getId())) {
+                return false;
+            }
+            ImmutableNote value = nextVersion(note);
+            appendNote(ADD, value);
+            index.put(value.getId(), value);
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+        return true;
+    }
+
+    @Override
+    public boolean updateNoteIfPresent(Note note) {
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            if (!index.containsKey(note.getId())) {
+                return false;
+            }
+            ImmutableNote value = nextVersion(note);
+            appendNote(UPDATE, value);
+            index.put(value.getId(), value);
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+        return true;
+    }
+
+    @Override
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            ImmutableNote current = index.get(note.getId());
+            if (current == null) {
+                return UpdateResult.NOT_FOUND;
+            }
+            if (current.getVersion() != expectedVersion) {
+                return UpdateResult.VERSION_CONFLICT;
+            }
+            ImmutableNote value = nextVersion(note);
+            appendNote(UPDATE, value);
+            index.put(value.getId(), value);
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+        return UpdateResult.UPDATED;
+    }
+
+    @Override
+    public boolean deleteNoteIfPresent(int id) {
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            if (!index.containsKey(id)) {
+                return false;
+            }
+            appendDelete(id);
+            index.remove(id);
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+        return true;
+    }
+
+    @Override
+    public void addNotes(Collection<Note> notes) {
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            for (Note note : notes) {
+                ImmutableNote value = nextVersion(note);
+                appendNote(ADD, value);
+                index.put(value.getId(), value);
+            }
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    @Override
+    public boolean[] updateNotes(Collection<Note> notes) {
+        boolean[] updated = new boolean[notes.size()];
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            int i = 0;
+            for (Note note : notes) {
+                if (index.containsKey(note.getId())) {
+                    ImmutableNote value = nextVersion(note);
+                    appendNote(UPDATE, value);
+                    index.put(value.getId(), value);
+                    updated[i] = true;
+                }
+                i++;
+            }
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+        return updated;
+    }
+
+    @Override
+    public boolean[] deleteNotes(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        long position;
+        writeLock.lock();
+        try {
+            ensureOpen();
+            for (int i = 0; i < ids.length; i++) {
+                if (index.containsKey(ids[i])) {
+                    appendDelete(ids[i]);
+                    index.remove(ids[i]);
+                    deleted[i] = true;
+                }
+            }
+            position = appendedPosition;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(position);
+        return deleted;
+    }
+
+    @Override
+    public Note getNoteById(int id) {
+        ImmutableNote note = index.get(id);
+        return note == null ? null : note.toNote();
+    }
+
+    @Override
+    public ImmutableNote getNoteValue(int id) {
+        return index.get(id);
+    }
+
+    @Override
+    public List<Note> getAllNotes() {
+        List<Note> notes = new ArrayList<>(index.size());
+        for (ImmutableNote note : index.values()) {
+            notes.add(note.toNote());
+        }
+        return notes;
+    }
+
+    @Override
+    public Stream<Note> streamNotes() {
+        return index.values().stream().map(ImmutableNote::toNote);
+    }
+
+    @Override
+    public Stream<ImmutableNote> streamNoteValues() {
+        return index.values().stream();
+    }
+
+    /**
+     * Уплотняет журнал: начинает новый сегмент, записывает снимок текущего состояния
+     * вместо последнего закрытого сегмента и удаляет более старые сегменты.
+     * Обычно вызывается фоновым потоком; сбой оставляет журнал в прежнем виде.
+     */
+    public void compact() {
+        compactionLock.lock();
+        try {
+            long base;
+            List<ImmutableNote> notes;
+            List<Long> obsolete;
+            writeLock.lock();
+            try {
+                ensureOpen();
+                if (activeSize > SEGMENT_HEADER) {
+                    roll();
+                }
+                Long sealed = segments.lower(activeSegment);
+                if (sealed == null || (segments.headSet(sealed).isEmpty() && isSnapshot(sealed))) {
+                    return;
+                }
+                base = sealed;
+                notes = new ArrayList<>(index.values());
+                obsolete = new ArrayList<>(segments.headSet(base));
+            } finally {
+                writeLock.unlock();
+            }
+            writeSnapshot(base, notes);
+            for (long segment : obsolete) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+            syncDirectory();
+            writeLock.lock();
+            try {
+                segments.removeAll(obsolete);
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Дожидается фонового уплотнения, сбрасывает журнал на диск и закрывает его.
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.force(false);
+            active.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Присваивает заметке следующую версию и возвращает ее неизменяемую копию для журнала.
+     * Вызывается под writeLock.
+     */
+    private ImmutableNote nextVersion(Note note) {
+        ImmutableNote previous = index.get(note.getId());
+        note.setVersion(previous == null ? 1 : previous.getVersion() + 1);
+        return ImmutableNote.of(note);
+    }
+
+    private void appendNote(byte type, ImmutableNote note) {
+        ByteBuffer record = prepareRecord(1 + NoteCodec.encodedSize(note));
+        record.put(type);
+        NoteCodec.write(record, note);
+        writeRecord(record);
+    }
+
+    private void appendDelete(int id) {
+        ByteBuffer record = prepareRecord(1 + 4);
+        record.put(DELETE);
+        record.putInt(id);
+        writeRecord(record);
+    }
+
+    private ByteBuffer prepareRecord(int bodyLength) {
+        int size = RECORD_HEADER + bodyLength;
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() << 1));
+        }
+        buffer.clear();
+        buffer.position(RECORD_HEADER);
+        return buffer;
+    }
+
+    private void writeRecord(ByteBuffer record) {
+        int size = record.position();
+        checksum.reset();
+        checksum.update(record.array(), RECORD_HEADER, size - RECORD_HEADER);
+        record.putInt(0, size - RECORD_HEADER);
+        record.putInt(4, (int) checksum.getValue());
+        record.flip();
+        try {
+            if (activeSize > SEGMENT_HEADER && activeSize + size > maxSegmentBytes) {
+                roll();
+            }
+            // Пишем по явной позиции: после сбоя недописанный хвост будет перезаписан
+            // следующей записью или отрезан при закрытии сегмента
+            long position = activeSize;
+            while (record.hasRemaining()) {
+                position += active.write(record, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        activeSize += size;
+        appendedPosition += size;
+    }
+
+    /**
+     * Закрывает активный сегмент и начинает новый. Вызывается под writeLock.
+     */
+    private void roll() throws IOException {
+        FileChannel sealed = active;
+        sealed.truncate(activeSize);
+        long next = activeSegment + 1;
+        FileChannel created = createSegment(next, 0);
+        syncLock.lock();
+        try {
+            // Дожидаемся текущего fsync: он мог начаться на закрываемом сегменте
+            while (syncing) {
+                synced.awaitUninterruptibly();
+            }
+            sealed.force(false);
+            durablePosition = appendedPosition;
+            active = created;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+        sealed.close();
+        segments.add(next);
+        activeSegment = next;
+        activeSize = SEGMENT_HEADER;
+        if (segments.size() - 1 >= compactionThreshold && compactionScheduled.compareAndSet(false, true)) {
+            try {
+                compactor.execute(() -> {
+                    try {
+                        compact();
+                    } catch (UncheckedIOException | IllegalStateException e) {
+                        // Журнал остается прежним, уплотнение повторится после следующей смены сегмента
+                    } finally {
+                        compactionScheduled.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Хранилище закрывается
+                compactionScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Групповой fsync: если сброс уже идет, ждем его; иначе сами сбрасываем все дописанное
+     * к этому моменту, покрывая записи других писателей.
+     */
+    private void awaitDurable(long position) {
+        syncLock.lock();
+        try {
+            while (durablePosition < position) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target = appendedPosition;
+                FileChannel channel = active;
+                syncLock.unlock();
+                IOException failure = null;
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    synced.signalAll();
+                }
+                if (failure != null) {
+                    throw new UncheckedIOException(failure);
+                }
+                durablePosition = Math.max(durablePosition, target);
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private ConcurrentHashMap<Integer, ImmutableNote> recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(COMPACTION_SUFFIX)) {
+                    // Незавершенное уплотнение: старые сегменты еще на месте
+                    Files.delete(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+        ConcurrentHashMap<Integer, ImmutableNote> state = new ConcurrentHashMap<>();
+        if (segments.isEmpty()) {
+            segments.add(1L);
+            activeSegment = 1;
+            activeSize = SEGMENT_HEADER;
+            active = createSegment(1, 0);
+            return state;
+        }
+
+        // Снимок содержит все состояние, поэтому журнал до последнего снимка не нужен
+        List<Long> obsolete = new ArrayList<>();
+        boolean legacyTail = false;
+        for (long segment : segments) {
+            Path path = segmentPath(segment);
+            boolean last = segment == segments.last();
+            long size = Files.size(path);
+            if (size < SEGMENT_HEADER && !last) {
+                throw new IOException("Corrupted log segment " + path);
+            }
+            if (size < SEGMENT_HEADER) {
+                // Сбой при создании сегмента: заголовок не успел записаться
+                Files.delete(path);
+                active = createSegment(segment, 0);
+                activeSize = SEGMENT_HEADER;
+                break;
+            }
+            long validEnd;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (readHeader(mapped, path)) {
+                    state = new ConcurrentHashMap<>();
+                    obsolete.addAll(segments.headSet(segment));
+                }
+                boolean versioned = mapped.getInt(4) == FORMAT_VERSION;
+                legacyTail = !versioned;
+                validEnd = replay(mapped, state, versioned, path);
+            }
+            if (validEnd < size && !last) {
+                throw new IOException("Corrupted log segment " + path);
+            }
+            if (last) {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+                if (validEnd < size) {
+                    channel.truncate(validEnd);
+                    channel.force(false);
+                }
+                active = channel;
+                activeSize = validEnd;
+            }
+        }
+        if (legacyTail) {
+            // В сегмент прежнего формата новые записи не дописываются
+            active.close();
+            long next = segments.last() + 1;
+            segments.add(next);
+            active = createSegment(next, 0);
+            activeSize = SEGMENT_HEADER;
+        }
+        activeSegment = segments.last();
+        for (long segment : obsolete) {
+            Files.deleteIfExists(segmentPath(segment));
+            segments.remove(segment);
+        }
+        return state;
+    }
+
+    /**
+     * Проверяет заголовок сегмента.
+     *
+     * @return true, если сегмент является снимком состояния
+     */
+    private static boolean readHeader(ByteBuffer segment, Path path) {
+        if (segment.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a note log segment: " + path);
+        }
+        int version = segment.getInt();
+        if (version != 1 && version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported log format version " + version + ": " + path);
+        }
+        return (segment.getInt() & FLAG_SNAPSHOT) != 0;
+    }
+
+    /**
+     * Применяет записи сегмента к состоянию. В сегментах первой версии формата версий нет,
+     * они восстанавливаются счетом записей каждой заметки.
+     *
+     * Оборванной считается только запись, которая доходит до конца файла; за поврежденной
+     * записью, после которой есть еще данные, могут идти целые записи, и отбросить их молча
+     * нельзя.
+     *
+     * @return позиция конца последней целой записи
+     * @throws IOException если запись в середине сегмента повреждена
+     */
+    private static long replay(ByteBuffer segment, Map<Integer, ImmutableNote> state, boolean versioned, Path path)
+            throws IOException {
+        CRC32C crc = new CRC32C();
+        while (segment.remaining() >= RECORD_HEADER) {
+            int start = segment.position();
+            int length = segment.getInt();
+            int expected = segment.getInt();
+            if (length < 5) {
+                // Самый частый хвост после сбоя - нули за последней целой записью
+                // (предвыделенное или не дописанное место), его отбрасываем как оборванную запись
+                if (start + RECORD_HEADER + Math.max(length, 0) >= segment.limit() || isZeroFilled(segment, start)) {
+                    return start;
+                }
+                throw new IOException("Corrupted record at offset " + start + " in log segment " + path);
+            }
+            if (length > segment.remaining()) {
+                return start;
+            }
+            ByteBuffer body = segment.slice(segment.position(), length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != expected) {
+                if (segment.position() + length < segment.limit()) {
+                    throw new IOException("Corrupted record at offset " + start + " in log segment " + path);
+                }
+                return start;
+            }
+            byte type = body.get();
+            if (type == DELETE) {
+                state.remove(body.getInt());
+            } else {
+                ImmutableNote note = NoteCodec.readValue(body, versioned);
+                if (!versioned) {
+                    ImmutableNote previous = state.get(note.getId());
+                    note = note.withVersion(previous == null ? 1 : previous.getVersion() + 1);
+                }
+                state.put(note.getId(), note);
+            }
+            segment.position(start + RECORD_HEADER + length);
+        }
+        return segment.position();
+    }
+
+    private static boolean isZeroFilled(ByteBuffer segment, int from) {
+        for (int i = from; i < segment.limit(); i++) {
+            if (segment.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSnapshot(long segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+            channel.read(header, 0);
+            return (header.getInt(8) & FLAG_SNAPSHOT) != 0;
+        }
+    }
+
+    private void writeSnapshot(long segment, List<ImmutableNote> notes) throws IOException {
+        Path temporary = directory.resolve(segmentName(segment) + COMPACTION_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 20);
+            CRC32C crc = new CRC32C();
+            chunk.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(FLAG_SNAPSHOT);
+            for (ImmutableNote note : notes) {
+                int length = 1 + NoteCodec.encodedSize(note);
+                if (chunk.remaining() < RECORD_HEADER + length) {
+                    flush(channel, chunk);
+                    if (chunk.capacity() < RECORD_HEADER + length) {
+                        chunk = ByteBuffer.allocate(RECORD_HEADER + length);
+                    }
+                }
+                int start = chunk.position();
+                chunk.position(start + RECORD_HEADER);
+                chunk.put(ADD);
+                NoteCodec.write(chunk, note);
+                crc.reset();
+                crc.update(chunk.array(), start + RECORD_HEADER, length);
+                chunk.putInt(start, length);
+                chunk.putInt(start + 4, (int) crc.getValue());
+            }
+            flush(channel, chunk);
+            channel.force(true);
+        }
+        Files.move(temporary, segmentPath(segment), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    private FileChannel createSegment(long segment, int flags) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(flags).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+        syncDirectory();
+        return channel;
+    }
+
+    /**
+     * Сбрасывает на диск сам каталог, чтобы создание, переименование и удаление файлов
+     * пережили сбой. Не все платформы позволяют открыть каталог, там шаг пропускается.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Каталог нельзя открыть как файл на этой платформе
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(segmentName(segment) + SEGMENT_SUFFIX);
+    }
+
+    private static String segmentName(long segment) {
+        return String.format("%016d", segment);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package org.MyNote;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.MyNote.NoteMetrics.Operation.ADD_NOTE;
+import static org.MyNote.NoteMetrics.Operation.ADD_NOTES;
+import static org.MyNote.NoteMetrics.Operation.DELETE_NOTE;
+import static org.MyNote.NoteMetrics.Operation.DELETE_NOTES;
+import static org.MyNote.NoteMetrics.Operation.EXPORT_NOTES;
+import static org.MyNote.NoteMetrics.Operation.GET_ALL_NOTES;
+import static org.MyNote.NoteMetrics.Operation.GET_NOTE;
+import static org.MyNote.NoteMetrics.Operation.GET_NOTES_BY_IDS;
+import static org.MyNote.NoteMetrics.Operation.GET_NOTES_PAGE;
+import static org.MyNote.NoteMetrics.Operation.IMPORT_NOTES;
+import static org.MyNote.NoteMetrics.Operation.QUERY_NOTES;
+import static org.MyNote.NoteMetrics.Operation.STREAM_NOTES;
+import static org.MyNote.NoteMetrics.Operation.UPDATE_NOTE;
+import static org.MyNote.NoteMetrics.Operation.UPDATE_NOTES;
+
+/**
+ * Класс MetricsNoteRepository - декоратор хранилища, который измеряет задержку каждого
+ * вызова и считает вызовы, завершившиеся исключением. Варианты одной операции (addNote
+ * и addNoteIfAbsent, updateNote, updateNoteIfPresent и updateNoteIfVersion, getNoteById и getNoteValue)
+ * учитываются вместе. Для streamNotes измеряется только создание потока, а не его обход.
+ */
+public class MetricsNoteRepository implements NoteRepository {
+    private final NoteRepository backend;
+    private final NoteMetrics metrics;
+
+    public MetricsNoteRepository(NoteRepository backend, NoteMetrics metrics) {
+        this.backend = backend;
+        this.metrics = metrics;
+    }
+
+    public NoteMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void addNote(Note note) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            backend.addNote(note);
+            completed = true;
+        } finally {
+            finish(ADD_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public void updateNote(Note note) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            backend.updateNote(note);
+            completed = true;
+        } finally {
+            finish(UPDATE_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public void deleteNote(int id) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            backend.deleteNote(id);
+            completed = true;
+        } finally {
+            finish(DELETE_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public Note getNoteById(int id) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            Note note = backend.getNoteById(id);
+            completed = true;
+            return note;
+        } finally {
+            finish(GET_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public List<Note> getAllNotes() {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            List<Note> notes = backend.getAllNotes();
+            completed = true;
+            return notes;
+        } finally {
+            finish(GET_ALL_NOTES, start, completed);
+        }
+    }
+
+    @Override
+    public boolean addNoteIfAbsent(Note note) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            boolean added = backend.addNoteIfAbsent(note);
+            completed = true;
+            return added;
+        } finally {
+            finish(ADD_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public boolean updateNoteIfPresent(Note note) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            boolean updated = backend.updateNoteIfPresent(note);
+            completed = true;
+            return updated;
+        } finally {
+            finish(UPDATE_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            UpdateResult result = backend.updateNoteIfVersion(note, expectedVersion);
+            completed = true;
+            return result;
+        } finally {
+            finish(UPDATE_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public boolean deleteNoteIfPresent(int id) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            boolean deleted = backend.deleteNoteIfPresent(id);
+            completed = true;
+            return deleted;
+        } finally {
+            finish(DELETE_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public void addNotes(Collection<Note> notes) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            backend.addNotes(notes);
+            completed = true;
+        } finally {
+            finish(ADD_NOTES, start, completed);
+        }
+    }
+
+    @Override
+    public boolean[] updateNotes(Collection<Note> notes) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            boolean[] updated = backend.updateNotes(notes);
+            completed = true;
+            return updated;
+        } finally {
+            finish(UPDATE_NOTES, start, completed);
+        }
+    }
+
+    @Override
+    public boolean[] deleteNotes(int[] ids) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            boolean[] deleted = backend.deleteNotes(ids);
+            completed = true;
+            return deleted;
+        } finally {
+            finish(DELETE_NOTES, start, completed);
+        }
+    }
+
+    @Override
+    public List<Note> getNotesByIds(int[] ids) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            List<Note> notes = backend.getNotesByIds(ids);
+            completed = true;
+            return notes;
+        } finally {
+            finish(GET_NOTES_BY_IDS, start, completed);
+        }
+    }
+
+    @Override
+    public Stream<Note> streamNotes() {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            Stream<Note> notes = backend.streamNotes();
+            completed = true;
+            return notes;
+        } finally {
+            finish(STREAM_NOTES, start, completed);
+        }
+    }
+
+    @Override
+    public ImmutableNote getNoteValue(int id) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            ImmutableNote note = backend.getNoteValue(id);
+            completed = true;
+            return note;
+        } finally {
+            finish(GET_NOTE, start, completed);
+        }
+    }
+
+    @Override
+    public Stream<ImmutableNote> streamNoteValues() {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            Stream<ImmutableNote> notes = backend.streamNoteValues();
+            completed = true;
+            return notes;
+        } finally {
+            finish(STREAM_NOTES, start, completed);
+        }
+    }
+
+    @Override
+    public List<Note> getNotesPage(int afterId, int limit) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            List<Note> notes = backend.getNotesPage(afterId, limit);
+            completed = true;
+            return notes;
+        } finally {
+            finish(GET_NOTES_PAGE, start, completed);
+        }
+    }
+
+    @Override
+    public List<ImmutableNote> findNoteValues(Predicate<? super ImmutableNote> filter,
+                                              Comparator<? super ImmutableNote> order, int limit) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            List<ImmutableNote> notes = backend.findNoteValues(filter, order, limit);
+            completed = true;
+            return notes;
+        } finally {
+            finish(QUERY_NOTES, start, completed);
+        }
+    }
+
+    @Override
+    public long exportNotes(WritableByteChannel out) throws IOException {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            long count = backend.exportNotes(out);
+            completed = true;
+            return count;
+        } finally {
+            finish(EXPORT_NOTES, start, completed);
+        }
+    }
+
+    @Override
+    public long importNotes(ReadableByteChannel in) throws IOException {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            long count = backend.importNotes(in);
+            completed = true;
+            return count;
+        } finally {
+            finish(IMPORT_NOTES, start, completed);
+        }
+    }
+
+    private void finish(NoteMetrics.Operation operation, long start, boolean completed) {
+        metrics.record(operation, System.nanoTime() - start);
+        if (!completed) {
+            metrics.recordError(operation);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package org.MyNote;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 public class Note {
 /**Класс Note является представлением заметки. Он содержит следующие поля:
@@ -8,39 +11,70 @@ public class Note {
  id: уникальный идентификатор заметки.
  title: заголовок заметки.
  content: текст заметки.
- timestamp: временная метка создания заметки.*/
+ timestamp: временная метка создания заметки.
+ version: номер версии, который хранилище увеличивает при каждой записи заметки.
+
+ Для экономии памяти текст хранится байтами UTF-8, а временная метка - числом миллисекунд
+ от начала эпохи. Строки и LocalDateTime создаются при каждом вызове геттера; метка
+ хранится с точностью до миллисекунды и переводится в LocalDateTime по системному поясу.
+
+ Note изменяем и оставлен для совместимости; для публикации заметки нескольким потокам
+ без блокировок и копий служит неизменяемый ImmutableNote.*/
+
+    /** Значение timestampMillis, означающее отсутствие временной метки. */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
 
     private int id;
-    private String title;
-    private String content;
-    private LocalDateTime timestamp;
+    private byte[] title;
+    private byte[] content;
+    private long timestamp;
+    private long version;
 
 
 
 
     public void setTitle(String title) {
-        this.title = title;
+        this.title = encode(title);
     }
 
     /**конструктор, который принимает id, title, и content и создает объект Note
  *  с указанными параметрами. Временная метка timestamp автоматически устанавливается
  *  на текущее время при создании заметки*/
     public Note(int id, String title, String content) {
+        this.id = id;
+        this.title = encode(title);
+        this.content = encode(content);
+        this.timestamp = System.currentTimeMillis();
+
+    }
+
+    /** Создает заметку из уже закодированного текста без копирования массивов. */
+    Note(int id, byte[] title, byte[] content, long timestamp) {
+        this(id, title, content, timestamp, 0);
+    }
+
+    Note(int id, byte[] title, byte[] content, long timestamp, long version) {
         this.id = id;
         this.title = title;
         this.content = content;
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
+        this.version = version;
+    }
+
+    /**конструктор с явной временной меткой, например для заметок, прочитанных из внешнего источника*/
+    public Note(int id, String title, String content, LocalDateTime timestamp) {
+        this(id, encode(title), encode(content), toMillis(timestamp));
+    }
 
+    /**возвращает копию заметки с другой временной меткой; исходная заметка не меняется*/
+    public Note withTimestamp(LocalDateTime timestamp) {
+        return new Note(this.id, this.title, this.content, toMillis(timestamp), this.version);
+    }
+
+    /**возвращает неизменяемую копию заметки, см. ImmutableNote*/
+    public ImmutableNote toImmutable() {
+        return ImmutableNote.of(this);
     }
-//    public Note(int id, String title, String content, LocalDateTime timestamp) {
-//        this.id = id;
-//        this.title = title;
-//        this.content = content;
-//        this.timestamp = LocalDateTime.now();
-//    }
-//    public Note withTimestamp(LocalDateTime timestamp) {
-//        return new Note(this.id, this.title, this.content, timestamp);
-//    }
 
 
     public int getId() {
@@ -48,23 +82,75 @@ public class Note {
     }
 
     public String getTitle() {
-        return title;
+        return decode(title);
     }
 
     public String getContent() {
-        return content;
+        return decode(content);
     }
 
     public LocalDateTime getTimestamp() {
-        return timestamp;
+        return fromMillis(timestamp);
     }
 
     public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = toMillis(timestamp);
+    }
+
+    /** Временная метка в миллисекундах от начала эпохи или NO_TIMESTAMP. */
+    public long getTimestampMillis() {
+        return timestamp;
+    }
+
+    public void setTimestampMillis(long timestamp) {
         this.timestamp = timestamp;
     }
 
+    /**
+     * Версия заметки: 0 для заметки, которая еще не сохранялась, иначе версия, присвоенная
+     * хранилищем при последней записи. Передается в NoteRepository.updateNoteIfVersion
+     * как ожидаемая версия.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Вызывается хранилищем при записи заметки. */
+    void setVersion(long version) {
+        this.version = version;
+    }
+
 
     public void setContent(String content) {
-        this.content = content;
+        this.content = encode(content);
+    }
+
+    /** Заголовок в UTF-8 без копирования; массив нельзя изменять. */
+    byte[] titleBytes() {
+        return title;
+    }
+
+    /** Содержимое в UTF-8 без копирования; массив нельзя изменять. */
+    byte[] contentBytes() {
+        return content;
+    }
+
+    static byte[] encode(String text) {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String decode(byte[] text) {
+        return text == null ? null : new String(text, StandardCharsets.UTF_8);
+    }
+
+    static long toMillis(LocalDateTime timestamp) {
+        return timestamp == null ? NO_TIMESTAMP : timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    static LocalDateTime fromMillis(long timestamp) {
+        if (timestamp == NO_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
     }
 }
@@ -0,0 +1,242 @@
+package org.MyNote;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Класс NoteArchive - двоичный формат выгрузки всего хранилища заметок.
+ *
+ * Архив начинается с заголовка (магическое число, версия формата), за ним идут блоки:
+ * число заметок (int), длина данных (int), контрольная сумма CRC32C данных (int) и сами
+ * заметки в формате NoteCodec. Последний блок содержит 0 заметок и общее число заметок
+ * архива (long), по нему обнаруживается обрезанный архив.
+ *
+ * Запись и чтение идут блоками через один прямой буфер, поэтому в памяти одновременно
+ * находится не больше одного блока, а не весь архив. Готовый файл архива копируется
+ * в другой канал через FileChannel.transferTo без копирования в память процесса.
+ */
+public final class NoteArchive {
+    private static final int MAGIC = 0x4D4E4152;
+    // Во второй версии формата NoteCodec хранит версию заметки; архивы первой версии читаются
+    private static final int FORMAT_VERSION = 2;
+    private static final int FILE_HEADER = 8;
+    private static final int BLOCK_HEADER = 12;
+    private static final int BLOCK_SIZE = 1 << 20;
+    // Наименьшая закодированная заметка первой версии: id, метка времени и две пустые
+    // длины текста; во второй версии к ним добавляется версия заметки
+    private static final int MIN_NOTE_SIZE_V1 = 4 + 8 + 4 + 4;
+    private static final int MIN_NOTE_SIZE = MIN_NOTE_SIZE_V1 + 8;
+
+    private NoteArchive() {
+    }
+
+    /**
+     * Записывает заметки в архив.
+     *
+     * @return число записанных заметок
+     */
+    public static long write(Stream<Note> notes, WritableByteChannel out) throws IOException {
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        CRC32C crc = new CRC32C();
+        block.putInt(MAGIC).putInt(FORMAT_VERSION);
+        writeFully(out, block);
+
+        long total = 0;
+        int count = 0;
+        block.position(BLOCK_HEADER);
+        Iterator<Note> iterator = notes.iterator();
+        while (iterator.hasNext()) {
+            Note note = iterator.next();
+            int size = NoteCodec.encodedSize(note);
+            if (block.remaining() < size && count > 0) {
+                writeBlock(out, block, count, crc);
+                count = 0;
+            }
+            total++;
+            if (block.remaining() < size) {
+                // Заметка больше блока: она пишется отдельным блоком из своего буфера
+                ByteBuffer single = ByteBuffer.allocateDirect(BLOCK_HEADER + size);
+                single.position(BLOCK_HEADER);
+                NoteCodec.write(single, note);
+                writeBlock(out, single, 1, crc);
+                continue;
+            }
+            NoteCodec.write(block, note);
+            count++;
+        }
+        if (count > 0) {
+            writeBlock(out, block, count, crc);
+        }
+        block.putLong(total);
+        writeBlock(out, block, 0, crc);
+        return total;
+    }
+
+    /**
+     * Читает архив и передает заметки пакетами, по одному пакету на блок.
+     *
+     * @return число прочитанных заметок
+     */
+    public static long read(ReadableByteChannel in, Consumer<List<Note>> batches) throws IOException {
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        CRC32C crc = new CRC32C();
+        block.limit(FILE_HEADER);
+        readFully(in, block);
+        block.flip();
+        if (block.getInt() != MAGIC) {
+            throw new IOException("Not a note archive");
+        }
+        int version = block.getInt();
+        if (version != 1 && version != FORMAT_VERSION) {
+            throw new IOException("Unsupported note archive version " + version);
+        }
+        boolean versioned = version == FORMAT_VERSION;
+        int minNoteSize = versioned ? MIN_NOTE_SIZE : MIN_NOTE_SIZE_V1;
+
+        long total = 0;
+        while (true) {
+            block.clear().limit(BLOCK_HEADER);
+            readFully(in, block);
+            block.flip();
+            int count = block.getInt();
+            int length = block.getInt();
+            int expected = block.getInt();
+            if (count < 0 || length < 0 || count > length / minNoteSize) {
+                throw new IOException("Corrupted note archive block");
+            }
+            ByteBuffer data;
+            if (length <= block.capacity()) {
+                block.clear().limit(length);
+                readFully(in, block);
+                data = block.flip();
+            } else {
+                data = readLarge(in, length);
+            }
+            crc.reset();
+            crc.update(data.duplicate());
+            if ((int) crc.getValue() != expected) {
+                throw new IOException("Corrupted note archive block");
+            }
+            if (count == 0) {
+                if (data.getLong() != total) {
+                    throw new IOException("Corrupted note archive block");
+                }
+                return total;
+            }
+            List<Note> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(NoteCodec.read(data, versioned));
+            }
+            batches.accept(batch);
+            total += count;
+        }
+    }
+
+    public static long write(Stream<Note> notes, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long total = write(notes, channel);
+            channel.force(false);
+            return total;
+        }
+    }
+
+    public static long read(Path file, Consumer<List<Note>> batches) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel, batches);
+        }
+    }
+
+    /**
+     * Копирует файл архива в канал через transferTo: для файлов и сокетов данные
+     * передаются ядром без копирования в память процесса.
+     *
+     * @return число переданных байт
+     */
+    public static long transfer(Path file, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Принимает архив из канала в файл через transferFrom.
+     *
+     * @return число принятых байт
+     */
+    public static long receive(ReadableByteChannel source, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long received;
+            while ((received = channel.transferFrom(source, position, BLOCK_SIZE)) > 0) {
+                position += received;
+            }
+            channel.force(false);
+            return position;
+        }
+    }
+
+    private static void writeBlock(WritableByteChannel out, ByteBuffer block, int count, CRC32C crc) throws IOException {
+        int end = block.position();
+        ByteBuffer data = block.slice(BLOCK_HEADER, end - BLOCK_HEADER);
+        crc.reset();
+        crc.update(data);
+        block.putInt(0, count);
+        block.putInt(4, end - BLOCK_HEADER);
+        block.putInt(8, (int) crc.getValue());
+        writeFully(out, block);
+        block.clear().position(BLOCK_HEADER);
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Читает блок больше BLOCK_SIZE. Длина берется из заголовка блока, которому нельзя
+     * доверять до проверки контрольной суммы, поэтому буфер растет по мере прихода данных:
+     * поврежденная длина приводит к ошибке на конце канала, а не к выделению лишней памяти.
+     */
+    private static ByteBuffer readLarge(ReadableByteChannel in, int length) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(BLOCK_SIZE);
+        while (true) {
+            data.limit(Math.min(length, data.capacity()));
+            readFully(in, data);
+            if (data.position() == length) {
+                return data.flip();
+            }
+            ByteBuffer grown = ByteBuffer.allocate((int) Math.min(length, 2L * data.capacity()));
+            grown.put(data.flip());
+            data = grown;
+        }
+    }
+
+    private static void readFully(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new IOException("Note archive is truncated");
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.MyNote;
+
+/**
+ * Класс NoteChangeEvent - событие об изменении заметки, которое NoteChangePublisher
+ * передает подписчикам. Номера событий идут подряд с 0 в порядке публикации, поэтому
+ * подписчик, обработавший событие с номером n, продолжает чтение с номера n + 1.
+ */
+public final class NoteChangeEvent {
+    /** Вид изменения. */
+    public enum Type {
+        ADD,
+        UPDATE,
+        DELETE
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final int id;
+    private final ImmutableNote note;
+
+    NoteChangeEvent(long sequence, Type type, int id, ImmutableNote note) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.note = note;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /** Состояние заметки после изменения или null для удаления. */
+    public ImmutableNote getNote() {
+        return note;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteChangeEvent{sequence=" + sequence + ", type=" + type + ", id=" + id + "}";
+    }
+}
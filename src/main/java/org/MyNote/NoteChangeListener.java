@@ -0,0 +1,21 @@
+package org.MyNote;
+
+/**
+ * Интерфейс NoteChangeListener получает уведомления NoteServiceImpl об успешных изменениях
+ * заметок. Через него сервис поддерживает вторичные индексы в актуальном состоянии.
+ * Уведомления об одной заметке приходят по одному и в том же порядке, в каком изменения
+ * применены к хранилищу; уведомления о разных заметках могут приходить одновременно.
+ * После пакетной записи слушатель получает состояние заметки, прочитанное из хранилища
+ * в момент уведомления, поэтому последнее уведомление о заметке всегда совпадает с ее
+ * сохраненным состоянием.
+ */
+interface NoteChangeListener {
+    /** Заметка добавлена в хранилище. */
+    void onAdd(Note note);
+
+    /** Заметка в хранилище заменена новой версией. */
+    void onUpdate(Note note);
+
+    /** Заметка с указанным id удалена из хранилища. */
+    void onDelete(int id);
+}
@@ -0,0 +1,333 @@
+package org.MyNote;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс NoteChangePublisher - поток событий об изменениях заметок (CDC) для внешних систем.
+ * NoteServiceImpl сообщает ему о каждом успешном добавлении, обновлении и удалении,
+ * а он передает события подписчикам Flow.Subscriber с учетом их запросов (request).
+ *
+ * События хранятся в кольцевом буфере из capacity слотов, общем для всех подписчиков:
+ * писатель занимает номер атомарным счетчиком и записывает поля события в массивы слота,
+ * не создавая объекты события. Объект NoteChangeEvent создается при доставке в потоке
+ * executor. Каждый подписчик читает буфер со своей позиции, поэтому его отставание
+ * ограничено размером буфера. Писатель никогда не ждет подписчиков: подписчик, который
+ * отстал больше чем на capacity событий, получает onError с IllegalStateException
+ * и может подписаться заново с getOldestSequence.
+ *
+ * Порядок номеров - порядок публикации. NoteServiceImpl сообщает об изменении заметки
+ * под блокировкой ее полосы, поэтому события одной заметки идут в том порядке, в котором
+ * изменения применялись к хранилищу; события разных заметок могут чередоваться как угодно.
+ *
+ * close атомарно помечает счетчик номеров, поэтому каждое изменение, получившее номер
+ * до закрытия, будет доставлено подписчикам до onComplete, а получившее номер после
+ * закрытия не публикуется.
+ */
+public class NoteChangePublisher implements Flow.Publisher<NoteChangeEvent>, NoteChangeListener, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // Слот, в который писатель записывает поля события
+    private static final long WRITING = Long.MIN_VALUE;
+    // Старший бит claimed: поток закрыт, и писатель с таким номером ничего не публикует
+    private static final long CLOSED = Long.MIN_VALUE;
+    private static final ChangeSubscription[] NO_SUBSCRIPTIONS = new ChangeSubscription[0];
+
+    private final int capacity;
+    private final int mask;
+    // Номер события в слоте; пока слот не занят, номер меньше номера первого события этого слота
+    private final AtomicLongArray published;
+    private final NoteChangeEvent.Type[] types;
+    private final int[] ids;
+    private final ImmutableNote[] notes;
+    private final AtomicLong claimed = new AtomicLong();
+    private final Executor executor;
+    private volatile ChangeSubscription[] subscriptions = NO_SUBSCRIPTIONS;
+    // Номер, на котором поток событий закончился, или Long.MAX_VALUE, пока он открыт
+    private volatile long endSequence = Long.MAX_VALUE;
+
+    /**
+     * Создает публикатор с буфером на DEFAULT_CAPACITY событий, который доставляет события
+     * в общем ForkJoinPool.
+     */
+    public NoteChangePublisher() {
+        this(DEFAULT_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param capacity размер буфера, степень двойки
+     * @param executor выполняет доставку событий подписчикам
+     */
+    public NoteChangePublisher(int capacity, Executor executor) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, i - capacity);
+        }
+        this.types = new NoteChangeEvent.Type[capacity];
+        this.ids = new int[capacity];
+        this.notes = new ImmutableNote[capacity];
+        this.executor = executor;
+    }
+
+    @Override
+    public void onAdd(Note note) {
+        publish(NoteChangeEvent.Type.ADD, note.getId(), ImmutableNote.of(note));
+    }
+
+    @Override
+    public void onUpdate(Note note) {
+        publish(NoteChangeEvent.Type.UPDATE, note.getId(), ImmutableNote.of(note));
+    }
+
+    @Override
+    public void onDelete(int id) {
+        publish(NoteChangeEvent.Type.DELETE, id, null);
+    }
+
+    /** Номер, который получит следующее событие. */
+    public long getNextSequence() {
+        return head();
+    }
+
+    /** Номер самого старого события, которое еще хранится в буфере. */
+    public long getOldestSequence() {
+        return Math.max(0, head() - capacity);
+    }
+
+    /**
+     * Подписывает на события, опубликованные после подписки.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super NoteChangeEvent> subscriber) {
+        subscribe(subscriber, head());
+    }
+
+    /**
+     * Подписывает на события начиная с номера fromSequence. Если эти события уже вытеснены
+     * из буфера, подписчик сразу получает onError.
+     *
+     * @throws IllegalArgumentException если номер отрицательный или больше getNextSequence
+     */
+    public void subscribe(Flow.Subscriber<? super NoteChangeEvent> subscriber, long fromSequence) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null");
+        if (fromSequence < 0 || fromSequence > head()) {
+            throw new IllegalArgumentException("Sequence is outside of the change stream");
+        }
+        ChangeSubscription subscription = new ChangeSubscription(subscriber, fromSequence);
+        add(subscription);
+        subscriber.onSubscribe(subscription);
+        subscription.start();
+    }
+
+    /**
+     * Завершает поток событий: дальнейшие изменения не публикуются, а подписчики получают
+     * onComplete после доставки уже опубликованных событий.
+     */
+    @Override
+    public synchronized void close() {
+        long end = claimed.getAndAccumulate(CLOSED, (current, closed) -> current | closed);
+        if (end < 0) {
+            return;
+        }
+        endSequence = end;
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.schedule();
+        }
+    }
+
+    private void publish(NoteChangeEvent.Type type, int id, ImmutableNote note) {
+        // Номер и признак закрытия читаются одной атомарной операцией: изменение,
+        // одновременное с close, либо получает номер до конца потока, либо не публикуется
+        long sequence = claimed.getAndIncrement();
+        if (sequence < 0) {
+            return;
+        }
+        int index = (int) sequence & mask;
+        // Слот еще может записывать писатель предыдущего круга; подписчиков писатель не ждет
+        while (published.get(index) != sequence - capacity) {
+            Thread.onSpinWait();
+        }
+        published.set(index, WRITING);
+        VarHandle.releaseFence();
+        types[index] = type;
+        ids[index] = id;
+        notes[index] = note;
+        published.set(index, sequence);
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /** Номер, который получит следующее событие; после закрытия - номер конца потока. */
+    private long head() {
+        long sequence = claimed.get();
+        // Между пометкой счетчика и записью endSequence номер конца еще не записан
+        return sequence >= 0 ? sequence : Math.min(sequence & ~CLOSED, endSequence);
+    }
+
+    private synchronized void add(ChangeSubscription subscription) {
+        ChangeSubscription[] current = subscriptions;
+        ChangeSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscriptions = updated;
+    }
+
+    private synchronized void remove(ChangeSubscription subscription) {
+        ChangeSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                ChangeSubscription[] updated = new ChangeSubscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Подписка с собственной позицией в буфере и счетчиком запрошенных событий.
+     * Доставка выполняется задачей в executor; счетчик wip гарантирует, что подписчика
+     * в каждый момент вызывает не больше одного потока. До возврата из onSubscribe wip
+     * удерживается start, поэтому request, вызванный внутри onSubscribe, не запускает
+     * доставку параллельно с ним.
+     */
+    private final class ChangeSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super NoteChangeEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Единица, занятая до start, не дает запустить доставку во время onSubscribe
+        private final AtomicInteger wip = new AtomicInteger(1);
+        private volatile boolean cancelled;
+        private volatile boolean invalidRequest;
+        // Читается и меняется только в задаче доставки
+        private long next;
+
+        ChangeSubscription(Flow.Subscriber<? super NoteChangeEvent> subscriber, long next) {
+            this.subscriber = subscriber;
+            this.next = next;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = true;
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+        }
+
+        /** Вызывается писателем после публикации: без запроса доставлять нечего. */
+        void signal() {
+            if (demand.get() > 0) {
+                schedule();
+            }
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        /** Вызывается после onSubscribe: запускает доставку, отложенную с создания подписки. */
+        void start() {
+            executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!drain()) {
+                    // Подписка завершена, wip не сбрасывается, и задача больше не запускается
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Доставляет доступные события в пределах запроса.
+         *
+         * @return false, если подписка завершена
+         */
+        private boolean drain() {
+            if (cancelled) {
+                return false;
+            }
+            if (invalidRequest) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested count must be positive"));
+                return false;
+            }
+            long requested = demand.get();
+            long emitted = 0;
+            while (true) {
+                if (cancelled) {
+                    return false;
+                }
+                long sequence = next;
+                if (sequence >= endSequence) {
+                    cancel();
+                    subscriber.onComplete();
+                    return false;
+                }
+                if (emitted == requested) {
+                    break;
+                }
+                int index = (int) sequence & mask;
+                if (published.get(index) != sequence) {
+                    if (head() - sequence > capacity) {
+                        return overrun(sequence);
+                    }
+                    // Событие еще записывается; писатель снова вызовет signal после публикации
+                    break;
+                }
+                NoteChangeEvent.Type type = types[index];
+                int id = ids[index];
+                ImmutableNote note = notes[index];
+                VarHandle.acquireFence();
+                if (published.get(index) != sequence) {
+                    return overrun(sequence);
+                }
+                next = sequence + 1;
+                emitted++;
+                try {
+                    subscriber.onNext(new NoteChangeEvent(sequence, type, id, note));
+                } catch (Throwable e) {
+                    cancel();
+                    return false;
+                }
+            }
+            if (emitted != 0 && requested != Long.MAX_VALUE) {
+                demand.addAndGet(-emitted);
+            }
+            return true;
+        }
+
+        private boolean overrun(long sequence) {
+            cancel();
+            subscriber.onError(new IllegalStateException("Subscriber fell behind the change stream at sequence " + sequence));
+            return false;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.MyNote;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Класс NoteCodec - двоичное представление заметки для файловых хранилищ.
+ * Формат: id (int), временная метка в миллисекундах эпохи (long, Note.NO_TIMESTAMP для null),
+ * версия (long), затем заголовок и содержимое в UTF-8 с префиксом длины (int, -1 для null).
+ * Файлы первой версии формата не содержат поля версии; их читают методы с versioned = false.
+ * Текст заметки уже хранится в UTF-8, поэтому кодирование и декодирование только
+ * копируют байты.
+ */
+final class NoteCodec {
+    private NoteCodec() {
+    }
+
+    /** Размер закодированной заметки в байтах. */
+    static int encodedSize(Note note) {
+        return encodedSize(note.titleBytes(), note.contentBytes());
+    }
+
+    static int encodedSize(ImmutableNote note) {
+        return encodedSize(note.titleBytes(), note.contentBytes());
+    }
+
+    static void write(ByteBuffer buffer, Note note) {
+        write(buffer, note.getId(), note.getTimestampMillis(), note.getVersion(), note.titleBytes(), note.contentBytes());
+    }
+
+    /** Записывает заметку с версией version вместо ее собственной. */
+    static void write(ByteBuffer buffer, Note note, long version) {
+        write(buffer, note.getId(), note.getTimestampMillis(), version, note.titleBytes(), note.contentBytes());
+    }
+
+    static void write(ByteBuffer buffer, ImmutableNote note) {
+        write(buffer, note.getId(), note.getTimestampMillis(), note.getVersion(), note.titleBytes(), note.contentBytes());
+    }
+
+    static Note read(ByteBuffer buffer) {
+        return read(buffer, true);
+    }
+
+    /**
+     * @param versioned false для записей первой версии формата; версия такой заметки равна 0
+     */
+    static Note read(ByteBuffer buffer, boolean versioned) {
+        int id = buffer.getInt();
+        long timestamp = buffer.getLong();
+        long version = versioned ? buffer.getLong() : 0;
+        byte[] title = getText(buffer);
+        byte[] content = getText(buffer);
+        return new Note(id, title, content, timestamp, version);
+    }
+
+    static ImmutableNote readValue(ByteBuffer buffer, boolean versioned) {
+        int id = buffer.getInt();
+        long timestamp = buffer.getLong();
+        long version = versioned ? buffer.getLong() : 0;
+        byte[] title = getText(buffer);
+        byte[] content = getText(buffer);
+        return new ImmutableNote(id, title, content, timestamp, version);
+    }
+
+    /** Версия заметки, записанной в buffer с позиции offset, без чтения текста. */
+    static long versionAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + 4 + 8);
+    }
+
+    private static int encodedSize(byte[] title, byte[] content) {
+        return 4 + 8 + 8 + 4 + length(title) + 4 + length(content);
+    }
+
+    private static void write(ByteBuffer buffer, int id, long timestamp, long version, byte[] title, byte[] content) {
+        buffer.putInt(id);
+        buffer.putLong(timestamp);
+        buffer.putLong(version);
+        putText(buffer, title);
+        putText(buffer, content);
+    }
+
+    private static int length(byte[] text) {
+        return text == null ? 0 : text.length;
+    }
+
+    private static void putText(ByteBuffer buffer, byte[] text) {
+        if (text == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(text.length);
+            buffer.put(text);
+        }
+    }
+
+    private static byte[] getText(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] text = new byte[length];
+        buffer.get(text);
+        return text;
+    }
+}
@@ -0,0 +1,161 @@
+package org.MyNote;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Класс NoteIdSequence - генератор идентификаторов заметок для NoteServiceImpl.
+ * Блоки из blockSize подряд идущих id арендуются у общего атомарного счетчика и лежат
+ * в нескольких полосах (STRIPES на процессор); поток выдает id из блока своей полосы,
+ * выбранной по id потока, под блокировкой этой полосы. Потоки обращаются к общему счетчику
+ * один раз на блок и почти не конкурируют друг с другом. Блоки не привязаны к потокам,
+ * поэтому короткоживущие и виртуальные потоки не теряют неиспользованные остатки:
+ * без сохранения в файл пропуски не превышают полос, умноженных на blockSize.
+ * Идентификаторы уникальны, но не монотонны между потоками.
+ *
+ * Последовательность, открытая через open, хранит в файле верхнюю границу выданных id.
+ * Граница записывается на диск с запасом в RESERVE_BLOCKS блоков до того, как id из нового
+ * блока будут выданы, поэтому после перезапуска последовательность продолжается с границы
+ * и не повторяет id, выданные до сбоя.
+ */
+public final class NoteIdSequence {
+    /** На сколько блоков вперед сохраняется граница при каждой записи файла. */
+    public static final int RESERVE_BLOCKS = 1024;
+
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final AtomicLong next;
+    private final int blockSize;
+    private final Block[] blocks = new Block[STRIPES];
+    private final Path file;
+    private final ReentrantLock persistLock = new ReentrantLock();
+    private volatile long highWaterMark;
+
+    /**
+     * Создает последовательность в памяти, начиная с 1, с блоками по 64 id.
+     */
+    public NoteIdSequence() {
+        this(1, 64);
+    }
+
+    /**
+     * @param firstId   первый выдаваемый id
+     * @param blockSize число id, которое полоса арендует за одно обращение к общему счетчику
+     */
+    public NoteIdSequence(int firstId, int blockSize) {
+        this(firstId, blockSize, null);
+    }
+
+    private NoteIdSequence(long firstId, int blockSize, Path file) {
+        if (firstId <= 0) {
+            throw new IllegalArgumentException("First ID must be positive");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.next = new AtomicLong(firstId);
+        this.blockSize = blockSize;
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new Block();
+        }
+        this.file = file;
+        this.highWaterMark = firstId;
+    }
+
+    /**
+     * Открывает сохраняемую последовательность. Если файла нет, последовательность
+     * начинается с 1.
+     *
+     * @param file файл верхней границы; рядом создается временный файл с суффиксом .tmp
+     */
+    public static NoteIdSequence open(Path file, int blockSize) throws IOException {
+        long firstId = 1;
+        if (Files.exists(file)) {
+            ByteBuffer mark = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (mark.remaining() != Long.BYTES) {
+                throw new IOException("Corrupted ID sequence file " + file);
+            }
+            firstId = mark.getLong();
+        }
+        return new NoteIdSequence(firstId, blockSize, file);
+    }
+
+    /**
+     * Возвращает следующий свободный id.
+     *
+     * @throws IllegalStateException если положительные значения int закончились
+     * @throws UncheckedIOException  если не удалось сохранить новую границу
+     */
+    public int nextId() {
+        Block block = blocks[stripe(Thread.currentThread().threadId())];
+        block.lock.lock();
+        try {
+            if (block.next == block.limit) {
+                lease(block);
+            }
+            return (int) block.next++;
+        } finally {
+            block.lock.unlock();
+        }
+    }
+
+    private static int stripe(long threadId) {
+        long h = threadId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (STRIPES - 1);
+    }
+
+    private void lease(Block block) {
+        long start = next.getAndAdd(blockSize);
+        long end = Math.min(start + blockSize, Integer.MAX_VALUE + 1L);
+        if (start >= end) {
+            throw new IllegalStateException("Note ID space is exhausted");
+        }
+        if (file != null && end > highWaterMark) {
+            persistUpTo(end);
+        }
+        block.next = start;
+        block.limit = end;
+    }
+
+    private void persistUpTo(long end) {
+        persistLock.lock();
+        try {
+            if (end <= highWaterMark) {
+                return;
+            }
+            long mark = Math.min(end + (long) blockSize * RESERVE_BLOCKS, Integer.MAX_VALUE + 1L);
+            Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(mark).flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            highWaterMark = mark;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            persistLock.unlock();
+        }
+    }
+
+    /** Арендованный полосой полуинтервал [next, limit); поля защищены lock. */
+    private static final class Block {
+        final ReentrantLock lock = new ReentrantLock();
+        long next;
+        long limit;
+    }
+}
@@ -0,0 +1,802 @@
+package org.MyNote;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Класс NoteImporter - массовая загрузка заметок из выгрузок в формате CSV или JSON Lines.
+ *
+ * Файл читается через FileChannel в буфер и делится на записи по переводам строк (в CSV
+ * перевод строки внутри кавычек записи не заканчивает). Записи собираются в пакеты
+ * по batchSize, пакеты разбираются и проверяются по правилам addNote параллельно
+ * в parallelism потоках, а корректные заметки каждого пакета записываются в хранилище
+ * одним вызовом addNotes в порядке следования пакетов в файле. Одновременно в памяти
+ * находится не больше 2 * parallelism пакетов, поэтому расход памяти не зависит от размера
+ * файла. Временная метка из выгрузки сохраняется; заметке без метки ставится время загрузки.
+ *
+ * После записи каждого пакета Listener получает Progress с позицией в файле, до которой
+ * все записи обработаны. Если загрузка прервалась исключением, ее продолжают с последнего
+ * полученного Progress: записи незавершенного пакета загружаются повторно и заменяют
+ * уже записанные заметки с теми же id.
+ *
+ * CSV начинается со строки заголовка с колонками id, title, content и необязательной
+ * timestamp в любом порядке; остальные колонки пропускаются. Строка JSON Lines - объект
+ * с полями id (число), title, content и необязательным timestamp; остальные поля
+ * пропускаются. Метка времени - LocalDateTime в формате ISO-8601 или число миллисекунд
+ * от начала эпохи. Пустые строки пропускаются.
+ */
+public final class NoteImporter {
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Пакет заканчивается досрочно, если его записи заняли столько байт
+    private static final int MAX_BATCH_BYTES = 1 << 23;
+    private static final int MAX_RECORD_SIZE = 1 << 26;
+
+    /** Формат файла выгрузки. */
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    /**
+     * Получает ход загрузки. Методы вызываются в потоке, вызвавшем importFile,
+     * в порядке записей файла.
+     */
+    public interface Listener {
+        /** Пакет записан в хранилище. */
+        default void onProgress(Progress progress) {
+        }
+
+        /** Запись, начинающаяся в строке line, не загружена по причине reason. */
+        default void onRejected(long line, String reason) {
+        }
+    }
+
+    /**
+     * Состояние загрузки после очередного пакета; передается в importFile, чтобы продолжить
+     * загрузку с этого места.
+     */
+    public static final class Progress {
+        /** Начало файла. */
+        public static final Progress START = new Progress(0, 1, 0, 0);
+
+        private final long position;
+        private final long line;
+        private final long imported;
+        private final long rejected;
+
+        Progress(long position, long line, long imported, long rejected) {
+            this.position = position;
+            this.line = line;
+            this.imported = imported;
+            this.rejected = rejected;
+        }
+
+        /** Позиция в файле в байтах, до которой все записи обработаны. */
+        public long getPosition() {
+            return position;
+        }
+
+        /** Номер строки, с которой начинается первая необработанная запись. */
+        public long getLine() {
+            return line;
+        }
+
+        /** Число загруженных заметок. */
+        public long getImported() {
+            return imported;
+        }
+
+        /** Число отклоненных записей. */
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "Progress{position=" + position + ", line=" + line + ", imported=" + imported
+                    + ", rejected=" + rejected + "}";
+        }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private final NoteServiceImpl noteService;
+    private final int batchSize;
+    private final int parallelism;
+
+    /**
+     * Создает загрузчик с пакетами по DEFAULT_BATCH_SIZE записей и потоком разбора
+     * на каждый процессор.
+     */
+    public NoteImporter(NoteServiceImpl noteService) {
+        this(noteService, DEFAULT_BATCH_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param batchSize   наибольшее число записей в пакете
+     * @param parallelism число потоков разбора и проверки
+     */
+    public NoteImporter(NoteServiceImpl noteService, int batchSize, int parallelism) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.noteService = noteService;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Загружает файл с начала.
+     *
+     * @param listener получатель хода загрузки или null
+     * @return итог загрузки
+     */
+    public Progress importFile(Path file, Format format, Listener listener) throws IOException {
+        return importFile(file, format, Progress.START, listener);
+    }
+
+    /**
+     * Загружает файл, начиная с места, описанного resumeFrom.
+     *
+     * @param resumeFrom Progress.START или последний Progress прерванной загрузки этого файла
+     * @param listener   получатель хода загрузки или null
+     * @return итог загрузки с учетом записей, обработанных до resumeFrom
+     */
+    public Progress importFile(Path file, Format format, Progress resumeFrom, Listener listener) throws IOException {
+        if (format == null) {
+            throw new IllegalArgumentException("Format cannot be null");
+        }
+        if (resumeFrom == null) {
+            throw new IllegalArgumentException("Progress cannot be null");
+        }
+        Listener progressListener = listener == null ? NO_LISTENER : listener;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (resumeFrom.position > channel.size()) {
+                throw new IllegalArgumentException("Resume position is beyond the end of file");
+            }
+            boolean csv = format == Format.CSV;
+            RecordReader reader = new RecordReader(channel, csv, 0);
+            long line = resumeFrom.line;
+            int[] columns = null;
+            if (csv) {
+                if (!reader.next()) {
+                    throw new IllegalArgumentException("CSV file has no header");
+                }
+                columns = columns(reader.record());
+                if (resumeFrom.position == 0) {
+                    line += 1 + reader.newlines;
+                }
+            }
+            if (resumeFrom.position > 0) {
+                reader = new RecordReader(channel, csv, resumeFrom.position);
+            }
+            return run(reader, columns, line, resumeFrom, progressListener);
+        }
+    }
+
+    /**
+     * Читает пакеты и отдает их на разбор; готовые пакеты записываются по порядку.
+     */
+    private Progress run(RecordReader reader, int[] columns, long line, Progress progress, Listener listener)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "note-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Parsed>> window = new ArrayDeque<>();
+        try {
+            while (true) {
+                Batch batch = readBatch(reader, line);
+                if (batch == null) {
+                    break;
+                }
+                line = batch.endLine;
+                if (window.size() == 2 * parallelism) {
+                    progress = commit(await(window.poll()), progress, listener);
+                }
+                int[] batchColumns = columns;
+                window.add(executor.submit(() -> parse(batch, batchColumns)));
+            }
+            while (!window.isEmpty()) {
+                progress = commit(await(window.poll()), progress, listener);
+            }
+            return progress;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return очередной пакет или null в конце файла
+     */
+    private Batch readBatch(RecordReader reader, long firstLine) throws IOException {
+        Batch batch = null;
+        long line = firstLine;
+        while ((batch == null || batch.count < batchSize && batch.size < MAX_BATCH_BYTES) && reader.next()) {
+            if (batch == null) {
+                batch = new Batch(firstLine, Math.min(batchSize, 1024));
+            }
+            batch.add(reader.buffer.array(), reader.start, reader.end);
+            line += 1 + reader.newlines;
+            batch.endPosition = reader.position;
+            batch.endLine = line;
+        }
+        return batch;
+    }
+
+    /** Разбирает и проверяет пакет; выполняется в потоке разбора. */
+    private Parsed parse(Batch batch, int[] columns) {
+        List<Note> notes = new ArrayList<>(batch.count);
+        long[] noteLines = new long[batch.count];
+        List<Rejection> rejections = new ArrayList<>();
+        long line = batch.firstLine;
+        int from = 0;
+        for (int i = 0; i < batch.count; i++) {
+            int to = batch.ends[i];
+            if (!isBlank(batch.data, from, to)) {
+                String record = new String(batch.data, from, to - from, StandardCharsets.UTF_8);
+                try {
+                    Note note = columns == null ? new JsonReader(record).readNote() : parseCsv(record, columns);
+                    noteLines[notes.size()] = line;
+                    notes.add(note);
+                } catch (IllegalArgumentException e) {
+                    rejections.add(new Rejection(line, e.getMessage()));
+                }
+            }
+            line += 1 + count(batch.data, from, to, (byte) '\n');
+            from = to;
+        }
+        BatchResult validation = noteService.validateNotes(notes);
+        List<Note> valid = new ArrayList<>(validation.getSuccessCount());
+        if (validation.isAllSuccessful()) {
+            valid.addAll(notes);
+        } else {
+            for (int i = 0; i < notes.size(); i++) {
+                if (validation.isSuccess(i)) {
+                    valid.add(notes.get(i));
+                } else {
+                    rejections.add(new Rejection(noteLines[i], validation.getError(i)));
+                }
+            }
+            rejections.sort(Comparator.comparingLong(rejection -> rejection.line));
+        }
+        return new Parsed(batch, valid, rejections);
+    }
+
+    private Progress commit(Parsed parsed, Progress progress, Listener listener) {
+        if (!parsed.notes.isEmpty()) {
+            noteService.addValidatedNotes(parsed.notes);
+        }
+        for (Rejection rejection : parsed.rejections) {
+            listener.onRejected(rejection.line, rejection.reason);
+        }
+        Progress next = new Progress(parsed.batch.endPosition, parsed.batch.endLine,
+                progress.imported + parsed.notes.size(), progress.rejected + parsed.rejections.size());
+        listener.onProgress(next);
+        return next;
+    }
+
+    private static Parsed await(Future<Parsed> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** Номера колонок id, title, content и timestamp по строке заголовка CSV; -1 - колонки нет. */
+    private static int[] columns(String header) {
+        List<String> names = splitCsv(header);
+        if (names == null) {
+            throw new IllegalArgumentException("Malformed CSV header");
+        }
+        String[] known = {"id", "title", "content", "timestamp"};
+        int[] columns = new int[known.length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = 0; j < known.length; j++) {
+                if (names.get(i).trim().equalsIgnoreCase(known[j])) {
+                    columns[j] = i;
+                }
+            }
+        }
+        if (columns[0] < 0 || columns[1] < 0 || columns[2] < 0) {
+            throw new IllegalArgumentException("CSV header must contain id, title and content columns");
+        }
+        return columns;
+    }
+
+    private static Note parseCsv(String record, int[] columns) {
+        List<String> fields = splitCsv(record);
+        if (fields == null || fields.size() <= Math.max(columns[0], Math.max(columns[1], columns[2]))) {
+            throw new IllegalArgumentException("Malformed CSV record");
+        }
+        int id = parseId(fields.get(columns[0]).trim());
+        long timestamp = Note.NO_TIMESTAMP;
+        if (columns[3] >= 0 && columns[3] < fields.size() && !fields.get(columns[3]).isBlank()) {
+            timestamp = parseTimestamp(fields.get(columns[3]).trim());
+        }
+        return new Note(id, Note.encode(fields.get(columns[1])), Note.encode(fields.get(columns[2])), timestamp);
+    }
+
+    /**
+     * Делит запись CSV на поля по RFC 4180: поле в кавычках может содержать запятые,
+     * переводы строк и удвоенные кавычки.
+     *
+     * @return поля или null, если кавычки расставлены неверно
+     */
+    private static List<String> splitCsv(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < record.length() && record.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i == record.length()) {
+                        return null;
+                    }
+                    char c = record.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < record.length() && record.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < record.length() && record.charAt(i) != ',') {
+                    return null;
+                }
+            } else {
+                int end = record.indexOf(',', i);
+                end = end < 0 ? record.length() : end;
+                field.append(record, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            if (i == record.length()) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    private static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid id");
+        }
+    }
+
+    private static long parseTimestamp(String text) {
+        try {
+            if (isInteger(text)) {
+                return Long.parseLong(text);
+            }
+            return Note.toMillis(LocalDateTime.parse(text));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid timestamp");
+        }
+    }
+
+    private static boolean isInteger(String text) {
+        int start = text.startsWith("-") ? 1 : 0;
+        if (start == text.length()) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] != ' ' && data[i] != '\t' && data[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int count(byte[] data, int from, int to, byte value) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Читает файл по записям через буфер, который при необходимости растет до
+     * MAX_RECORD_SIZE. Текущая запись лежит в buffer между start и end без перевода строки.
+     */
+    private static final class RecordReader {
+        private final FileChannel channel;
+        private final boolean csv;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private boolean eof;
+        // Позиция в файле после текущей записи
+        long position;
+        int start;
+        int end;
+        // Число переводов строк внутри текущей записи
+        int newlines;
+
+        RecordReader(FileChannel channel, boolean csv, long position) throws IOException {
+            this.channel = channel.position(position);
+            this.csv = csv;
+            this.position = position;
+            buffer.flip();
+        }
+
+        /**
+         * @return false в конце файла
+         */
+        boolean next() throws IOException {
+            boolean first = position == 0;
+            int scan = buffer.position();
+            boolean quoted = false;
+            newlines = 0;
+            while (true) {
+                byte[] data = buffer.array();
+                int limit = buffer.limit();
+                for (; scan < limit; scan++) {
+                    byte b = data[scan];
+                    if (b == '"' && csv) {
+                        quoted = !quoted;
+                    } else if (b == '\n') {
+                        if (!quoted) {
+                            take(scan, scan + 1, first);
+                            return true;
+                        }
+                        newlines++;
+                    }
+                }
+                if (eof) {
+                    if (buffer.position() == limit) {
+                        return false;
+                    }
+                    // Последняя запись файла без перевода строки
+                    take(limit, limit, first);
+                    return true;
+                }
+                int scanned = scan - buffer.position();
+                buffer.compact();
+                if (!buffer.hasRemaining()) {
+                    if (buffer.capacity() >= MAX_RECORD_SIZE) {
+                        throw new IllegalStateException("Record is too large");
+                    }
+                    ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() << 1);
+                    buffer.flip();
+                    grown.put(buffer);
+                    buffer = grown;
+                }
+                if (channel.read(buffer) < 0) {
+                    eof = true;
+                }
+                buffer.flip();
+                scan = scanned;
+            }
+        }
+
+        String record() {
+            return new String(buffer.array(), start, end - start, StandardCharsets.UTF_8);
+        }
+
+        private void take(int recordEnd, int next, boolean first) {
+            start = buffer.position();
+            end = recordEnd;
+            if (end > start && buffer.array()[end - 1] == '\r') {
+                end--;
+            }
+            // Метка порядка байтов UTF-8 в начале файла не относится к данным
+            byte[] data = buffer.array();
+            if (first && end - start >= 3
+                    && data[start] == (byte) 0xEF && data[start + 1] == (byte) 0xBB && data[start + 2] == (byte) 0xBF) {
+                start += 3;
+            }
+            position += next - buffer.position();
+            buffer.position(next);
+        }
+    }
+
+    /** Записи одного пакета, скопированные подряд в data; ends - концы записей. */
+    private static final class Batch {
+        final long firstLine;
+        byte[] data = new byte[1 << 16];
+        int size;
+        int[] ends;
+        int count;
+        long endPosition;
+        long endLine;
+
+        Batch(long firstLine, int expectedCount) {
+            this.firstLine = firstLine;
+            this.ends = new int[expectedCount];
+        }
+
+        void add(byte[] source, int from, int to) {
+            int length = to - from;
+            if (size + length > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + length, data.length << 1));
+            }
+            System.arraycopy(source, from, data, size, length);
+            size += length;
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count << 1);
+            }
+            ends[count++] = size;
+        }
+    }
+
+    private static final class Parsed {
+        final Batch batch;
+        final List<Note> notes;
+        final List<Rejection> rejections;
+
+        Parsed(Batch batch, List<Note> notes, List<Rejection> rejections) {
+            this.batch = batch;
+            this.notes = notes;
+            this.rejections = rejections;
+        }
+    }
+
+    private static final class Rejection {
+        final long line;
+        final String reason;
+
+        Rejection(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * Разбор одной строки JSON Lines. Понимает полный синтаксис JSON, но значения
+     * читает только у полей заметки; остальные поля пропускаются.
+     */
+    private static final class JsonReader {
+        private final String text;
+        private int index;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Note readNote() {
+            Integer id = null;
+            String title = null;
+            String content = null;
+            long timestamp = Note.NO_TIMESTAMP;
+            skipSpace();
+            expect('{');
+            skipSpace();
+            if (!consume('}')) {
+                do {
+                    skipSpace();
+                    String key = readString();
+                    skipSpace();
+                    expect(':');
+                    skipSpace();
+                    switch (key) {
+                        case "id":
+                            id = parseId(readNumber());
+                            break;
+                        case "title":
+                            title = readNullableString();
+                            break;
+                        case "content":
+                            content = readNullableString();
+                            break;
+                        case "timestamp":
+                            timestamp = readTimestamp();
+                            break;
+                        default:
+                            skipValue();
+                    }
+                    skipSpace();
+                } while (consume(','));
+                expect('}');
+            }
+            skipSpace();
+            if (index != text.length()) {
+                throw malformed();
+            }
+            if (id == null) {
+                throw new IllegalArgumentException("Missing id");
+            }
+            return new Note(id, Note.encode(title), Note.encode(content), timestamp);
+        }
+
+        private long readTimestamp() {
+            if (peek() == '"') {
+                return parseTimestamp(readString());
+            }
+            if (consumeLiteral("null")) {
+                return Note.NO_TIMESTAMP;
+            }
+            return parseTimestamp(readNumber());
+        }
+
+        private String readNullableString() {
+            return consumeLiteral("null") ? null : readString();
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (index == text.length()) {
+                    throw malformed();
+                }
+                char c = text.charAt(index++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (index == text.length()) {
+                    throw malformed();
+                }
+                char escaped = text.charAt(index++);
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        value.append(escaped);
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (index + 4 > text.length()) {
+                            throw malformed();
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(index, index + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw malformed();
+                        }
+                        index += 4;
+                        break;
+                    default:
+                        throw malformed();
+                }
+            }
+        }
+
+        private String readNumber() {
+            int start = index;
+            while (index < text.length() && "+-0123456789.eE".indexOf(text.charAt(index)) >= 0) {
+                index++;
+            }
+            if (start == index) {
+                throw malformed();
+            }
+            return text.substring(start, index);
+        }
+
+        private void skipValue() {
+            char c = peek();
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                index++;
+                skipSpace();
+                if (consume(close)) {
+                    return;
+                }
+                do {
+                    skipSpace();
+                    if (close == '}') {
+                        readString();
+                        skipSpace();
+                        expect(':');
+                        skipSpace();
+                    }
+                    skipValue();
+                    skipSpace();
+                } while (consume(','));
+                expect(close);
+            } else if (!consumeLiteral("true") && !consumeLiteral("false") && !consumeLiteral("null")) {
+                readNumber();
+            }
+        }
+
+        private boolean consumeLiteral(String literal) {
+            if (text.startsWith(literal, index)) {
+                index += literal.length();
+                return true;
+            }
+            return false;
+        }
+
+        private char peek() {
+            if (index == text.length()) {
+                throw malformed();
+            }
+            return text.charAt(index);
+        }
+
+        private boolean consume(char c) {
+            if (index < text.length() && text.charAt(index) == c) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw malformed();
+            }
+        }
+
+        private void skipSpace() {
+            while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+                index++;
+            }
+        }
+
+        private static IllegalArgumentException malformed() {
+            return new IllegalArgumentException("Malformed JSON record");
+        }
+    }
+}
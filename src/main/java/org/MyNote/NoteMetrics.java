@@ -0,0 +1,204 @@
+package org.MyNote;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс NoteMetrics - метрики операций с заметками: гистограмма задержек и число ошибок
+ * по каждой операции, а также число отказов проверки по причинам (сообщениям отказа).
+ * Его заполняют MetricsNoteRepository и NoteServiceImpl.setMetrics; запись не блокируется
+ * и не выделяет память, поэтому метрики можно не выключать в рабочей среде.
+ *
+ * registerMBeans публикует метрики в платформенном MBeanServer: по одному
+ * NoteOperationMXBean на операцию и NoteValidationMXBean с отказами проверки.
+ */
+public final class NoteMetrics {
+    public enum Operation {
+        ADD_NOTE,
+        ADD_NOTES,
+        UPDATE_NOTE,
+        UPDATE_NOTES,
+        DELETE_NOTE,
+        DELETE_NOTES,
+        GET_NOTE,
+        GET_NOTES_BY_IDS,
+        GET_ALL_NOTES,
+        STREAM_NOTES,
+        GET_NOTES_PAGE,
+        EXPORT_NOTES,
+        IMPORT_NOTES,
+        QUERY_NOTES
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder[] errors = new LongAdder[OPERATIONS.length];
+    // Причины отказа - конечный набор сообщений проверки, поэтому карта не растет без предела
+    private final Map<String, LongAdder> validationFailures = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public NoteMetrics() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    /** Записывает задержку завершенной операции. */
+    public void record(Operation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    /** Учитывает операцию, завершившуюся исключением. */
+    public void recordError(Operation operation) {
+        errors[operation.ordinal()].increment();
+    }
+
+    /** Учитывает отказ проверки с указанным сообщением. */
+    public void recordValidationFailure(String reason) {
+        LongAdder counter = validationFailures.get(reason);
+        if (counter == null) {
+            counter = validationFailures.computeIfAbsent(reason, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public long getErrorCount(Operation operation) {
+        return errors[operation.ordinal()].sum();
+    }
+
+    /** Среднее число операций в секунду с момента создания метрик. */
+    public double getThroughput(Operation operation) {
+        double seconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        return seconds <= 0 ? 0 : latencies[operation.ordinal()].getCount() / seconds;
+    }
+
+    /** Число отказов проверки по сообщениям, упорядоченное по сообщению. */
+    public Map<String, Long> getValidationFailures() {
+        Map<String, Long> failures = new TreeMap<>();
+        validationFailures.forEach((reason, counter) -> failures.put(reason, counter.sum()));
+        return failures;
+    }
+
+    /**
+     * Публикует метрики в платформенном MBeanServer под именами
+     * org.MyNote:type=NoteMetrics,name=&lt;name&gt;,operation=&lt;операция&gt; и
+     * org.MyNote:type=NoteMetrics,name=&lt;name&gt;,operation=VALIDATION.
+     *
+     * @throws IllegalStateException если имена уже заняты или MBeanServer отклонил регистрацию
+     */
+    public synchronized void registerMBeans(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Operation operation : OPERATIONS) {
+                register(server, name, operation.name(),
+                        new StandardMBean(new OperationBean(operation), NoteOperationMXBean.class, true));
+            }
+            register(server, name, "VALIDATION",
+                    new StandardMBean(new ValidationBean(), NoteValidationMXBean.class, true));
+        } catch (JMException e) {
+            unregisterMBeans();
+            throw new IllegalStateException("Cannot register note metrics MBeans", e);
+        }
+    }
+
+    /** Снимает с публикации все MBean, зарегистрированные registerMBeans. */
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registered) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                // MBean уже снят с публикации
+            }
+        }
+        registered.clear();
+    }
+
+    private void register(MBeanServer server, String name, String operation, StandardMBean bean) throws JMException {
+        ObjectName objectName = new ObjectName("org.MyNote:type=NoteMetrics,name=" + ObjectName.quote(name)
+                + ",operation=" + operation);
+        server.registerMBean(bean, objectName);
+        registered.add(objectName);
+    }
+
+    private final class OperationBean implements NoteOperationMXBean {
+        private final Operation operation;
+
+        OperationBean(Operation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public long getCount() {
+            return getLatency(operation).getCount();
+        }
+
+        @Override
+        public long getErrorCount() {
+            return NoteMetrics.this.getErrorCount(operation);
+        }
+
+        @Override
+        public double getThroughput() {
+            return NoteMetrics.this.getThroughput(operation);
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return getLatency(operation).getMeanNanos() / 1_000;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return getLatency(operation).valueAtQuantile(0.5) / 1_000.0;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return getLatency(operation).valueAtQuantile(0.99) / 1_000.0;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return getLatency(operation).valueAtQuantile(0.999) / 1_000.0;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return getLatency(operation).getMaxNanos() / 1_000.0;
+        }
+    }
+
+    private final class ValidationBean implements NoteValidationMXBean {
+        @Override
+        public long getFailureCount() {
+            long count = 0;
+            for (LongAdder counter : validationFailures.values()) {
+                count += counter.sum();
+            }
+            return count;
+        }
+
+        @Override
+        public Map<String, Long> getFailuresByReason() {
+            return getValidationFailures();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.MyNote;
+
+/**
+ * Интерфейс NoteOperationMXBean - JMX-представление метрик одной операции NoteMetrics.
+ * Задержки - в микросекундах, пропускная способность - в операциях в секунду.
+ */
+public interface NoteOperationMXBean {
+    long getCount();
+
+    long getErrorCount();
+
+    double getThroughput();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
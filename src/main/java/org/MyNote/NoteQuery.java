@@ -0,0 +1,212 @@
+package org.MyNote;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Класс NoteQuery - запрос на выборку заметок для NoteServiceImpl.query.
+ * Запрос собирается построителем из условий, которые выполняются вместе (AND),
+ * порядка сортировки и наибольшего числа результатов.
+ *
+ * Текстовые условия сравнивают байты UTF-8 без декодирования строк и учитывают регистр:
+ * префикс и подстрока в UTF-8 совпадают с префиксом и подстрокой исходного текста.
+ * Границы времени округляются вверх до миллисекунды, как в NoteTimestampIndex;
+ * заметки без временной метки условиям по времени не удовлетворяют.
+ */
+public final class NoteQuery {
+    /** Порядок результатов запроса. */
+    public enum Order {
+        ID_ASCENDING(Comparator.comparingInt(ImmutableNote::getId)),
+        ID_DESCENDING(Comparator.comparingInt(ImmutableNote::getId).reversed()),
+        OLDEST_FIRST(Comparator.comparingLong(ImmutableNote::getTimestampMillis)
+                .thenComparingInt(ImmutableNote::getId)),
+        NEWEST_FIRST(Comparator.comparingLong(ImmutableNote::getTimestampMillis)
+                .thenComparingInt(ImmutableNote::getId).reversed());
+
+        private final Comparator<ImmutableNote> comparator;
+
+        Order(Comparator<ImmutableNote> comparator) {
+            this.comparator = comparator;
+        }
+
+        public Comparator<ImmutableNote> comparator() {
+            return comparator;
+        }
+    }
+
+    private final byte[] titlePrefix;
+    private final byte[] titleInfix;
+    private final byte[] contentInfix;
+    private final long fromMillis;
+    private final long toMillis;
+    private final Order order;
+    private final int limit;
+
+    private NoteQuery(Builder builder) {
+        this.titlePrefix = builder.titlePrefix;
+        this.titleInfix = builder.titleInfix;
+        this.contentInfix = builder.contentInfix;
+        this.fromMillis = builder.fromMillis;
+        this.toMillis = builder.toMillis;
+        this.order = builder.order;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Порядок результатов или null, если порядок не важен. */
+    public Order getOrder() {
+        return order;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Проверяет, удовлетворяет ли заметка всем условиям запроса.
+     */
+    public boolean matches(ImmutableNote note) {
+        long timestamp = note.getTimestampMillis();
+        if (timestamp < fromMillis || timestamp >= toMillis) {
+            return false;
+        }
+        return startsWith(note.titleBytes(), titlePrefix)
+                && contains(note.titleBytes(), titleInfix)
+                && contains(note.contentBytes(), contentInfix);
+    }
+
+    /** Есть ли в запросе условие по времени, которое может ответить индекс по времени. */
+    boolean hasTimeRange() {
+        return fromMillis != Note.NO_TIMESTAMP || toMillis != Long.MAX_VALUE;
+    }
+
+    long fromMillis() {
+        return fromMillis;
+    }
+
+    long toMillis() {
+        return toMillis;
+    }
+
+    private static boolean startsWith(byte[] text, byte[] prefix) {
+        if (prefix == null) {
+            return true;
+        }
+        if (text == null || text.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (text[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(byte[] text, byte[] pattern) {
+        if (pattern == null) {
+            return true;
+        }
+        if (text == null) {
+            return false;
+        }
+        int last = text.length - pattern.length;
+        outer:
+        for (int start = 0; start <= last; start++) {
+            for (int i = 0; i < pattern.length; i++) {
+                if (text[start + i] != pattern[i]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Построитель запроса. Каждое условие можно задать один раз; повторный вызов заменяет его.
+     */
+    public static final class Builder {
+        private byte[] titlePrefix;
+        private byte[] titleInfix;
+        private byte[] contentInfix;
+        private long fromMillis = Note.NO_TIMESTAMP;
+        private long toMillis = Long.MAX_VALUE;
+        private boolean timeRange;
+        private Order order;
+        private int limit = Integer.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        public Builder titleStartsWith(String prefix) {
+            titlePrefix = Note.encode(requireText(prefix));
+            return this;
+        }
+
+        public Builder titleContains(String text) {
+            titleInfix = Note.encode(requireText(text));
+            return this;
+        }
+
+        public Builder contentContains(String text) {
+            contentInfix = Note.encode(requireText(text));
+            return this;
+        }
+
+        /** Заметки, измененные в момент since или позже. */
+        public Builder changedSince(LocalDateTime since) {
+            fromMillis = NoteTimestampIndex.ceilMillis(requireTime(since));
+            timeRange = true;
+            return this;
+        }
+
+        /** Заметки, измененные раньше момента before. */
+        public Builder changedBefore(LocalDateTime before) {
+            toMillis = NoteTimestampIndex.ceilMillis(requireTime(before));
+            timeRange = true;
+            return this;
+        }
+
+        public Builder orderBy(Order order) {
+            if (order == null) {
+                throw new IllegalArgumentException("Order cannot be null");
+            }
+            this.order = order;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public NoteQuery build() {
+            if (timeRange && fromMillis == Note.NO_TIMESTAMP) {
+                // Заметки без временной метки не попадают ни в один диапазон времени
+                fromMillis = Note.NO_TIMESTAMP + 1;
+            }
+            return new NoteQuery(this);
+        }
+
+        private static String requireText(String text) {
+            if (text == null || text.isEmpty()) {
+                throw new IllegalArgumentException("Query text cannot be null or empty");
+            }
+            return text;
+        }
+
+        private static LocalDateTime requireTime(LocalDateTime time) {
+            if (time == null) {
+                throw new IllegalArgumentException("Time cannot be null");
+            }
+            return time;
+        }
+    }
+}
@@ -1,6 +1,15 @@
 package org.MyNote;
 
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 /**Интерфейс NoteRepository определяет контракт для работы с хранилищем заметок.  */
 public interface NoteRepository {
     /**
@@ -8,11 +17,212 @@ public interface NoteRepository {
      updateNote: обновление существующей заметки в хранилище.
      deleteNote: удаление заметки из хранилища по идентификатору.
      getNoteById: получение заметки из хранилища по идентификатору.
-     getAllNotes: получение списка всех заметок из хранилища.*/
+     getAllNotes: получение списка всех заметок из хранилища.
+     updateNoteIfPresent: атомарное обновление заметки, если она есть в хранилище.
+     addNoteIfAbsent: атомарное добавление заметки, если заметки с таким id еще нет.
+     deleteNoteIfPresent: атомарное удаление заметки, если она есть в хранилище.
+     addNotes, updateNotes, deleteNotes, getNotesByIds: пакетные варианты операций.
+     streamNotes: ленивый обход заметок без копирования всей коллекции.
+     getNotesPage: страница заметок по курсору.
+     exportNotes, importNotes: потоковая выгрузка и загрузка в двоичном формате NoteArchive.
+     getNoteValue, streamNoteValues: чтение неизменяемых ImmutableNote.
+     updateNoteIfVersion: обновление, если сохраненная версия заметки совпадает с ожидаемой.
+
+     Хранилище ведет версию каждой заметки: добавленная заметка получает версию 1, каждая
+     замена - версию на единицу больше сохраненной. Присвоенная версия записывается
+     и в переданный объект Note.*/
 
     void addNote(Note note);
     void updateNote(Note note);
     void deleteNote(int id);
     Note getNoteById(int id);
     List<Note> getAllNotes();
+
+    /**
+     * Заменяет заметку с тем же идентификатором, если она существует.
+     * Реализации выполняют проверку и замену одной операцией; реализация по умолчанию
+     * делает это двумя вызовами и не атомарна.
+     *
+     * @return true, если заметка была найдена и обновлена
+     */
+    default boolean updateNoteIfPresent(Note note) {
+        if (getNoteById(note.getId()) == null) {
+            return false;
+        }
+        updateNote(note);
+        return true;
+    }
+
+    /**
+     * Добавляет заметку, если заметки с тем же идентификатором нет; существующая
+     * заметка не заменяется. Реализации выполняют проверку и добавление одной операцией
+     * за O(1); реализация по умолчанию делает это двумя вызовами и не атомарна.
+     *
+     * @return true, если заметка была добавлена
+     */
+    default boolean addNoteIfAbsent(Note note) {
+        if (getNoteById(note.getId()) != null) {
+            return false;
+        }
+        addNote(note);
+        return true;
+    }
+
+    /**
+     * Заменяет заметку, только если сохраненная версия равна expectedVersion (обычно это
+     * getVersion() прочитанной ранее заметки); так одновременные правки не затирают друг
+     * друга. Реализации выполняют проверку и замену одной операцией; реализация
+     * по умолчанию делает это двумя вызовами и не атомарна.
+     */
+    default UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        Note current = getNoteById(note.getId());
+        if (current == null) {
+            return UpdateResult.NOT_FOUND;
+        }
+        if (current.getVersion() != expectedVersion) {
+            return UpdateResult.VERSION_CONFLICT;
+        }
+        return updateNoteIfPresent(note) ? UpdateResult.UPDATED : UpdateResult.NOT_FOUND;
+    }
+
+    /**
+     * Удаляет заметку с указанным идентификатором, если она существует.
+     *
+     * @return true, если заметка была найдена и удалена
+     */
+    default boolean deleteNoteIfPresent(int id) {
+        if (getNoteById(id) == null) {
+            return false;
+        }
+        deleteNote(id);
+        return true;
+    }
+
+    /**
+     * Добавляет пакет заметок. Реализации могут применять пакет одной внутренней операцией.
+     */
+    default void addNotes(Collection<Note> notes) {
+        for (Note note : notes) {
+            addNote(note);
+        }
+    }
+
+    /**
+     * Обновляет пакет заметок по правилам updateNoteIfPresent.
+     *
+     * @return для каждой заметки в порядке обхода коллекции - была ли она обновлена
+     */
+    default boolean[] updateNotes(Collection<Note> notes) {
+        boolean[] updated = new boolean[notes.size()];
+        int index = 0;
+        for (Note note : notes) {
+            updated[index++] = updateNoteIfPresent(note);
+        }
+        return updated;
+    }
+
+    /**
+     * Удаляет заметки по пакету идентификаторов по правилам deleteNoteIfPresent.
+     *
+     * @return для каждого идентификатора - была ли заметка удалена
+     */
+    default boolean[] deleteNotes(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            deleted[i] = deleteNoteIfPresent(ids[i]);
+        }
+        return deleted;
+    }
+
+    /**
+     * Получает заметки по пакету идентификаторов.
+     *
+     * @return заметки в порядке массива; null на месте отсутствующих
+     */
+    default List<Note> getNotesByIds(int[] ids) {
+        List<Note> notes = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            notes.add(getNoteById(id));
+        }
+        return notes;
+    }
+
+    /**
+     * Возвращает ленивый поток заметок. Реализации обходят свое хранилище напрямую,
+     * не собирая все заметки в новый список; реализация по умолчанию использует getAllNotes.
+     */
+    default Stream<Note> streamNotes() {
+        return getAllNotes().stream();
+    }
+
+    /**
+     * Получает неизменяемую заметку по идентификатору. Хранилища, которые сами хранят
+     * ImmutableNote, возвращают сохраненный экземпляр без копирования; реализация
+     * по умолчанию делает копию из getNoteById.
+     *
+     * @return заметка или null, если ее нет
+     */
+    default ImmutableNote getNoteValue(int id) {
+        Note note = getNoteById(id);
+        return note == null ? null : ImmutableNote.of(note);
+    }
+
+    /**
+     * Ленивый поток неизменяемых заметок, см. getNoteValue.
+     */
+    default Stream<ImmutableNote> streamNoteValues() {
+        return streamNotes().map(ImmutableNote::of);
+    }
+
+    /**
+     * Возвращает страницу заметок с id больше afterId в порядке возрастания id.
+     * Для следующей страницы в качестве afterId передается id последней заметки страницы,
+     * для первой - 0. Память расходуется только на limit заметок.
+     */
+    default List<Note> getNotesPage(int afterId, int limit) {
+        // Куча с наибольшим id на вершине хранит limit наименьших подходящих заметок
+        PriorityQueue<Note> page = new PriorityQueue<>(Math.min(limit, 64) + 1, Comparator.comparingInt(Note::getId).reversed());
+        streamNotes().filter(note -> note.getId() > afterId).forEach(note -> {
+            if (page.size() < limit) {
+                page.add(note);
+            } else if (note.getId() < page.peek().getId()) {
+                page.poll();
+                page.add(note);
+            }
+        });
+        List<Note> result = new ArrayList<>(page);
+        result.sort(Comparator.comparingInt(Note::getId));
+        return result;
+    }
+
+    /**
+     * Отбирает заметки, удовлетворяющие filter: до limit заметок в порядке order.
+     * Если order равен null, порядок не гарантируется и обход останавливается после limit
+     * совпадений, иначе выбираются первые limit заметок без сортировки всех подошедших.
+     * Реализация по умолчанию фильтрует streamNoteValues и обходит большие хранилища
+     * параллельным потоком; составные хранилища выполняют отбор в каждой своей части.
+     */
+    default List<ImmutableNote> findNoteValues(Predicate<? super ImmutableNote> filter,
+                                               Comparator<? super ImmutableNote> order, int limit) {
+        return NoteScan.find(streamNoteValues(), filter, order, limit);
+    }
+
+    /**
+     * Выгружает все заметки в канал в формате NoteArchive, обходя хранилище через streamNotes.
+     *
+     * @return число выгруженных заметок
+     */
+    default long exportNotes(WritableByteChannel out) throws IOException {
+        return NoteArchive.write(streamNotes(), out);
+    }
+
+    /**
+     * Загружает заметки из архива NoteArchive. Каждый блок архива добавляется одним
+     * вызовом addNotes; заметки с существующими id заменяются.
+     *
+     * @return число загруженных заметок
+     */
+    default long importNotes(ReadableByteChannel in) throws IOException {
+        return NoteArchive.read(in, this::addNotes);
+    }
 }
@@ -0,0 +1,99 @@
+package org.MyNote;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Выполнение отбора заметок для NoteRepository.findNoteValues: фильтрация потока,
+ * параллельный обход больших хранилищ и выбор первых limit заметок в заданном порядке
+ * без сортировки всех подошедших.
+ */
+final class NoteScan {
+    /** С какого оценочного размера поток обходится параллельно. */
+    static final int PARALLEL_THRESHOLD = 8192;
+
+    private NoteScan() {
+    }
+
+    /**
+     * @param order порядок или null; без порядка обход останавливается после limit совпадений
+     */
+    static List<ImmutableNote> find(Stream<ImmutableNote> values, Predicate<? super ImmutableNote> filter,
+                                    Comparator<? super ImmutableNote> order, int limit) {
+        Spliterator<ImmutableNote> spliterator = values.spliterator();
+        boolean parallel = spliterator.estimateSize() >= PARALLEL_THRESHOLD;
+        Stream<ImmutableNote> matches = StreamSupport.stream(spliterator, parallel).filter(filter);
+        if (order == null) {
+            return matches.unordered().limit(limit).collect(Collectors.toList());
+        }
+        return matches.collect(top(order, limit));
+    }
+
+    /**
+     * Объединяет результаты find по частям хранилища.
+     */
+    static List<ImmutableNote> merge(List<List<ImmutableNote>> parts, Comparator<? super ImmutableNote> order, int limit) {
+        if (order == null) {
+            List<ImmutableNote> merged = new ArrayList<>();
+            for (List<ImmutableNote> part : parts) {
+                for (ImmutableNote note : part) {
+                    if (merged.size() == limit) {
+                        return merged;
+                    }
+                    merged.add(note);
+                }
+            }
+            return merged;
+        }
+        Top top = new Top(order, limit);
+        for (List<ImmutableNote> part : parts) {
+            part.forEach(top::offer);
+        }
+        return top.toList();
+    }
+
+    static Collector<ImmutableNote, Top, List<ImmutableNote>> top(Comparator<? super ImmutableNote> order, int limit) {
+        return Collector.of(() -> new Top(order, limit), Top::offer, Top::combine, Top::toList);
+    }
+
+    /** Первые limit заметок в порядке order; на вершине кучи лежит худшая из них. */
+    static final class Top {
+        private final Comparator<? super ImmutableNote> order;
+        private final int limit;
+        private final PriorityQueue<ImmutableNote> heap;
+
+        Top(Comparator<? super ImmutableNote> order, int limit) {
+            this.order = order;
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.min(limit, 64) + 1, order.reversed());
+        }
+
+        void offer(ImmutableNote note) {
+            if (heap.size() < limit) {
+                heap.add(note);
+            } else if (order.compare(note, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(note);
+            }
+        }
+
+        Top combine(Top other) {
+            other.heap.forEach(this::offer);
+            return this;
+        }
+
+        List<ImmutableNote> toList() {
+            List<ImmutableNote> notes = new ArrayList<>(heap);
+            notes.sort(order);
+            return notes;
+        }
+    }
+}
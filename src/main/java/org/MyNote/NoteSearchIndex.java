@@ -0,0 +1,300 @@
+package org.MyNote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Класс NoteSearchIndex - инвертированный индекс по заголовку и содержимому заметок.
+ * Индекс обновляется инкрементально при добавлении, обновлении и удалении заметки.
+ *
+ * Текст разбивается на слова по Unicode-категориям (буквы и цифры любого алфавита),
+ * слова приводятся к нижнему регистру, буква "ё" приравнивается к "е".
+ *
+ * Синтаксис запроса: слова через пробел ищутся вместе (AND), оператор OR разделяет
+ * альтернативы, слово со звездочкой на конце ищется по префиксу: "терпение OR устрем*".
+ * Результаты ранжируются по BM25.
+ */
+public class NoteSearchIndex implements NoteChangeListener {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Словарь упорядочен, чтобы префиксный запрос был диапазоном ключей
+    private final NavigableMap<String, IntIntHashMap> postings = new TreeMap<>();
+    private final Map<Integer, String[]> documentTerms = new HashMap<>();
+    private final IntIntHashMap documentLengths = new IntIntHashMap();
+    private long totalLength;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Индексирует заметку, заменяя предыдущую версию с тем же id.
+     */
+    public void index(Note note) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(note.getId());
+            addDocument(note);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexAll(Collection<Note> notes) {
+        lock.writeLock().lock();
+        try {
+            for (Note note : notes) {
+                removeDocument(note.getId());
+                addDocument(note);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Число проиндексированных заметок. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onAdd(Note note) {
+        index(note);
+    }
+
+    @Override
+    public void onUpdate(Note note) {
+        index(note);
+    }
+
+    @Override
+    public void onDelete(int id) {
+        remove(id);
+    }
+
+    /**
+     * Выполняет запрос и возвращает id найденных заметок по убыванию релевантности.
+     *
+     * @param limit наибольшее число результатов
+     */
+    public int[] search(String query, int limit) {
+        List<List<QueryTerm>> clauses = parse(query);
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(limit, 64) + 1, Comparator.comparingDouble((Hit hit) -> hit.score));
+            if (clauses.size() == 1) {
+                evaluate(clauses.get(0), (id, score) -> offer(top, limit, id, score));
+            } else {
+                // Для OR суммируем оценки заметки по всем подошедшим альтернативам
+                Map<Integer, Double> scores = new HashMap<>();
+                for (List<QueryTerm> clause : clauses) {
+                    evaluate(clause, (id, score) -> scores.merge(id, score, Double::sum));
+                }
+                scores.forEach((id, score) -> offer(top, limit, id, score));
+            }
+            int[] ids = new int[top.size()];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                ids[i] = top.poll().id;
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Разбивает текст на нормализованные слова.
+     */
+    static void forEachToken(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+        StringBuilder token = new StringBuilder();
+        int length = text.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                int lower = Character.toLowerCase(codePoint);
+                token.appendCodePoint(lower == 'ё' ? 'е' : lower);
+            } else if (token.length() > 0) {
+                consumer.accept(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            consumer.accept(token.toString());
+        }
+    }
+
+    private void addDocument(Note note) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        Consumer<String> counter = term -> frequencies.merge(term, 1, Integer::sum);
+        forEachToken(note.getTitle(), counter);
+        forEachToken(note.getContent(), counter);
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new IntIntHashMap(4)).put(note.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+        documentTerms.put(note.getId(), frequencies.keySet().toArray(new String[0]));
+        documentLengths.put(note.getId(), length);
+        totalLength += length;
+    }
+
+    private void removeDocument(int id) {
+        String[] terms = documentTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            IntIntHashMap posting = postings.get(term);
+            posting.remove(id);
+            if (posting.size() == 0) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= documentLengths.remove(id);
+    }
+
+    /**
+     * Находит заметки, содержащие все слова альтернативы. Обходится самый короткий список
+     * вхождений, остальные слова проверяются поиском в хеш-таблице.
+     */
+    private void evaluate(List<QueryTerm> clause, ScoreConsumer consumer) {
+        int count = clause.size();
+        IntIntHashMap[] resolved = new IntIntHashMap[count];
+        double[] idf = new double[count];
+        int documents = documentLengths.size();
+        int shortest = 0;
+        for (int i = 0; i < count; i++) {
+            resolved[i] = resolve(clause.get(i));
+            if (resolved[i] == null) {
+                return;
+            }
+            int df = resolved[i].size();
+            idf[i] = Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+            if (df < resolved[shortest].size()) {
+                shortest = i;
+            }
+        }
+        double averageLength = documents == 0 ? 1 : (double) totalLength / documents;
+        int first = shortest;
+        resolved[first].forEach((id, firstFrequency) -> {
+            double norm = K1 * (1 - B + B * documentLengths.get(id) / averageLength);
+            double score = 0;
+            for (int i = 0; i < count; i++) {
+                int frequency = i == first ? firstFrequency : resolved[i].get(id);
+                if (frequency == IntIntHashMap.NO_VALUE) {
+                    return;
+                }
+                score += idf[i] * frequency * (K1 + 1) / (frequency + norm);
+            }
+            consumer.accept(id, score);
+        });
+    }
+
+    /**
+     * Возвращает список вхождений слова или null, если слово не встречается.
+     * Для префикса списки всех подходящих слов объединяются с суммированием частот.
+     */
+    private IntIntHashMap resolve(QueryTerm term) {
+        if (!term.prefix) {
+            return postings.get(term.text);
+        }
+        Collection<IntIntHashMap> matches = postings.subMap(term.text, true, term.text + Character.MAX_VALUE, false).values();
+        if (matches.isEmpty()) {
+            return null;
+        }
+        if (matches.size() == 1) {
+            return matches.iterator().next();
+        }
+        IntIntHashMap merged = new IntIntHashMap();
+        for (IntIntHashMap posting : matches) {
+            posting.forEach((id, frequency) -> {
+                int previous = merged.get(id);
+                merged.put(id, previous == IntIntHashMap.NO_VALUE ? frequency : previous + frequency);
+            });
+        }
+        return merged;
+    }
+
+    private static List<List<QueryTerm>> parse(String query) {
+        List<List<QueryTerm>> clauses = new ArrayList<>();
+        List<QueryTerm> clause = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.equals("OR")) {
+                if (!clause.isEmpty()) {
+                    clauses.add(clause);
+                    clause = new ArrayList<>();
+                }
+                continue;
+            }
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = new ArrayList<>();
+            forEachToken(word, tokens::add);
+            for (int i = 0; i < tokens.size(); i++) {
+                clause.add(new QueryTerm(tokens.get(i), prefix && i == tokens.size() - 1));
+            }
+        }
+        if (!clause.isEmpty()) {
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    private static void offer(PriorityQueue<Hit> top, int limit, int id, double score) {
+        if (top.size() < limit) {
+            top.add(new Hit(id, score));
+        } else if (score > top.peek().score) {
+            top.poll();
+            top.add(new Hit(id, score));
+        }
+    }
+
+    private interface ScoreConsumer {
+        void accept(int id, double score);
+    }
+
+    private static final class QueryTerm {
+        final String text;
+        final boolean prefix;
+
+        QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    private static final class Hit {
+        final int id;
+        final double score;
+
+        Hit(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
@@ -1,201 +1,983 @@
 package org.MyNote;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Класс NoteServiceImpl реализует логику работы с заметками, используя хранилище заметок,
  * предоставляемое через интерфейс NoteRepository
  */
 public class NoteServiceImpl {
+    private static final String NOTE_NOT_FOUND = "Note with the given ID does not exist";
+    private static final String RESTRICTED_WORD = "Note contains a restricted word";
+
+    private static final String NOTE_EXISTS = "Note with the given ID already exists";
+
+    // Число полос блокировок уведомлений
+    private static final int WRITE_STRIPES = 64;
+
+    // Правила addNote: сообщения проверяются по порядку, возвращается первое нарушенное
+    private static final NoteValidator ADD_RULES = addRules(true);
+    // Правила добавления с id, который назначает сервис
+    private static final NoteValidator CREATE_RULES = addRules(false);
+
+    // Правила updateNote: те же ограничения с более подробными сообщениями
+    private static final NoteValidator UPDATE_RULES = NoteValidator.builder()
+            .requireNote("Note cannot be null")
+            .requireNonNegativeId("ID cannot be negative")
+            .requireNonZeroId("ID cannot be zero")
+            .requireNonNull(NoteValidator.Field.TITLE, "Title cannot be null")
+            .requireNonBlank(NoteValidator.Field.TITLE, "Title cannot be  empty or whitespace")
+            .requireNonNull(NoteValidator.Field.CONTENT, "Content cannot be null")
+            .requireNonEmpty(NoteValidator.Field.CONTENT, "Content cannot be empty")
+            .requireNonBlank(NoteValidator.Field.CONTENT, "Content cannot be null or whitespace")
+            .maxLength(NoteValidator.Field.TITLE, 255, "Title is too long")
+            .maxLength(NoteValidator.Field.CONTENT, 2048, "Content is too long")
+            .rejectRestrictedWords(RESTRICTED_WORD)
+            .compile();
+
     private NoteRepository noteRepository;
-    private List<String> restrictedWords;
+    // Автомат заменяется целиком, поэтому список слов можно менять без остановки записи
+    private volatile RestrictedWordsMatcher restrictedWords = RestrictedWordsMatcher.EMPTY;
+    // Вторичные индексы, которые обновляются после каждого успешного изменения
+    private final List<NoteChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Пока есть слушатели, запись одной заметки и уведомление о ней выполняются под блокировкой
+    // полосы id, поэтому слушатели получают изменения одной заметки в порядке хранилища.
+    // Без слушателей запись идет без блокировок; пакеты пишутся без блокировок всегда,
+    // а затем под блокировкой полосы каждой заметки сообщают ее текущее состояние
+    private final ReentrantLock[] writeLocks = newWriteLocks();
+    private volatile NoteSearchIndex searchIndex;
+    private volatile NoteTimestampIndex timestampIndex;
+    private volatile NoteMetrics metrics;
+    private volatile NoteIdSequence idSequence;
+    private NoteChangePublisher changePublisher;
 
     public NoteServiceImpl(NoteRepository noteRepository) {
         this.noteRepository = noteRepository;
     }
 
     public NoteServiceImpl(List<String> restrictedWords) {
-        this.restrictedWords = restrictedWords;
+        this.restrictedWords = compileWords(restrictedWords);
+    }
+
+    public NoteServiceImpl(NoteRepository noteRepository, List<String> restrictedWords) {
+        this.noteRepository = noteRepository;
+        this.restrictedWords = compileWords(restrictedWords);
     }
 
+    /**
+     * setRestrictedWords: заменяет список запрещенных слов. Автомат строится до замены,
+     * поэтому текущие проверки не ждут построения и видят либо старый, либо новый список.
+     */
+    public void setRestrictedWords(List<String> restrictedWords) {
+        this.restrictedWords = compileWords(restrictedWords);
+    }
+
+    private static RestrictedWordsMatcher compileWords(List<String> restrictedWords) {
+        return restrictedWords == null
+                ? RestrictedWordsMatcher.EMPTY
+                : RestrictedWordsMatcher.compile(restrictedWords);
+    }
 
     /**
-     * Добавляет новую заметку в хранилище.
+     * setIdSequence: задает генератор id для addNote(String, String). Без него сервис
+     * при первом вызове создает NoteIdSequence в памяти, начиная со следующего за наибольшим
+     * id в хранилище; id, позже занятые заметками с id от вызывающего, пропускаются.
+     */
+    public void setIdSequence(NoteIdSequence idSequence) {
+        this.idSequence = idSequence;
+    }
+
+    /**
+     * setMetrics: включает запись задержек операций сервиса и отказов проверки по причинам
+     * в metrics; null выключает запись. Задержки хранилища отдельно измеряет MetricsNoteRepository.
+     */
+    public void setMetrics(NoteMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Добавляет новую заметку в хранилище. Проверка и добавление выполняются одним вызовом
+     * noteRepository.addNoteIfAbsent, поэтому заметка с уже существующим id отклоняется,
+     * а сохраненная не заменяется.
      *
      * @param note новая заметка, которую нужно добавить
      * @throws IllegalArgumentException если заметка не удовлетворяет какому-либо из требований
+     *                                  или id уже занят
      */
     public void addNote(Note note) {
-        // Проверяем, что заголовок заметки не является пустым или состоит только из пробелов
-        if (note.getTitle() == null || note.getTitle().trim().isEmpty()) {
-            throw new IllegalArgumentException("Title cannot be null, or empty, or whitespace");
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String violation = ADD_RULES.validate(note, restrictedWords);
+            if (violation != null) {
+                throw rejected(metrics, violation);
+            }
+
+            // Устанавливаем текущее время как временную метку заметки
+            long previous = note.getTimestampMillis();
+            note.setTimestampMillis(System.currentTimeMillis());
+
+            // Добавляем заметку в хранилище
+            ReentrantLock lock = lockIfListened(note.getId());
+            boolean changed = false;
+            try {
+                if (!noteRepository.addNoteIfAbsent(note)) {
+                    note.setTimestampMillis(previous);
+                    throw rejected(metrics, NOTE_EXISTS);
+                }
+                changed = true;
+                if (lock != null) {
+                    for (NoteChangeListener listener : listeners) {
+                        listener.onAdd(note);
+                    }
+                }
+            } finally {
+                afterWrite(lock, note.getId(), NoteChangeEvent.Type.ADD, changed);
+            }
+            completed = true;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.ADD_NOTE, start, completed);
         }
-        // Проверяем, что содержимое заметки не является пустым или состоит только из пробелов
-        if (note.getContent() == null || note.getContent().trim().isEmpty()) {
-            throw new IllegalArgumentException("Content cannot be empty or whitespace");
+    }
+
+    /**
+     * Добавляет новую заметку с id, который назначает сервис. Заметка проверяется по правилам
+     * addNote, кроме правила id, и сохраняется через noteRepository.addNoteIfAbsent, поэтому
+     * существующая заметка никогда не заменяется: занятый id пропускается и берется следующий.
+     *
+     * @return назначенный id
+     * @throws IllegalArgumentException если заметка не удовлетворяет какому-либо из требований
+     */
+    public int addNote(String title, String content) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            Note note = new Note(0, title, content);
+            String violation = CREATE_RULES.validate(note, restrictedWords);
+            if (violation != null) {
+                throw rejected(metrics, violation);
+            }
+            NoteIdSequence ids = idSequence();
+            long now = System.currentTimeMillis();
+            Note stored;
+            boolean added;
+            do {
+                stored = new Note(ids.nextId(), note.titleBytes(), note.contentBytes(), now);
+                ReentrantLock lock = lockIfListened(stored.getId());
+                added = false;
+                try {
+                    added = noteRepository.addNoteIfAbsent(stored);
+                    if (added && lock != null) {
+                        for (NoteChangeListener listener : listeners) {
+                            listener.onAdd(stored);
+                        }
+                    }
+                } finally {
+                    afterWrite(lock, stored.getId(), NoteChangeEvent.Type.ADD, added);
+                }
+            } while (!added);
+            completed = true;
+            return stored.getId();
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.ADD_NOTE, start, completed);
         }
-        // Проверяем, что идентификатор заметки больше 0
-        if (note.getId() <= 0) {
-            throw new IllegalArgumentException("ID cannot be zero or negative");
+    }
+
+    /**
+     * addNoteIfAbsent: то же, что addNote(Note) - заметка с уже существующим id отклоняется.
+     *
+     * @throws IllegalArgumentException если заметка некорректна или id уже занят
+     */
+    public void addNoteIfAbsent(Note note) {
+        addNote(note);
+    }
+
+    /**
+     * addNotes: добавляет пакет заметок. Все заметки проверяются за один проход, время
+     * читается один раз на весь пакет, а корректные заметки передаются в хранилище одним
+     * вызовом noteRepository.addNotes. Некорректная заметка не прерывает пакет.
+     *
+     * @return результат по каждой заметке в порядке обхода коллекции
+     */
+    public BatchResult addNotes(Collection<Note> notes) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String[] errors = new String[notes.size()];
+            List<Note> valid = new ArrayList<>(notes.size());
+            long now = System.currentTimeMillis();
+            RestrictedWordsMatcher matcher = restrictedWords;
+            int index = 0;
+            for (Note note : notes) {
+                String violation = ADD_RULES.validate(note, matcher);
+                if (violation == null) {
+                    note.setTimestampMillis(now);
+                    valid.add(note);
+                } else {
+                    errors[index] = rejectedReason(metrics, violation);
+                }
+                index++;
+            }
+            if (!valid.isEmpty()) {
+                noteRepository.addNotes(valid);
+                notifyCurrent(valid, NoteChangeEvent.Type.ADD);
+            }
+            completed = true;
+            return new BatchResult(errors);
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.ADD_NOTES, start, completed);
         }
-        // Проверяем, что заголовок заметки не слишком длинный
-        if (note.getTitle().length() > 255) {
-            throw new IllegalArgumentException("Title is too long");
+    }
+
+    /**
+     * Записывает пакет заметок, уже проверенных по правилам addNote через validateNotes,
+     * одним вызовом noteRepository.addNotes. Используется NoteImporter: временная метка
+     * из выгрузки сохраняется, заметкам без метки ставится текущее время.
+     */
+    void addValidatedNotes(List<Note> notes) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            long now = System.currentTimeMillis();
+            for (Note note : notes) {
+                if (note.getTimestampMillis() == Note.NO_TIMESTAMP) {
+                    note.setTimestampMillis(now);
+                }
+            }
+            noteRepository.addNotes(notes);
+            notifyCurrent(notes, NoteChangeEvent.Type.ADD);
+            completed = true;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.ADD_NOTES, start, completed);
         }
-        // Проверяем, что содержимое заметки не слишком длинное
-        if (note.getContent().length() > 2048) {
-            throw new IllegalArgumentException("Content is too long");
+    }
+
+    /**
+     * validateNotes: проверяет пакет заметок по правилам addNote, ничего не сохраняя
+     * и не бросая исключений. Подходит для предварительной проверки при массовой загрузке.
+     *
+     * @return результат по каждой заметке в порядке обхода коллекции
+     */
+    public BatchResult validateNotes(Collection<Note> notes) {
+        String[] errors = new String[notes.size()];
+        RestrictedWordsMatcher matcher = restrictedWords;
+        int index = 0;
+        for (Note note : notes) {
+            errors[index++] = ADD_RULES.validate(note, matcher);
         }
+        return new BatchResult(errors);
+    }
 
-        // Устанавливаем текущую дату и время как временную метку заметки
-        note.setTimestamp(LocalDateTime.now());
+    /**
+     * updateNote: обновляет заметку с указанным идентификатором, если она существует,
+     * используя noteRepository.updateNoteIfPresent.
+     *
+     * @param note Объект заметки, которую нужно обновить.
+     * @throws IllegalArgumentException если заметка не удовлетворяет какому-либо из требований
+     */
 
-        // Добавляем заметку в хранилище
-        noteRepository.addNote(note);
+    public void updateNote(Note note) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String violation = UPDATE_RULES.validate(note, restrictedWords);
+            if (violation != null) {
+                throw rejected(metrics, violation);
+            }
+
+            // Метка ставится до записи, чтобы хранилища, копирующие заметку, сохранили новое время;
+            // если заметки нет, прежняя метка возвращается
+            long previous = note.getTimestampMillis();
+            note.setTimestampMillis(System.currentTimeMillis());
+            //      Обновляем заметку одним обращением к хранилищу; false означает, что заметки с таким ID нет.
+            ReentrantLock lock = lockIfListened(note.getId());
+            boolean changed = false;
+            try {
+                if (!noteRepository.updateNoteIfPresent(note)) {
+                    note.setTimestampMillis(previous);
+                    throw rejected(metrics, NOTE_NOT_FOUND);
+                }
+                changed = true;
+                if (lock != null) {
+                    for (NoteChangeListener listener : listeners) {
+                        listener.onUpdate(note);
+                    }
+                }
+            } finally {
+                afterWrite(lock, note.getId(), NoteChangeEvent.Type.UPDATE, changed);
+            }
+            completed = true;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.UPDATE_NOTE, start, completed);
+        }
     }
 
+    /**
+     * updateNoteIfVersion: обновляет заметку, только если ее сохраненная версия равна
+     * expectedVersion, например версии, прочитанной вместе с заметкой перед редактированием.
+     * Так правка, сделанная по устаревшей копии, не затирает чужое изменение.
+     *
+     * @return UPDATED, NOT_FOUND или VERSION_CONFLICT; при конфликте заметка не меняется
+     * @throws IllegalArgumentException если заметка не удовлетворяет какому-либо из требований
+     */
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String violation = UPDATE_RULES.validate(note, restrictedWords);
+            if (violation != null) {
+                throw rejected(metrics, violation);
+            }
 
+            long previous = note.getTimestampMillis();
+            note.setTimestampMillis(System.currentTimeMillis());
+            UpdateResult result = null;
+            ReentrantLock lock = lockIfListened(note.getId());
+            try {
+                result = noteRepository.updateNoteIfVersion(note, expectedVersion);
+                if (result == UpdateResult.UPDATED && lock != null) {
+                    for (NoteChangeListener listener : listeners) {
+                        listener.onUpdate(note);
+                    }
+                }
+            } finally {
+                afterWrite(lock, note.getId(), NoteChangeEvent.Type.UPDATE, result == UpdateResult.UPDATED);
+            }
+            if (result != UpdateResult.UPDATED) {
+                note.setTimestampMillis(previous);
+            }
+            completed = true;
+            return result;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.UPDATE_NOTE, start, completed);
+        }
+    }
 
+    /**
+     * updateNotes: обновляет пакет заметок с теми же правилами, что и updateNote.
+     * Корректные заметки передаются в хранилище одним вызовом noteRepository.updateNotes.
+     *
+     * @return результат по каждой заметке в порядке обхода коллекции
+     */
+    public BatchResult updateNotes(Collection<Note> notes) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String[] errors = new String[notes.size()];
+            List<Note> valid = new ArrayList<>(notes.size());
+            int[] validIndexes = new int[notes.size()];
+            RestrictedWordsMatcher matcher = restrictedWords;
+            int index = 0;
+            for (Note note : notes) {
+                String violation = UPDATE_RULES.validate(note, matcher);
+                if (violation == null) {
+                    validIndexes[valid.size()] = index;
+                    valid.add(note);
+                } else {
+                    errors[index] = rejectedReason(metrics, violation);
+                }
+                index++;
+            }
+            if (!valid.isEmpty()) {
+                long[] previous = new long[valid.size()];
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < previous.length; i++) {
+                    previous[i] = valid.get(i).getTimestampMillis();
+                    valid.get(i).setTimestampMillis(now);
+                }
+                boolean[] updated = noteRepository.updateNotes(valid);
+                List<Note> changed = new ArrayList<>(updated.length);
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i]) {
+                        changed.add(valid.get(i));
+                    } else {
+                        valid.get(i).setTimestampMillis(previous[i]);
+                        errors[validIndexes[i]] = rejectedReason(metrics, NOTE_NOT_FOUND);
+                    }
+                }
+                notifyCurrent(changed, NoteChangeEvent.Type.UPDATE);
+            }
+            completed = true;
+            return new BatchResult(errors);
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.UPDATE_NOTES, start, completed);
+        }
+    }
 
     /**
-     * updateNote: проверяет наличие заметки с указанным идентификатором в хранилище,
-     * и если она существует, обновляет ее, используя noteRepository.updateNote.
+     * deleteNote: проверяет корректность идентификатора и удаляет заметку, если она
+     * существует, используя noteRepository.deleteNoteIfPresent.
+     */
+    public void deleteNote(int id) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String violation = findIdViolation(id);
+            if (violation != null) {
+                throw rejected(metrics, violation);
+            }
+            //      Удаляем заметку одним обращением к хранилищу; false означает, что заметки с таким ID нет.
+            ReentrantLock lock = lockIfListened(id);
+            boolean changed = false;
+            try {
+                if (!noteRepository.deleteNoteIfPresent(id)) {
+                    throw rejected(metrics, NOTE_NOT_FOUND);
+                }
+                changed = true;
+                if (lock != null) {
+                    for (NoteChangeListener listener : listeners) {
+                        listener.onDelete(id);
+                    }
+                }
+            } finally {
+                afterWrite(lock, id, NoteChangeEvent.Type.DELETE, changed);
+            }
+            completed = true;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.DELETE_NOTE, start, completed);
+        }
+    }
+
+    /**
+     * deleteNotes: удаляет заметки по пакету идентификаторов одним вызовом
+     * noteRepository.deleteNotes. Некорректный или отсутствующий id не прерывает пакет.
      *
-     * @param note Объект заметки, которую нужно обновить.
-     * @throws IllegalArgumentException если заметка не удовлетворяет какому-либо из требований
+     * @return результат по каждому идентификатору в порядке массива
      */
+    public BatchResult deleteNotes(int[] ids) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String[] errors = new String[ids.length];
+            int[] valid = new int[ids.length];
+            int[] validIndexes = new int[ids.length];
+            int count = 0;
+            for (int i = 0; i < ids.length; i++) {
+                String violation = findIdViolation(ids[i]);
+                if (violation == null) {
+                    validIndexes[count] = i;
+                    valid[count++] = ids[i];
+                } else {
+                    errors[i] = rejectedReason(metrics, violation);
+                }
+            }
+            if (count > 0) {
+                int[] batch = count == ids.length ? valid : Arrays.copyOf(valid, count);
+                boolean[] deleted = noteRepository.deleteNotes(batch);
+                for (int i = 0; i < deleted.length; i++) {
+                    if (!deleted[i]) {
+                        errors[validIndexes[i]] = rejectedReason(metrics, NOTE_NOT_FOUND);
+                    }
+                }
+                if (!listeners.isEmpty()) {
+                    for (int i = 0; i < deleted.length; i++) {
+                        if (deleted[i]) {
+                            notifyCurrent(batch[i], NoteChangeEvent.Type.DELETE);
+                        }
+                    }
+                }
+            }
+            completed = true;
+            return new BatchResult(errors);
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.DELETE_NOTES, start, completed);
+        }
+    }
 
-    public void updateNote(Note note) {
-//        Проверяем, что переданная заметка null, ID заметки меньше или равен нулю
-        if (note == null) {
-            throw new IllegalArgumentException("Note cannot be null");
+    /**
+     * getNoteById: делегирует получение заметки по идентификатору, используя
+     * noteRepository.getNoteById.
+     */
+    public Note getNoteById(int id) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String violation = findIdViolation(id);
+            if (violation != null) {
+                throw rejected(metrics, violation);
+            }
+            Note note = noteRepository.getNoteById(id);
+            completed = true;
+            return note;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.GET_NOTE, start, completed);
         }
+    }
 
-        //    Проверяем, что идентификатор заметки больше 0
-        if (note.getId() < 0) {
-            throw new IllegalArgumentException("ID cannot be negative");
+    /**
+     * getNoteValue: то же, что getNoteById, но возвращает неизменяемую заметку через
+     * noteRepository.getNoteValue; такую заметку можно передавать другим потокам.
+     */
+    public ImmutableNote getNoteValue(int id) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            String violation = findIdViolation(id);
+            if (violation != null) {
+                throw rejected(metrics, violation);
+            }
+            ImmutableNote note = noteRepository.getNoteValue(id);
+            completed = true;
+            return note;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.GET_NOTE, start, completed);
         }
-        if (note.getId() == 0) {
-            throw new IllegalArgumentException("ID cannot be zero");
+    }
+
+    /**
+     * getNotesByIds: получает заметки по пакету идентификаторов одним вызовом
+     * noteRepository.getNotesByIds. Для некорректных и отсутствующих id в списке стоит null.
+     *
+     * @return заметки в порядке массива идентификаторов
+     */
+    public List<Note> getNotesByIds(int[] ids) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            // Некорректные id не передаем в хранилище, на их местах остается null
+            int[] valid = Arrays.stream(ids).filter(id -> id > 0).toArray();
+            List<Note> found = noteRepository.getNotesByIds(valid);
+            completed = true;
+            if (valid.length == ids.length) {
+                return found;
+            }
+            List<Note> notes = new ArrayList<>(ids.length);
+            int next = 0;
+            for (int id : ids) {
+                notes.add(id > 0 ? found.get(next++) : null);
+            }
+            return notes;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.GET_NOTES_BY_IDS, start, completed);
         }
-//       Проверяем, что заголовок заметки null, или пустой, или состоит только из пробельных символов
-        if (note.getTitle() == null) {
-            throw new IllegalArgumentException("Title cannot be null");
+    }
+
+    /**
+     * getAllNotes: делегирует получение списка всех заметок из хранилища,
+     * используя noteRepository.getAllNotes.
+     */
+    public List<Note> getAllNotes() {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            List<Note> notes = noteRepository.getAllNotes();
+            completed = true;
+            return notes;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.GET_ALL_NOTES, start, completed);
         }
+    }
 
-        if (note.getTitle().trim().isEmpty()) {
-            throw new IllegalArgumentException("Title cannot be  empty or whitespace");
+    /**
+     * streamNotes: ленивый обход заметок без копирования всего хранилища,
+     * используя noteRepository.streamNotes.
+     */
+    public Stream<Note> streamNotes() {
+        return noteRepository.streamNotes();
+    }
+
+    /**
+     * getNotesPage: возвращает до limit заметок с id больше afterId в порядке возрастания id.
+     * Для первой страницы afterId равен 0, для следующей - id последней заметки страницы.
+     */
+    public List<Note> getNotesPage(int afterId, int limit) {
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Cursor cannot be negative");
         }
-//        Проверяем, что контент заметки null, или пустой, или состоит только из пробельных символов
-        if (note.getContent() == null) {
-            throw new IllegalArgumentException("Content cannot be null");
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
         }
-        if (note.getContent().isEmpty()) {
-            throw new IllegalArgumentException("Content cannot be empty");
+        return noteRepository.getNotesPage(afterId, limit);
+    }
+
+    /**
+     * enableSearchIndex: строит полнотекстовый индекс по текущему содержимому хранилища
+     * и далее поддерживает его при каждом добавлении, обновлении и удалении заметки.
+     * Повторный вызов не строит индекс заново.
+     */
+    public synchronized void enableSearchIndex() {
+        if (searchIndex != null) {
+            return;
         }
-        if (note.getContent().trim().isEmpty()) {
-            throw new IllegalArgumentException("Content cannot be null or whitespace");
+        NoteSearchIndex index = new NoteSearchIndex();
+        // Подписываемся до обхода хранилища, чтобы не пропустить изменения во время построения
+        listeners.add(index);
+        fill(index);
+        searchIndex = index;
+    }
+
+    /**
+     * search: ищет заметки по заголовку и содержимому. Слова через пробел ищутся вместе,
+     * оператор OR задает альтернативы, слово со звездочкой на конце ищется по префиксу.
+     *
+     * @return до limit заметок по убыванию релевантности
+     * @throws IllegalStateException если индекс не включен методом enableSearchIndex
+     */
+    public List<Note> search(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Query cannot be null, or empty, or whitespace");
         }
-//      Проверяем, что длина заголовка превышает 255 символов, длина контента превышает 2048 символов,
-        if (note.getTitle().length() > 255) {
-            throw new IllegalArgumentException("Title is too long");
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
         }
-        if (note.getContent().length() > 2048) {
-            throw new IllegalArgumentException("Content is too long");
+        NoteSearchIndex index = searchIndex;
+        if (index == null) {
+            throw new IllegalStateException("Search index is not enabled");
         }
+        return notesByIds(index.search(query, limit));
+    }
 
-        //      Проверяем, что заметка с указанным ID не существует в хранилище.
-        Note existingNote = noteRepository.getNoteById(note.getId());
-        if (existingNote != null) {
+    /**
+     * enableTimestampIndex: строит индекс заметок по временной метке и далее поддерживает
+     * его при каждом изменении. Нужен для запросов по времени изменения.
+     */
+    public synchronized void enableTimestampIndex() {
+        if (timestampIndex != null) {
+            return;
+        }
+        NoteTimestampIndex index = new NoteTimestampIndex();
+        listeners.add(index);
+        fill(index);
+        timestampIndex = index;
+    }
 
-            noteRepository.updateNote(note);
-        } else {
-            throw new IllegalArgumentException("Note with the given ID does not exist");
+    /**
+     * enableChangeEvents: включает публикацию событий об изменениях заметок и возвращает
+     * публикатор, на который подписываются внешние системы. Повторный вызов возвращает
+     * тот же публикатор.
+     */
+    public synchronized NoteChangePublisher enableChangeEvents() {
+        if (changePublisher == null) {
+            NoteChangePublisher publisher = new NoteChangePublisher();
+            listeners.add(publisher);
+            changePublisher = publisher;
         }
+        return changePublisher;
+    }
 
-        note.setTimestamp(LocalDateTime.now());
+    /**
+     * getNotesBetween: возвращает заметки, измененные в полуинтервале [from, to),
+     * по возрастанию времени изменения.
+     */
+    public List<Note> getNotesBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Time range bounds cannot be null");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start of time range cannot be after its end");
+        }
+        return notesByIds(requireTimestampIndex().idsBetween(from, to));
     }
 
+    /**
+     * getNotesChangedSince: возвращает заметки, измененные в момент since или позже,
+     * по возрастанию времени изменения.
+     */
+    public List<Note> getNotesChangedSince(LocalDateTime since) {
+        if (since == null) {
+            throw new IllegalArgumentException("Time cannot be null");
+        }
+        return notesByIds(requireTimestampIndex().idsChangedSince(since));
+    }
 
     /**
-     * deleteNote: проверяет наличие заметки с указанным идентификатором в хранилище и
-     * корректность идентификатора, и если она существует, удаляет ее, используя
-     * noteRepository.deleteNote.
+     * getNewestNotes: возвращает не более limit последних измененных заметок, начиная с самой новой.
      */
-    public void deleteNote(int id) {
-        // Проверяем, что идентификатор заметки больше 0
-        if (id == 0) {
-            throw new IllegalArgumentException("ID cannot be zero");
+    public List<Note> getNewestNotes(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
         }
+        return notesByIds(requireTimestampIndex().newestIds(limit));
+    }
 
-        if (id < 0) {
-            throw new IllegalArgumentException("ID cannot be negative");
+    private NoteTimestampIndex requireTimestampIndex() {
+        NoteTimestampIndex index = timestampIndex;
+        if (index == null) {
+            throw new IllegalStateException("Timestamp index is not enabled");
         }
-        //      Проверяем, что заметка с указанным ID не существует в хранилище.
-        Note existingNote = noteRepository.getNoteById(id);
-        if (existingNote != null) {
-            noteRepository.deleteNote(id);
-        } else {
-            throw new IllegalArgumentException("Note with the given ID does not exist");
+        return index;
+    }
+
+    /**
+     * query: выбирает заметки по запросу NoteQuery. Если в запросе есть условие по времени
+     * и включен индекс по времени, кандидаты берутся из индекса, иначе отбор передается
+     * хранилищу через noteRepository.findNoteValues. При порядке по времени или без порядка
+     * чтение останавливается, как только набрано limit заметок.
+     *
+     * @return до limit неизменяемых заметок в порядке запроса
+     */
+    public List<ImmutableNote> query(NoteQuery query) {
+        NoteMetrics metrics = this.metrics;
+        long start = startTimer(metrics);
+        boolean completed = false;
+        try {
+            if (query == null) {
+                throw rejected(metrics, "Query cannot be null");
+            }
+            NoteTimestampIndex index = timestampIndex;
+            List<ImmutableNote> notes = index != null && query.hasTimeRange()
+                    ? queryByTimestamp(index, query)
+                    : noteRepository.findNoteValues(query::matches, comparator(query), query.getLimit());
+            completed = true;
+            return notes;
+        } finally {
+            stopTimer(metrics, NoteMetrics.Operation.QUERY_NOTES, start, completed);
         }
     }
 
     /**
-     * getNoteById: делегирует получение заметки по идентификатору, используя
-     * noteRepository.getNoteById.
+     * query: то же, что query(NoteQuery), но возвращает только нужные поля: projection
+     * применяется к отобранным заметкам, например ImmutableNote::getId. Текст заметки
+     * декодируется, только если его читает projection.
      */
-    public Note getNoteById(int id) {
-        // Проверяем, что идентификатор заметки больше 0
-        if (id == 0) {
-            throw new IllegalArgumentException("ID cannot be zero");
+    public <T> List<T> query(NoteQuery query, Function<? super ImmutableNote, ? extends T> projection) {
+        if (projection == null) {
+            throw new IllegalArgumentException("Projection cannot be null");
         }
-        if (id < 0) {
-            throw new IllegalArgumentException("ID cannot be negative");
+        List<ImmutableNote> notes = query(query);
+        List<T> projected = new ArrayList<>(notes.size());
+        for (ImmutableNote note : notes) {
+            projected.add(projection.apply(note));
+        }
+        return projected;
+    }
+
+    private List<ImmutableNote> queryByTimestamp(NoteTimestampIndex index, NoteQuery query) {
+        NoteQuery.Order order = query.getOrder();
+        int limit = query.getLimit();
+        boolean descending = order == NoteQuery.Order.NEWEST_FIRST;
+        if (order == null || order == NoteQuery.Order.OLDEST_FIRST || descending) {
+            // Индекс уже упорядочен по времени, поэтому первые limit совпадений и есть ответ
+            List<ImmutableNote> notes = new ArrayList<>();
+            index.forEachId(query.fromMillis(), query.toMillis(), descending, id -> {
+                ImmutableNote note = noteRepository.getNoteValue(id);
+                if (note != null && query.matches(note)) {
+                    notes.add(note);
+                }
+                return notes.size() < limit;
+            });
+            return notes;
         }
-        return noteRepository.getNoteById(id);
+        NoteScan.Top top = new NoteScan.Top(order.comparator(), limit);
+        index.forEachId(query.fromMillis(), query.toMillis(), false, id -> {
+            ImmutableNote note = noteRepository.getNoteValue(id);
+            if (note != null && query.matches(note)) {
+                top.offer(note);
+            }
+            return true;
+        });
+        return top.toList();
+    }
+
+    private static Comparator<ImmutableNote> comparator(NoteQuery query) {
+        return query.getOrder() == null ? null : query.getOrder().comparator();
     }
 
     /**
-     * getAllNotes: делегирует получение списка всех заметок из хранилища,
-     * используя noteRepository.getAllNotes.
+     * Читает заметки по id из индекса, сохраняя порядок. Заметка могла быть удалена
+     * между запросом к индексу и чтением из хранилища, такие места пропускаются.
      */
-    public List<Note> getAllNotes() {
-        return noteRepository.getAllNotes();
-    }
-
-//    /**
-//     * addNoteWithRestrictedWords принимает объект Note и проверяет его на наличие запрещенных слов.
-//     */
-//    public void addNoteWithRestrictedWords(Note note, List<String> restrictedWords) {
-//        if (note == null) {
-//            throw new IllegalArgumentException("Note cannot be null");
-//        }
-//        if (note.getId() <= 0) {
-//            throw new IllegalArgumentException("ID must be positive");
-//        }
-//        if (note.getTitle() == null || note.getTitle().trim().isEmpty()) {
-//            throw new IllegalArgumentException("Title cannot be null or empty");
-//        }
-//        if (note.getContent() == null || note.getContent().trim().isEmpty()) {
-//            throw new IllegalArgumentException("Content cannot be null or empty");
-//        }
-//        if (note.getTitle().length() > 255) {
-//            throw new IllegalArgumentException("Title is too long");
-//        }
-//        if (note.getContent().length() > 2048) {
-//            throw new IllegalArgumentException("Content is too long");
-//        }
-//
-//        restrictedWords = Arrays.asList("бля","пиздец","нахуй");
-//
-//        for (String word : restrictedWords) {
-//            if (note.getTitle().contains(word) || note.getContent().contains(word)) {
-//                throw new IllegalArgumentException("Note contains a restricted word");
-//            }
-//        }
-//        noteRepository.addNote(note);
-//    }
+    private List<Note> notesByIds(int[] ids) {
+        return noteRepository.getNotesByIds(ids).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Заполняет только что подписанный индекс содержимым хранилища. Обход хранилища дает
+     * только список id: каждая заметка перечитывается под блокировкой своей полосы, поэтому
+     * копия из обхода, устаревшая из-за одновременного обновления или удаления, не попадает
+     * в индекс после того, как слушатель уже получил более позднее изменение.
+     */
+    private void fill(NoteChangeListener index) {
+        int[] ids = noteRepository.streamNoteValues().mapToInt(ImmutableNote::getId).toArray();
+        for (int id : ids) {
+            ReentrantLock lock = writeLock(id);
+            lock.lock();
+            try {
+                ImmutableNote value = noteRepository.getNoteValue(id);
+                if (value != null) {
+                    index.onAdd(value.toNote());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ReentrantLock writeLock(int id) {
+        return writeLocks[stripe(id)];
+    }
+
+    private static int stripe(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (WRITE_STRIPES - 1);
+    }
+
+    /**
+     * Берет блокировку полосы id, если есть слушатели. Без слушателей возвращает null,
+     * и запись идет без блокировки.
+     */
+    private ReentrantLock lockIfListened(int id) {
+        if (listeners.isEmpty()) {
+            return null;
+        }
+        ReentrantLock lock = writeLock(id);
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * Завершает запись одной заметки: снимает блокировку, а если запись шла без нее, но
+     * слушатель появился во время записи, сообщает ему текущее состояние заметки.
+     */
+    private void afterWrite(ReentrantLock lock, int id, NoteChangeEvent.Type type, boolean changed) {
+        if (lock != null) {
+            lock.unlock();
+        } else if (changed) {
+            notifyCurrent(id, type);
+        }
+    }
+
+    private void notifyCurrent(Collection<Note> notes, NoteChangeEvent.Type type) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        for (Note note : notes) {
+            notifyCurrent(note.getId(), type);
+        }
+    }
+
+    /**
+     * Сообщает слушателям состояние заметки id, прочитанное из хранилища под блокировкой
+     * ее полосы. Так уведомления о записи, сделанной без блокировки, не обгоняют и не
+     * затирают уведомления о более поздних изменениях той же заметки: слушатель всегда
+     * получает последнее сохраненное состояние.
+     *
+     * @param type вид изменения; если заметки уже нет, слушатели получают onDelete
+     */
+    private void notifyCurrent(int id, NoteChangeEvent.Type type) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        ReentrantLock lock = writeLock(id);
+        lock.lock();
+        try {
+            ImmutableNote value = noteRepository.getNoteValue(id);
+            for (NoteChangeListener listener : listeners) {
+                if (value == null) {
+                    listener.onDelete(id);
+                } else if (type == NoteChangeEvent.Type.UPDATE) {
+                    listener.onUpdate(value.toNote());
+                } else {
+                    listener.onAdd(value.toNote());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ReentrantLock[] newWriteLocks() {
+        ReentrantLock[] locks = new ReentrantLock[WRITE_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private NoteIdSequence idSequence() {
+        NoteIdSequence ids = idSequence;
+        if (ids == null) {
+            synchronized (this) {
+                ids = idSequence;
+                if (ids == null) {
+                    // Начинаем за наибольшим сохраненным id, чтобы не перебирать занятые по одному
+                    int maxId = noteRepository.streamNoteValues().mapToInt(ImmutableNote::getId).max().orElse(0);
+                    ids = new NoteIdSequence(maxId > 0 && maxId < Integer.MAX_VALUE ? maxId + 1 : 1, 64);
+                    idSequence = ids;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static NoteValidator addRules(boolean checkId) {
+        NoteValidator.Builder rules = NoteValidator.builder()
+                .requireNote("Note cannot be null")
+                .requireNonBlank(NoteValidator.Field.TITLE, "Title cannot be null, or empty, or whitespace")
+                .requireNonBlank(NoteValidator.Field.CONTENT, "Content cannot be empty or whitespace");
+        if (checkId) {
+            rules.requirePositiveId("ID cannot be zero or negative");
+        }
+        return rules
+                .maxLength(NoteValidator.Field.TITLE, 255, "Title is too long")
+                .maxLength(NoteValidator.Field.CONTENT, 2048, "Content is too long")
+                .rejectRestrictedWords(RESTRICTED_WORD)
+                .compile();
+    }
+
+    private static long startTimer(NoteMetrics metrics) {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    private static void stopTimer(NoteMetrics metrics, NoteMetrics.Operation operation, long start, boolean completed) {
+        if (metrics != null) {
+            metrics.record(operation, System.nanoTime() - start);
+            if (!completed) {
+                metrics.recordError(operation);
+            }
+        }
+    }
+
+    /**
+     * Учитывает отказ в метриках и возвращает исключение с его сообщением.
+     */
+    private static IllegalArgumentException rejected(NoteMetrics metrics, String reason) {
+        return new IllegalArgumentException(rejectedReason(metrics, reason));
+    }
+
+    private static String rejectedReason(NoteMetrics metrics, String reason) {
+        if (metrics != null) {
+            metrics.recordValidationFailure(reason);
+        }
+        return reason;
+    }
+
+    /**
+     * Проверяет, что идентификатор заметки больше 0.
+     */
+    private static String findIdViolation(int id) {
+        if (id < 0) {
+            return "ID cannot be negative";
+        }
+        if (id == 0) {
+            return "ID cannot be zero";
+        }
+        return null;
+    }
 }
@@ -0,0 +1,262 @@
+package org.MyNote;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Класс NoteSnapshot - неизменяемая версия хранилища SnapshotNoteRepository на момент времени.
+ * Заметки хранятся в персистентном префиксном дереве (HAMT) по id: каждое изменение создает
+ * новую версию, которая разделяет с предыдущей все неизмененные узлы. Поэтому снимок
+ * получается за O(1), не копирует данные и не меняется при последующих записях.
+ * Старые версии освобождаются сборщиком мусора, когда на них не остается ссылок.
+ * Заметки хранятся как ImmutableNote: getNoteValue и streamNoteValues отдают их без копий,
+ * а getNoteById, getAllNotes и streamNotes возвращают изменяемые копии Note.
+ */
+public final class NoteSnapshot {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    static final NoteSnapshot EMPTY = new NoteSnapshot(Node.EMPTY, 0, 0);
+
+    private final Node root;
+    private final int size;
+    private final long version;
+
+    private NoteSnapshot(Node root, int size, long version) {
+        this.root = root;
+        this.size = size;
+        this.version = version;
+    }
+
+    /** Номер версии; увеличивается при каждой опубликованной записи. */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Note getNoteById(int id) {
+        ImmutableNote note = getNoteValue(id);
+        return note == null ? null : note.toNote();
+    }
+
+    public ImmutableNote getNoteValue(int id) {
+        int hash = hash(id);
+        Node node = root;
+        int shift = 0;
+        while (true) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object entry = node.entries[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (entry instanceof Node) {
+                node = (Node) entry;
+                shift += BITS;
+            } else {
+                ImmutableNote note = (ImmutableNote) entry;
+                return note.getId() == id ? note : null;
+            }
+        }
+    }
+
+    public List<Note> getAllNotes() {
+        List<Note> notes = new ArrayList<>(size);
+        Iterator<ImmutableNote> iterator = new NoteIterator(root);
+        while (iterator.hasNext()) {
+            notes.add(iterator.next().toNote());
+        }
+        return notes;
+    }
+
+    public Stream<Note> streamNotes() {
+        return streamNoteValues().map(ImmutableNote::toNote);
+    }
+
+    public Stream<ImmutableNote> streamNoteValues() {
+        Spliterator<ImmutableNote> spliterator = Spliterators.spliterator(new NoteIterator(root), size,
+                Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.DISTINCT);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Возвращает версию с добавленной или замененной заметкой.
+     */
+    NoteSnapshot with(ImmutableNote note) {
+        boolean exists = getNoteValue(note.getId()) != null;
+        Node newRoot = put(root, note, hash(note.getId()), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return new NoteSnapshot(newRoot, exists ? size : size + 1, version);
+    }
+
+    /**
+     * Возвращает версию без заметки с указанным id или эту же версию, если заметки нет.
+     */
+    NoteSnapshot without(int id) {
+        if (getNoteValue(id) == null) {
+            return this;
+        }
+        Node newRoot = remove(root, id, hash(id), 0);
+        return new NoteSnapshot(newRoot == null ? Node.EMPTY : newRoot, size - 1, version);
+    }
+
+    /**
+     * Возвращает это же состояние с номером версии, следующим за base.
+     */
+    NoteSnapshot publishedAfter(NoteSnapshot base) {
+        return new NoteSnapshot(root, size, base.version + 1);
+    }
+
+    private static Node put(Node node, ImmutableNote note, int hash, int shift) {
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            return node.insert(bit, index, note);
+        }
+        Object entry = node.entries[index];
+        if (entry instanceof Node) {
+            Node child = (Node) entry;
+            Node newChild = put(child, note, hash, shift + BITS);
+            return newChild == child ? node : node.replace(index, newChild);
+        }
+        ImmutableNote existing = (ImmutableNote) entry;
+        if (existing == note) {
+            return node;
+        }
+        if (existing.getId() == note.getId()) {
+            return node.replace(index, note);
+        }
+        return node.replace(index, merge(existing, hash(existing.getId()), note, hash, shift + BITS));
+    }
+
+    private static Node merge(ImmutableNote first, int firstHash, ImmutableNote second, int secondHash, int shift) {
+        // Хеш биективен, поэтому разные id различаются хотя бы в одной группе битов
+        int firstBit = 1 << ((firstHash >>> shift) & MASK);
+        int secondBit = 1 << ((secondHash >>> shift) & MASK);
+        if (firstBit == secondBit) {
+            return new Node(firstBit, new Object[]{merge(first, firstHash, second, secondHash, shift + BITS)});
+        }
+        Object[] entries = Integer.compareUnsigned(firstBit, secondBit) < 0
+                ? new Object[]{first, second}
+                : new Object[]{second, first};
+        return new Node(firstBit | secondBit, entries);
+    }
+
+    private static Node remove(Node node, int id, int hash, int shift) {
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Object entry = node.entries[index];
+        if (entry instanceof Node) {
+            Node newChild = remove((Node) entry, id, hash, shift + BITS);
+            if (newChild == null) {
+                return node.delete(bit, index);
+            }
+            // Узел с единственной заметкой поднимаем на уровень выше
+            if (newChild.entries.length == 1 && !(newChild.entries[0] instanceof Node)) {
+                return node.replace(index, newChild.entries[0]);
+            }
+            return node.replace(index, newChild);
+        }
+        return node.delete(bit, index);
+    }
+
+    private static int hash(int id) {
+        // Умножение на нечетную константу и xor-сдвиг обратимы: разные id дают разные хеши
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node {
+        static final Node EMPTY = new Node(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] entries;
+
+        Node(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+
+        Node insert(int bit, int index, Object entry) {
+            Object[] copy = new Object[entries.length + 1];
+            System.arraycopy(entries, 0, copy, 0, index);
+            copy[index] = entry;
+            System.arraycopy(entries, index, copy, index + 1, entries.length - index);
+            return new Node(bitmap | bit, copy);
+        }
+
+        Node replace(int index, Object entry) {
+            Object[] copy = entries.clone();
+            copy[index] = entry;
+            return new Node(bitmap, copy);
+        }
+
+        Node delete(int bit, int index) {
+            if (entries.length == 1) {
+                return null;
+            }
+            Object[] copy = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, copy, 0, index);
+            System.arraycopy(entries, index + 1, copy, index, entries.length - index - 1);
+            return new Node(bitmap & ~bit, copy);
+        }
+    }
+
+    private static final class NoteIterator implements Iterator<ImmutableNote> {
+        // Глубина дерева для 32-битного хеша не превышает 7 уровней
+        private final Node[] nodes = new Node[8];
+        private final int[] positions = new int[8];
+        private int depth;
+        private ImmutableNote next;
+
+        NoteIterator(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public ImmutableNote next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            ImmutableNote result = next;
+            advance();
+            return result;
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (positions[depth] == node.entries.length) {
+                    depth--;
+                    continue;
+                }
+                Object entry = node.entries[positions[depth]++];
+                if (entry instanceof Node) {
+                    depth++;
+                    nodes[depth] = (Node) entry;
+                    positions[depth] = 0;
+                } else {
+                    next = (ImmutableNote) entry;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.MyNote;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Класс NoteTimestampIndex - вторичный индекс заметок, упорядоченный по временной метке.
+ * Ключ индекса - пара (timestamp, id), поэтому заметки с одинаковым временем не теряются.
+ * Запросы по диапазону времени выполняются за O(log n + k), где k - размер ответа.
+ * Индекс потокобезопасен: изменения одной заметки применяются атомарно.
+ * Время хранится в миллисекундах эпохи, как в Note; границы запросов округляются
+ * вверх до миллисекунды, поэтому результат совпадает со сравнением LocalDateTime.
+ */
+public class NoteTimestampIndex implements NoteChangeListener {
+    private final ConcurrentSkipListMap<Key, Boolean> byTime = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, Key> byId = new ConcurrentHashMap<>();
+
+    /**
+     * Индексирует заметку по ее текущей временной метке, заменяя предыдущую запись.
+     */
+    public void index(Note note) {
+        long timestamp = note.getTimestampMillis();
+        byId.compute(note.getId(), (id, previous) -> {
+            if (previous != null) {
+                byTime.remove(previous);
+            }
+            if (timestamp == Note.NO_TIMESTAMP) {
+                return null;
+            }
+            Key key = new Key(timestamp, id);
+            byTime.put(key, Boolean.TRUE);
+            return key;
+        });
+    }
+
+    public void indexAll(Collection<Note> notes) {
+        for (Note note : notes) {
+            index(note);
+        }
+    }
+
+    public void remove(int id) {
+        byId.computeIfPresent(id, (key, previous) -> {
+            byTime.remove(previous);
+            return null;
+        });
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public void onAdd(Note note) {
+        index(note);
+    }
+
+    @Override
+    public void onUpdate(Note note) {
+        index(note);
+    }
+
+    @Override
+    public void onDelete(int id) {
+        remove(id);
+    }
+
+    /**
+     * Возвращает id заметок с временной меткой в полуинтервале [from, to) по возрастанию времени.
+     */
+    public int[] idsBetween(LocalDateTime from, LocalDateTime to) {
+        return ids(byTime.subMap(Key.lowest(ceilMillis(from)), true, Key.lowest(ceilMillis(to)), false));
+    }
+
+    /**
+     * Возвращает id заметок, измененных в момент since или позже, по возрастанию времени.
+     */
+    public int[] idsChangedSince(LocalDateTime since) {
+        return ids(byTime.tailMap(Key.lowest(ceilMillis(since)), true));
+    }
+
+    /**
+     * Возвращает id не более чем limit самых новых заметок, начиная с самой новой.
+     */
+    public int[] newestIds(int limit) {
+        return ids(byTime.descendingMap(), limit);
+    }
+
+    /**
+     * Передает id заметок с временной меткой в полуинтервале [fromMillis, toMillis)
+     * по возрастанию или убыванию времени, пока action возвращает true.
+     */
+    void forEachId(long fromMillis, long toMillis, boolean descending, IntPredicate action) {
+        NavigableMap<Key, Boolean> range = byTime.subMap(Key.lowest(fromMillis), true, Key.lowest(toMillis), false);
+        for (Key key : (descending ? range.descendingMap() : range).keySet()) {
+            if (!action.test(key.id)) {
+                return;
+            }
+        }
+    }
+
+    static long ceilMillis(LocalDateTime time) {
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return time.getNano() % 1_000_000 == 0 ? millis : millis + 1;
+    }
+
+    private static int[] ids(NavigableMap<Key, Boolean> range) {
+        return ids(range, Integer.MAX_VALUE);
+    }
+
+    private static int[] ids(NavigableMap<Key, Boolean> range, int limit) {
+        // Размер диапазона skip-листа считается обходом, поэтому собираем в растущий массив
+        int[] ids = new int[Math.min(limit, 16)];
+        int count = 0;
+        for (Key key : range.keySet()) {
+            if (count == limit) {
+                break;
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, (int) Math.min(limit, (long) count << 1));
+            }
+            ids[count++] = key.id;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final long timestamp;
+        final int id;
+
+        Key(long timestamp, int id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        /** Ключ, который меньше всех ключей с тем же временем. */
+        static Key lowest(long timestamp) {
+            return new Key(timestamp, Integer.MIN_VALUE);
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byTimestamp = Long.compare(timestamp, other.timestamp);
+            return byTimestamp != 0 ? byTimestamp : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && compareTo((Key) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(timestamp) * 31 + id;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.MyNote;
+
+import java.util.Map;
+
+/**
+ * Интерфейс NoteValidationMXBean - JMX-представление отказов проверки заметок NoteServiceImpl.
+ */
+public interface NoteValidationMXBean {
+    long getFailureCount();
+
+    /** Число отказов по сообщению об ошибке. */
+    Map<String, Long> getFailuresByReason();
+}
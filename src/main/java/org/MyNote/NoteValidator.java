@@ -0,0 +1,224 @@
+package org.MyNote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Класс NoteValidator - набор правил проверки заметки, скомпилированный в один проверяющий
+ * проход. Правила задаются декларативно через builder() в порядке проверки, validate
+ * возвращает сообщение первого нарушенного правила.
+ *
+ * Текст заметки хранится в UTF-8, и все правила для поля используют результат одного
+ * прохода по его байтам: пустота, пробельность (в смысле String.trim) и длина в символах
+ * UTF-16 определяются без декодирования в строку. Запрещенные слова тоже ищутся прямо
+ * в байтах, поэтому проверка корректной заметки не выделяет память.
+ *
+ * validate не бросает исключений и подходит для массовой загрузки; check бросает
+ * IllegalArgumentException с тем же сообщением.
+ */
+public final class NoteValidator {
+    public enum Field {
+        TITLE,
+        CONTENT
+    }
+
+    private static final int ID_NOT_POSITIVE = 0;
+    private static final int ID_NEGATIVE = 1;
+    private static final int ID_ZERO = 2;
+    private static final int NULL = 3;
+    private static final int EMPTY = 4;
+    private static final int BLANK = 5;
+    private static final int TOO_LONG = 6;
+    private static final int RESTRICTED = 7;
+
+    // Результат прохода по тексту: длина в младших 32 битах, признак пробельного текста в бите 32
+    private static final long BLANK_FLAG = 1L << 32;
+    private static final long NOT_SCANNED = -1;
+
+    private final String nullNoteMessage;
+    private final int[] kinds;
+    private final Field[] fields;
+    private final int[] limits;
+    private final String[] messages;
+
+    private NoteValidator(Builder builder) {
+        this.nullNoteMessage = builder.nullNoteMessage;
+        int size = builder.kinds.size();
+        this.kinds = new int[size];
+        this.fields = new Field[size];
+        this.limits = new int[size];
+        this.messages = new String[size];
+        for (int i = 0; i < size; i++) {
+            kinds[i] = builder.kinds.get(i);
+            fields[i] = builder.fields.get(i);
+            limits[i] = builder.limits.get(i);
+            messages[i] = builder.messages.get(i);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Проверяет заметку.
+     *
+     * @param matcher автомат запрещенных слов для правила rejectRestrictedWords
+     * @return сообщение первого нарушенного правила или null, если заметка корректна
+     */
+    public String validate(Note note, RestrictedWordsMatcher matcher) {
+        if (note == null) {
+            return Objects.requireNonNull(nullNoteMessage, "Note cannot be null");
+        }
+        byte[] title = note.titleBytes();
+        byte[] content = note.contentBytes();
+        long titleScan = NOT_SCANNED;
+        long contentScan = NOT_SCANNED;
+        for (int i = 0; i < kinds.length; i++) {
+            int kind = kinds[i];
+            boolean violated;
+            if (kind <= ID_ZERO) {
+                int id = note.getId();
+                violated = kind == ID_NOT_POSITIVE ? id <= 0 : kind == ID_NEGATIVE ? id < 0 : id == 0;
+            } else if (kind == RESTRICTED) {
+                violated = matcher.containsAny(title) || matcher.containsAny(content);
+            } else {
+                byte[] text = fields[i] == Field.TITLE ? title : content;
+                if (text == null) {
+                    violated = kind != TOO_LONG;
+                } else if (kind == NULL) {
+                    violated = false;
+                } else if (kind == EMPTY) {
+                    violated = text.length == 0;
+                } else {
+                    long scan;
+                    if (fields[i] == Field.TITLE) {
+                        if (titleScan == NOT_SCANNED) {
+                            titleScan = scan(title);
+                        }
+                        scan = titleScan;
+                    } else {
+                        if (contentScan == NOT_SCANNED) {
+                            contentScan = scan(content);
+                        }
+                        scan = contentScan;
+                    }
+                    violated = kind == BLANK ? (scan & BLANK_FLAG) != 0 : (int) scan > limits[i];
+                }
+            }
+            if (violated) {
+                return messages[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * То же, что validate, но нарушение сообщается исключением.
+     *
+     * @throws IllegalArgumentException с сообщением первого нарушенного правила
+     */
+    public void check(Note note, RestrictedWordsMatcher matcher) {
+        String violation = validate(note, matcher);
+        if (violation != null) {
+            throw new IllegalArgumentException(violation);
+        }
+    }
+
+    /**
+     * Один проход по байтам UTF-8. Длина считается в символах UTF-16, как String.length:
+     * каждый символ дает один начальный байт, а четырехбайтовый - суррогатную пару.
+     * Текст пробельный, если все символы не больше U+0020, как после String.trim; байты
+     * многобайтовых символов больше 0x7F, поэтому такие символы пробельными не считаются.
+     */
+    private static long scan(byte[] text) {
+        int length = 0;
+        boolean blank = true;
+        for (byte value : text) {
+            int b = value & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                length += b >= 0xF0 ? 2 : 1;
+            }
+            if (b > ' ') {
+                blank = false;
+            }
+        }
+        return blank ? BLANK_FLAG | length : length;
+    }
+
+    /**
+     * Builder - правила в порядке их проверки.
+     */
+    public static final class Builder {
+        private String nullNoteMessage;
+        private final List<Integer> kinds = new ArrayList<>();
+        private final List<Field> fields = new ArrayList<>();
+        private final List<Integer> limits = new ArrayList<>();
+        private final List<String> messages = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Заметка не null; проверяется раньше всех остальных правил. Без этого правила
+         * validate(null) бросает NullPointerException.
+         */
+        public Builder requireNote(String message) {
+            nullNoteMessage = message;
+            return this;
+        }
+
+        /** id больше нуля. */
+        public Builder requirePositiveId(String message) {
+            return add(ID_NOT_POSITIVE, null, 0, message);
+        }
+
+        /** id не меньше нуля. */
+        public Builder requireNonNegativeId(String message) {
+            return add(ID_NEGATIVE, null, 0, message);
+        }
+
+        /** id не равен нулю. */
+        public Builder requireNonZeroId(String message) {
+            return add(ID_ZERO, null, 0, message);
+        }
+
+        /** Поле не null. */
+        public Builder requireNonNull(Field field, String message) {
+            return add(NULL, field, 0, message);
+        }
+
+        /** Поле не null и не пустое. */
+        public Builder requireNonEmpty(Field field, String message) {
+            return add(EMPTY, field, 0, message);
+        }
+
+        /** Поле не null и содержит хотя бы один символ, кроме пробельных. */
+        public Builder requireNonBlank(Field field, String message) {
+            return add(BLANK, field, 0, message);
+        }
+
+        /** Поле не длиннее maxLength символов; null этим правилом не проверяется. */
+        public Builder maxLength(Field field, int maxLength, String message) {
+            return add(TOO_LONG, field, maxLength, message);
+        }
+
+        /** Ни заголовок, ни содержимое не содержат запрещенных слов. */
+        public Builder rejectRestrictedWords(String message) {
+            return add(RESTRICTED, null, 0, message);
+        }
+
+        public NoteValidator compile() {
+            return new NoteValidator(this);
+        }
+
+        private Builder add(int kind, Field field, int limit, String message) {
+            kinds.add(kind);
+            fields.add(field);
+            limits.add(limit);
+            messages.add(message);
+            return this;
+        }
+    }
+}
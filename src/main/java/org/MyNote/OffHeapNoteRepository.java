@@ -0,0 +1,356 @@
+package org.MyNote;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Класс OffHeapNoteRepository - хранилище заметок вне кучи Java.
+ * Заметки хранятся в формате NoteCodec в прямых ByteBuffer-слэбах по 8 МБ. В куче
+ * находится только примитивный индекс id -> адрес записи и списки свободных блоков,
+ * поэтому число заметок почти не влияет на работу сборщика мусора. Объекты Note
+ * создаются только при чтении и не связаны с хранилищем: изменение возвращенной
+ * заметки не меняет сохраненную.
+ *
+ * Память выделяется блоками фиксированных классов размера (шаг около 25%), освобожденные
+ * блоки попадают в список свободных своего класса и используются повторно. Слэбы
+ * не возвращаются системе до сборки самого хранилища.
+ */
+public class OffHeapNoteRepository implements NoteRepository {
+    // Адрес записи упакован в неотрицательный int: номер слэба и смещение в единицах ALIGNMENT
+    private static final int SLAB_SHIFT = 23;
+    private static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+    private static final int ALIGNMENT_SHIFT = 4;
+    private static final int ALIGNMENT = 1 << ALIGNMENT_SHIFT;
+    private static final int OFFSET_BITS = SLAB_SHIFT - ALIGNMENT_SHIFT;
+    private static final int MAX_SLABS = 1 << (31 - OFFSET_BITS);
+    private static final int[] CLASS_SIZES = classSizes();
+
+    private final IntIntHashMap addresses = new IntIntHashMap();
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final int[][] freeLists = new int[CLASS_SIZES.length][];
+    private final int[] freeCounts = new int[CLASS_SIZES.length];
+    private ByteBuffer currentSlab;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void addNote(Note note) {
+        lock.writeLock().lock();
+        try {
+            store(note);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateNote(Note note) {
+        updateNoteIfPresent(note);
+    }
+
+    @Override
+    public void deleteNote(int id) {
+        deleteNoteIfPresent(id);
+    }
+
+    @Override
+    public boolean addNoteIfAbsent(Note note) {
+        lock.writeLock().lock();
+        try {
+            if (addresses.containsKey(note.getId())) {
+                return false;
+            }
+            store(note);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateNoteIfPresent(Note note) {
+        lock.writeLock().lock();
+        try {
+            if (!addresses.containsKey(note.getId())) {
+                return false;
+            }
+            store(note);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            int address = addresses.get(note.getId());
+            if (address == IntIntHashMap.NO_VALUE) {
+                return UpdateResult.NOT_FOUND;
+            }
+            if (versionAt(address) != expectedVersion) {
+                return UpdateResult.VERSION_CONFLICT;
+            }
+            store(note);
+            return UpdateResult.UPDATED;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteNoteIfPresent(int id) {
+        lock.writeLock().lock();
+        try {
+            int address = addresses.remove(id);
+            if (address == IntIntHashMap.NO_VALUE) {
+                return false;
+            }
+            free(address);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addNotes(Collection<Note> notes) {
+        lock.writeLock().lock();
+        try {
+            for (Note note : notes) {
+                store(note);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean[] updateNotes(Collection<Note> notes) {
+        boolean[] updated = new boolean[notes.size()];
+        lock.writeLock().lock();
+        try {
+            int i = 0;
+            for (Note note : notes) {
+                if (addresses.containsKey(note.getId())) {
+                    store(note);
+                    updated[i] = true;
+                }
+                i++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean[] deleteNotes(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                int address = addresses.remove(ids[i]);
+                if (address != IntIntHashMap.NO_VALUE) {
+                    free(address);
+                    deleted[i] = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return deleted;
+    }
+
+    @Override
+    public Note getNoteById(int id) {
+        lock.readLock().lock();
+        try {
+            int address = addresses.get(id);
+            return address == IntIntHashMap.NO_VALUE ? null : load(address);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Note> getAllNotes() {
+        lock.readLock().lock();
+        try {
+            List<Note> notes = new ArrayList<>(addresses.size());
+            addresses.forEach((id, address) -> notes.add(load(address)));
+            return notes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Обходит заметки по снимку id, создавая объекты Note по одному при обходе.
+     * Заметки, удаленные во время обхода, пропускаются.
+     */
+    @Override
+    public Stream<Note> streamNotes() {
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            ids = new int[addresses.size()];
+            int[] count = new int[1];
+            addresses.forEach((id, address) -> ids[count[0]++] = id);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Arrays.stream(ids).mapToObj(this::getNoteById).filter(Objects::nonNull);
+    }
+
+    /** Объем памяти вне кучи, занятый слэбами, в байтах. */
+    public long getReservedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) slabs.size() * SLAB_SIZE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Записывает заметку, заменяя предыдущую запись с тем же id. Если новая запись
+     * помещается в блок старой, блок перезаписывается на месте. Вызывается под writeLock.
+     */
+    private void store(Note note) {
+        int sizeClass = sizeClassOf(NoteCodec.encodedSize(note));
+        int previous = addresses.get(note.getId());
+        long version = previous == IntIntHashMap.NO_VALUE ? 1 : versionAt(previous) + 1;
+        int address;
+        if (previous != IntIntHashMap.NO_VALUE && sizeClassAt(previous) == sizeClass) {
+            address = previous;
+        } else {
+            // Старый блок освобождается только после выделения нового: если выделить память
+            // не удалось, сохраненная заметка и переданный объект остаются прежними
+            address = allocate(sizeClass);
+        }
+        ByteBuffer slab = slabs.get(slabOf(address));
+        int offset = offsetOf(address);
+        // Первый байт блока - класс размера, нужен для освобождения
+        slab.put(offset, (byte) sizeClass);
+        NoteCodec.write(slab.slice(offset + 1, CLASS_SIZES[sizeClass] - 1), note, version);
+        if (address != previous) {
+            if (previous != IntIntHashMap.NO_VALUE) {
+                free(previous);
+            }
+            addresses.put(note.getId(), address);
+        }
+        note.setVersion(version);
+    }
+
+    private Note load(int address) {
+        int offset = offsetOf(address);
+        ByteBuffer slab = slabs.get(slabOf(address));
+        return NoteCodec.read(slab.slice(offset + 1, CLASS_SIZES[slab.get(offset)] - 1));
+    }
+
+    private long versionAt(int address) {
+        return NoteCodec.versionAt(slabs.get(slabOf(address)), offsetOf(address) + 1);
+    }
+
+    private int allocate(int sizeClass) {
+        if (freeCounts[sizeClass] > 0) {
+            return freeLists[sizeClass][--freeCounts[sizeClass]];
+        }
+        int size = CLASS_SIZES[sizeClass];
+        if (currentSlab == null || currentSlab.remaining() < size) {
+            if (currentSlab != null) {
+                releaseTail(currentSlab);
+            }
+            if (slabs.size() == MAX_SLABS) {
+                throw new IllegalStateException("Off-heap storage is full");
+            }
+            currentSlab = ByteBuffer.allocateDirect(SLAB_SIZE);
+            slabs.add(currentSlab);
+        }
+        int offset = currentSlab.position();
+        currentSlab.position(offset + size);
+        return address(slabs.size() - 1, offset);
+    }
+
+    /**
+     * Разбивает неиспользованный хвост слэба на свободные блоки наибольших подходящих классов.
+     */
+    private void releaseTail(ByteBuffer slab) {
+        int slabIndex = slabs.size() - 1;
+        while (slab.remaining() >= CLASS_SIZES[0]) {
+            int sizeClass = Arrays.binarySearch(CLASS_SIZES, slab.remaining());
+            if (sizeClass < 0) {
+                sizeClass = -sizeClass - 2;
+            }
+            int offset = slab.position();
+            slab.position(offset + CLASS_SIZES[sizeClass]);
+            slab.put(offset, (byte) sizeClass);
+            free(address(slabIndex, offset));
+        }
+    }
+
+    private void free(int address) {
+        int sizeClass = sizeClassAt(address);
+        int[] list = freeLists[sizeClass];
+        if (list == null) {
+            list = freeLists[sizeClass] = new int[16];
+        } else if (freeCounts[sizeClass] == list.length) {
+            list = freeLists[sizeClass] = Arrays.copyOf(list, list.length << 1);
+        }
+        list[freeCounts[sizeClass]++] = address;
+    }
+
+    private int sizeClassAt(int address) {
+        return slabs.get(slabOf(address)).get(offsetOf(address));
+    }
+
+    /** Наименьший класс, вмещающий запись вместе с байтом класса. */
+    private static int sizeClassOf(int encodedSize) {
+        int index = Arrays.binarySearch(CLASS_SIZES, encodedSize + 1);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index == CLASS_SIZES.length) {
+            throw new IllegalArgumentException("Note is too large for off-heap storage");
+        }
+        return index;
+    }
+
+    /** Классы размера от 32 байт до размера слэба с шагом около 25%, кратные ALIGNMENT. */
+    private static int[] classSizes() {
+        List<Integer> sizes = new ArrayList<>();
+        int size = 32;
+        while (true) {
+            sizes.add(size);
+            if (size == SLAB_SIZE) {
+                break;
+            }
+            int next = size + Math.max(ALIGNMENT, size >> 2);
+            size = Math.min((next + ALIGNMENT - 1) & -ALIGNMENT, SLAB_SIZE);
+        }
+        int[] result = new int[sizes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sizes.get(i);
+        }
+        return result;
+    }
+
+    private static int address(int slab, int offset) {
+        return (slab << OFFSET_BITS) | (offset >>> ALIGNMENT_SHIFT);
+    }
+
+    private static int slabOf(int address) {
+        return address >>> OFFSET_BITS;
+    }
+
+    private static int offsetOf(int address) {
+        return (address & ((1 << OFFSET_BITS) - 1)) << ALIGNMENT_SHIFT;
+    }
+}
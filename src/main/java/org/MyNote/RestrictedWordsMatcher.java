@@ -0,0 +1,199 @@
+package org.MyNote;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Класс RestrictedWordsMatcher - автомат Ахо-Корасик для поиска запрещенных слов.
+ * Автомат строится один раз по списку слов и проверяет текст за один проход независимо
+ * от размера списка. Сравнение выполняется без учета регистра, "ё" приравнивается к "е".
+ * Экземпляр неизменяем и может одновременно использоваться из разных потоков.
+ */
+public final class RestrictedWordsMatcher {
+    /** Автомат без слов: никакой текст не содержит запрещенных слов. */
+    public static final RestrictedWordsMatcher EMPTY = compile(List.of());
+
+    // Переходы состояния s лежат в labels/targets на отрезке [childStart[s], childStart[s + 1]),
+    // метки отсортированы для двоичного поиска
+    private final int[] childStart;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] fail;
+    private final boolean[] accepting;
+    private final int wordCount;
+
+    private RestrictedWordsMatcher(int[] childStart, char[] labels, int[] targets, int[] fail,
+                                   boolean[] accepting, int wordCount) {
+        this.childStart = childStart;
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.accepting = accepting;
+        this.wordCount = wordCount;
+    }
+
+    /**
+     * Строит автомат по списку слов. Пустые слова и null пропускаются.
+     */
+    public static RestrictedWordsMatcher compile(Collection<String> words) {
+        // Строим бор на изменяемых узлах, затем упаковываем его в массивы
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Boolean> terminal = new ArrayList<>();
+        children.add(new TreeMap<>());
+        terminal.add(false);
+        int wordCount = 0;
+        for (String word : words) {
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = normalize(word.charAt(i));
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(c, next);
+                    children.add(new TreeMap<>());
+                    terminal.add(false);
+                }
+                state = next;
+            }
+            terminal.set(state, true);
+            wordCount++;
+        }
+
+        int states = children.size();
+        int[] childStart = new int[states + 1];
+        for (int s = 0; s < states; s++) {
+            childStart[s + 1] = childStart[s] + children.get(s).size();
+        }
+        char[] labels = new char[childStart[states]];
+        int[] targets = new int[childStart[states]];
+        for (int s = 0; s < states; s++) {
+            int offset = childStart[s];
+            for (Map.Entry<Character, Integer> edge : children.get(s).entrySet()) {
+                labels[offset] = edge.getKey();
+                targets[offset++] = edge.getValue();
+            }
+        }
+
+        // Суффиксные ссылки считаем обходом в ширину; состояние допускающее,
+        // если допускающим является оно само или любое состояние по цепочке ссылок
+        int[] fail = new int[states];
+        boolean[] accepting = new boolean[states];
+        for (int s = 0; s < states; s++) {
+            accepting[s] = terminal.get(s);
+        }
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int i = childStart[0]; i < childStart[1]; i++) {
+            queue.add(targets[i]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = childStart[state]; i < childStart[state + 1]; i++) {
+                int child = targets[i];
+                char c = labels[i];
+                int f = fail[state];
+                int next;
+                while ((next = transition(childStart, labels, targets, f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next >= 0 ? next : 0;
+                accepting[child] |= accepting[fail[child]];
+                queue.add(child);
+            }
+        }
+        return new RestrictedWordsMatcher(childStart, labels, targets, fail, accepting, wordCount);
+    }
+
+    /** Число слов, по которым построен автомат. */
+    public int size() {
+        return wordCount;
+    }
+
+    /**
+     * Проверяет, содержит ли текст хотя бы одно запрещенное слово.
+     */
+    public boolean containsAny(CharSequence text) {
+        if (text == null || wordCount == 0) {
+            return false;
+        }
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            state = step(state, text.charAt(i));
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * То же, что containsAny(CharSequence), для текста в UTF-8: символы декодируются
+     * по ходу проверки, строка не создается.
+     */
+    boolean containsAny(byte[] utf8) {
+        if (utf8 == null || wordCount == 0) {
+            return false;
+        }
+        int state = 0;
+        int i = 0;
+        while (i < utf8.length) {
+            int b = utf8[i] & 0xFF;
+            int codePoint;
+            if (b < 0x80) {
+                codePoint = b;
+                i++;
+            } else if (b < 0xE0) {
+                codePoint = (b & 0x1F) << 6 | (utf8[i + 1] & 0x3F);
+                i += 2;
+            } else if (b < 0xF0) {
+                codePoint = (b & 0x0F) << 12 | (utf8[i + 1] & 0x3F) << 6 | (utf8[i + 2] & 0x3F);
+                i += 3;
+            } else {
+                codePoint = (b & 0x07) << 18 | (utf8[i + 1] & 0x3F) << 12 | (utf8[i + 2] & 0x3F) << 6 | (utf8[i + 3] & 0x3F);
+                i += 4;
+            }
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                state = step(state, (char) codePoint);
+            } else {
+                // Символ вне BMP проверяется как суррогатная пара, так же как в строке
+                state = step(state, Character.highSurrogate(codePoint));
+                if (accepting[state]) {
+                    return true;
+                }
+                state = step(state, Character.lowSurrogate(codePoint));
+            }
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int step(int state, char c) {
+        char normalized = normalize(c);
+        int next;
+        while ((next = transition(childStart, labels, targets, state, normalized)) < 0 && state != 0) {
+            state = fail[state];
+        }
+        return next >= 0 ? next : 0;
+    }
+
+    private static int transition(int[] childStart, char[] labels, int[] targets, int state, char c) {
+        int index = Arrays.binarySearch(labels, childStart[state], childStart[state + 1], c);
+        return index >= 0 ? targets[index] : -1;
+    }
+
+    private static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
@@ -0,0 +1,373 @@
+package org.MyNote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Класс ShardedNoteRepository - хранилище, разделенное на N независимых частей (шардов)
+ * по хешу id. Шардом может быть любой NoteRepository. Операции с одной заметкой
+ * обращаются только к ее шарду, пакетные операции группируют элементы по шардам,
+ * а обход всех заметок (getAllNotes, count, findNotes, getNotesPage) выполняется по всем
+ * шардам параллельно в ForkJoinPool и объединяет результаты.
+ *
+ * Каждый шард защищен своей блокировкой чтения-записи, поэтому шардами могут быть
+ * и непотокобезопасные хранилища вроде InMemoryNoteRepository: записи в разные шарды
+ * не конкурируют, а пропускная способность записи растет с числом шардов.
+ * streamNotes обходит шарды по очереди и копирует содержимое каждого шарда под его
+ * блокировкой, когда обход до него доходит.
+ */
+public class ShardedNoteRepository implements NoteRepository {
+    private final NoteRepository[] shards;
+    private final ReentrantReadWriteLock[] locks;
+    private final ForkJoinPool pool;
+
+    /**
+     * Создает по одному шарду InMemoryNoteRepository на каждый процессор и использует
+     * общий ForkJoinPool.
+     */
+    public ShardedNoteRepository() {
+        this(Runtime.getRuntime().availableProcessors(), index -> new InMemoryNoteRepository(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param shardCount число шардов
+     * @param factory    создает шард по его номеру
+     * @param pool       пул для параллельного обхода шардов
+     */
+    public ShardedNoteRepository(int shardCount, IntFunction<NoteRepository> factory, ForkJoinPool pool) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.shards = new NoteRepository[shardCount];
+        this.locks = new ReentrantReadWriteLock[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = factory.apply(i);
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        this.pool = pool;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void addNote(Note note) {
+        int shard = shardOf(note.getId());
+        write(shard, () -> {
+            shards[shard].addNote(note);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateNote(Note note) {
+        int shard = shardOf(note.getId());
+        write(shard, () -> {
+            shards[shard].updateNote(note);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteNote(int id) {
+        int shard = shardOf(id);
+        write(shard, () -> {
+            shards[shard].deleteNote(id);
+            return null;
+        });
+    }
+
+    @Override
+    public Note getNoteById(int id) {
+        int shard = shardOf(id);
+        return read(shard, () -> shards[shard].getNoteById(id));
+    }
+
+    @Override
+    public ImmutableNote getNoteValue(int id) {
+        int shard = shardOf(id);
+        return read(shard, () -> shards[shard].getNoteValue(id));
+    }
+
+    @Override
+    public boolean addNoteIfAbsent(Note note) {
+        int shard = shardOf(note.getId());
+        return write(shard, () -> shards[shard].addNoteIfAbsent(note));
+    }
+
+    @Override
+    public boolean updateNoteIfPresent(Note note) {
+        int shard = shardOf(note.getId());
+        return write(shard, () -> shards[shard].updateNoteIfPresent(note));
+    }
+
+    @Override
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        int shard = shardOf(note.getId());
+        return write(shard, () -> shards[shard].updateNoteIfVersion(note, expectedVersion));
+    }
+
+    @Override
+    public boolean deleteNoteIfPresent(int id) {
+        int shard = shardOf(id);
+        return write(shard, () -> shards[shard].deleteNoteIfPresent(id));
+    }
+
+    /**
+     * Все заметки; шарды читаются параллельно, порядок заметок не гарантируется.
+     */
+    @Override
+    public List<Note> getAllNotes() {
+        List<List<Note>> parts = fanOut(shard -> read(shard, () -> shards[shard].getAllNotes()));
+        return concat(parts);
+    }
+
+    @Override
+    public Stream<Note> streamNotes() {
+        return IntStream.range(0, shards.length)
+                .mapToObj(shard -> read(shard, () -> shards[shard].getAllNotes()))
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public Stream<ImmutableNote> streamNoteValues() {
+        return IntStream.range(0, shards.length)
+                .mapToObj(shard -> read(shard, () -> shards[shard].streamNoteValues().collect(Collectors.toList())))
+                .flatMap(List::stream);
+    }
+
+    /** Число заметок во всех шардах. */
+    public long count() {
+        return count(note -> true);
+    }
+
+    /** Число заметок, удовлетворяющих условию; шарды проверяются параллельно. */
+    public long count(Predicate<? super Note> filter) {
+        List<Long> counts = fanOut(shard -> read(shard, () -> shards[shard].streamNotes().filter(filter).count()));
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** Заметки, удовлетворяющие условию; шарды проверяются параллельно, порядок не гарантируется. */
+    public List<Note> findNotes(Predicate<? super Note> filter) {
+        List<List<Note>> parts = fanOut(shard -> read(shard,
+                () -> shards[shard].streamNotes().filter(filter).collect(Collectors.toList())));
+        return concat(parts);
+    }
+
+    /**
+     * Страница из limit наименьших id больше afterId: каждый шард отдает свою страницу,
+     * страницы сливаются по возрастанию id.
+     */
+    @Override
+    public List<Note> getNotesPage(int afterId, int limit) {
+        List<List<Note>> pages = fanOut(shard -> read(shard, () -> shards[shard].getNotesPage(afterId, limit)));
+        // Слияние отсортированных страниц: в куче лежит по одной позиции от каждой страницы
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.comparingInt(
+                (int[] head) -> pages.get(head[0]).get(head[1]).getId()));
+        int available = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            if (!pages.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+                available += pages.get(i).size();
+            }
+        }
+        List<Note> page = new ArrayList<>(Math.min(limit, available));
+        while (page.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Note> source = pages.get(head[0]);
+            page.add(source.get(head[1]));
+            if (++head[1] < source.size()) {
+                heads.add(head);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Отбор выполняется в каждом шарде параллельно, каждый шард возвращает до limit
+     * заметок, результаты объединяются.
+     */
+    @Override
+    public List<ImmutableNote> findNoteValues(Predicate<? super ImmutableNote> filter,
+                                              Comparator<? super ImmutableNote> order, int limit) {
+        List<List<ImmutableNote>> parts = fanOut(shard -> read(shard,
+                () -> shards[shard].findNoteValues(filter, order, limit)));
+        return NoteScan.merge(parts, order, limit);
+    }
+
+    /**
+     * Пакет делится по шардам, и части добавляются параллельно.
+     */
+    @Override
+    public void addNotes(Collection<Note> notes) {
+        List<List<Note>> parts = partition(notes);
+        fanOut(shard -> parts.get(shard).isEmpty() ? null : write(shard, () -> {
+            shards[shard].addNotes(parts.get(shard));
+            return null;
+        }));
+    }
+
+    @Override
+    public boolean[] updateNotes(Collection<Note> notes) {
+        List<List<Note>> parts = partition(notes);
+        List<boolean[]> results = fanOut(shard -> parts.get(shard).isEmpty()
+                ? new boolean[0]
+                : write(shard, () -> shards[shard].updateNotes(parts.get(shard))));
+        // Результаты шардов возвращаются на места элементов исходного пакета
+        boolean[] updated = new boolean[notes.size()];
+        int[] next = new int[shards.length];
+        int index = 0;
+        for (Note note : notes) {
+            int shard = shardOf(note.getId());
+            updated[index++] = results.get(shard)[next[shard]++];
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean[] deleteNotes(int[] ids) {
+        int[] sizes = new int[shards.length];
+        for (int id : ids) {
+            sizes[shardOf(id)]++;
+        }
+        int[][] parts = new int[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            parts[i] = new int[sizes[i]];
+        }
+        int[] next = new int[shards.length];
+        for (int id : ids) {
+            int shard = shardOf(id);
+            parts[shard][next[shard]++] = id;
+        }
+        List<boolean[]> results = fanOut(shard -> parts[shard].length == 0
+                ? new boolean[0]
+                : write(shard, () -> shards[shard].deleteNotes(parts[shard])));
+        boolean[] deleted = new boolean[ids.length];
+        next = new int[shards.length];
+        for (int i = 0; i < ids.length; i++) {
+            int shard = shardOf(ids[i]);
+            deleted[i] = results.get(shard)[next[shard]++];
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Note> getNotesByIds(int[] ids) {
+        List<Note> notes = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            notes.add(getNoteById(id));
+        }
+        return notes;
+    }
+
+    private int shardOf(int id) {
+        int h = id * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    private List<List<Note>> partition(Collection<Note> notes) {
+        List<List<Note>> parts = new ArrayList<>(shards.length);
+        int expected = notes.size() / shards.length + 1;
+        for (int i = 0; i < shards.length; i++) {
+            parts.add(new ArrayList<>(expected));
+        }
+        for (Note note : notes) {
+            parts.get(shardOf(note.getId())).add(note);
+        }
+        return parts;
+    }
+
+    private <T> T read(int shard, Supplier<T> operation) {
+        ReentrantReadWriteLock.ReadLock lock = locks[shard].readLock();
+        lock.lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T write(int shard, Supplier<T> operation) {
+        ReentrantReadWriteLock.WriteLock lock = locks[shard].writeLock();
+        lock.lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Выполняет операцию для каждого шарда в пуле и возвращает результаты по номерам шардов.
+     */
+    private <T> List<T> fanOut(IntFunction<T> operation) {
+        Object[] results = new Object[shards.length];
+        if (shards.length == 1) {
+            results[0] = operation.apply(0);
+        } else {
+            pool.invoke(new ShardTask(operation, results, 0, shards.length));
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    private static List<Note> concat(List<List<Note>> parts) {
+        int size = 0;
+        for (List<Note> part : parts) {
+            size += part.size();
+        }
+        List<Note> notes = new ArrayList<>(size);
+        for (List<Note> part : parts) {
+            notes.addAll(part);
+        }
+        return notes;
+    }
+
+    /**
+     * Делит диапазон шардов пополам, пока в нем не останется один шард.
+     * Задача живет только внутри пула и не сериализуется.
+     */
+    @SuppressWarnings("serial")
+    private static final class ShardTask extends RecursiveAction {
+        private final IntFunction<?> operation;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        ShardTask(IntFunction<?> operation, Object[] results, int from, int to) {
+            this.operation = operation;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = operation.apply(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ShardTask(operation, results, from, middle), new ShardTask(operation, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.MyNote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**Класс SnapshotNoteRepository - хранилище заметок с версионированными снимками (MVCC).
+ * Текущая версия - неизменяемый NoteSnapshot. Писатели строят новую версию со структурным
+ * разделением узлов и публикуют ее атомарной заменой ссылки (compare-and-set), поэтому
+ * не блокируют ни читателей, ни друг друга. Читатель, получивший snapshot(), видит
+ * согласованное состояние на момент вызова независимо от последующих записей.
+ * Заметки сохраняются как ImmutableNote, поэтому изменение переданной или полученной
+ * Note не влияет на хранилище, а getNoteValue отдает общий экземпляр без копирования.*/
+public class SnapshotNoteRepository implements NoteRepository {
+    private final AtomicReference<NoteSnapshot> current = new AtomicReference<>(NoteSnapshot.EMPTY);
+
+    /**
+     * Возвращает текущую версию хранилища за O(1) без копирования.
+     */
+    public NoteSnapshot snapshot() {
+        return current.get();
+    }
+
+    @Override
+    public void addNote(Note note) {
+        ImmutableNote value = ImmutableNote.of(note);
+        ImmutableNote[] stored = new ImmutableNote[1];
+        publish(snapshot -> snapshot.with(stored[0] = nextVersion(snapshot, value)));
+        note.setVersion(stored[0].getVersion());
+    }
+
+    @Override
+    public void updateNote(Note note) {
+        updateNoteIfPresent(note);
+    }
+
+    @Override
+    public void deleteNote(int id) {
+        deleteNoteIfPresent(id);
+    }
+
+    @Override
+    public boolean addNoteIfAbsent(Note note) {
+        ImmutableNote value = ImmutableNote.of(note);
+        ImmutableNote[] stored = new ImmutableNote[1];
+        NoteSnapshot published = publish(snapshot -> snapshot.getNoteValue(value.getId()) != null
+                ? snapshot
+                : snapshot.with(stored[0] = value.withVersion(1)));
+        if (stored[0] == null || published.getNoteValue(value.getId()) != stored[0]) {
+            return false;
+        }
+        note.setVersion(1);
+        return true;
+    }
+
+    @Override
+    public boolean updateNoteIfPresent(Note note) {
+        ImmutableNote value = ImmutableNote.of(note);
+        ImmutableNote[] stored = new ImmutableNote[1];
+        NoteSnapshot published = publish(snapshot -> snapshot.getNoteValue(value.getId()) == null
+                ? snapshot
+                : snapshot.with(stored[0] = nextVersion(snapshot, value)));
+        if (stored[0] == null || published.getNoteValue(value.getId()) != stored[0]) {
+            return false;
+        }
+        note.setVersion(stored[0].getVersion());
+        return true;
+    }
+
+    /**
+     * Проверка версии выполняется внутри построения новой версии хранилища, поэтому
+     * повторяется вместе с ним при гонке писателей и не требует блокировок.
+     */
+    @Override
+    public UpdateResult updateNoteIfVersion(Note note, long expectedVersion) {
+        ImmutableNote value = ImmutableNote.of(note).withVersion(expectedVersion + 1);
+        UpdateResult[] result = new UpdateResult[1];
+        publish(snapshot -> {
+            ImmutableNote stored = snapshot.getNoteValue(value.getId());
+            if (stored == null) {
+                result[0] = UpdateResult.NOT_FOUND;
+                return snapshot;
+            }
+            if (stored.getVersion() != expectedVersion) {
+                result[0] = UpdateResult.VERSION_CONFLICT;
+                return snapshot;
+            }
+            result[0] = UpdateResult.UPDATED;
+            return snapshot.with(value);
+        });
+        if (result[0] == UpdateResult.UPDATED) {
+            note.setVersion(value.getVersion());
+        }
+        return result[0];
+    }
+
+    @Override
+    public boolean deleteNoteIfPresent(int id) {
+        boolean[] deleted = new boolean[1];
+        publish(snapshot -> {
+            NoteSnapshot next = snapshot.without(id);
+            deleted[0] = next != snapshot;
+            return next;
+        });
+        return deleted[0];
+    }
+
+    @Override
+    public Note getNoteById(int id) {
+        return current.get().getNoteById(id);
+    }
+
+    @Override
+    public ImmutableNote getNoteValue(int id) {
+        return current.get().getNoteValue(id);
+    }
+
+    @Override
+    public List<Note> getAllNotes() {
+        return current.get().getAllNotes();
+    }
+
+    @Override
+    public Stream<Note> streamNotes() {
+        return current.get().streamNotes();
+    }
+
+    @Override
+    public Stream<ImmutableNote> streamNoteValues() {
+        return current.get().streamNoteValues();
+    }
+
+    /**
+     * Весь пакет публикуется одной новой версией.
+     */
+    @Override
+    public void addNotes(Collection<Note> notes) {
+        List<ImmutableNote> values = toValues(notes);
+        ImmutableNote[] stored = new ImmutableNote[values.size()];
+        publish(snapshot -> {
+            NoteSnapshot next = snapshot;
+            int index = 0;
+            for (ImmutableNote value : values) {
+                stored[index] = nextVersion(next, value);
+                next = next.with(stored[index++]);
+            }
+            return next;
+        });
+        setVersions(notes, stored);
+    }
+
+    @Override
+    public boolean[] updateNotes(Collection<Note> notes) {
+        boolean[] updated = new boolean[notes.size()];
+        List<ImmutableNote> values = toValues(notes);
+        ImmutableNote[] stored = new ImmutableNote[values.size()];
+        publish(snapshot -> {
+            NoteSnapshot next = snapshot;
+            int index = 0;
+            for (ImmutableNote value : values) {
+                updated[index] = next.getNoteValue(value.getId()) != null;
+                stored[index] = updated[index] ? nextVersion(next, value) : null;
+                if (updated[index]) {
+                    next = next.with(stored[index]);
+                }
+                index++;
+            }
+            return next;
+        });
+        setVersions(notes, stored);
+        return updated;
+    }
+
+    @Override
+    public boolean[] deleteNotes(int[] ids) {
+        boolean[] deleted = new boolean[ids.length];
+        publish(snapshot -> {
+            NoteSnapshot next = snapshot;
+            for (int i = 0; i < ids.length; i++) {
+                NoteSnapshot without = next.without(ids[i]);
+                deleted[i] = without != next;
+                next = without;
+            }
+            return next;
+        });
+        return deleted;
+    }
+
+    private static List<ImmutableNote> toValues(Collection<Note> notes) {
+        List<ImmutableNote> values = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            values.add(ImmutableNote.of(note));
+        }
+        return values;
+    }
+
+    /** Копия value с версией на единицу больше сохраненной в snapshot заметки. */
+    private static ImmutableNote nextVersion(NoteSnapshot snapshot, ImmutableNote value) {
+        ImmutableNote previous = snapshot.getNoteValue(value.getId());
+        return value.withVersion(previous == null ? 1 : previous.getVersion() + 1);
+    }
+
+    /** Переносит присвоенные версии в переданные заметки; null означает, что заметка не записана. */
+    private static void setVersions(Collection<Note> notes, ImmutableNote[] stored) {
+        int index = 0;
+        for (Note note : notes) {
+            if (stored[index] != null) {
+                note.setVersion(stored[index].getVersion());
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Строит новую версию из текущей и публикует ее; при гонке с другим писателем
+     * повторяет построение от свежей версии.
+     */
+    private NoteSnapshot publish(UnaryOperator<NoteSnapshot> change) {
+        while (true) {
+            NoteSnapshot snapshot = current.get();
+            NoteSnapshot changed = change.apply(snapshot);
+            if (changed == snapshot) {
+                return snapshot;
+            }
+            NoteSnapshot next = changed.publishedAfter(snapshot);
+            if (current.compareAndSet(snapshot, next)) {
+                return next;
+            }
+        }
+    }
+}
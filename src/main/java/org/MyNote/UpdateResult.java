@@ -0,0 +1,15 @@
+package org.MyNote;
+
+/**
+ * Результат условного обновления NoteRepository.updateNoteIfVersion. Конфликт версий -
+ * обычный исход при одновременном редактировании, поэтому он возвращается значением,
+ * а не исключением.
+ */
+public enum UpdateResult {
+    /** Версия совпала, заметка заменена и получила следующую версию. */
+    UPDATED,
+    /** Заметки с таким id нет. */
+    NOT_FOUND,
+    /** Заметку уже изменили: сохраненная версия отличается от ожидаемой. */
+    VERSION_CONFLICT
+}
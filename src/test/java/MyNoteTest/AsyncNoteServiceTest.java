@@ -0,0 +1,173 @@
+package MyNoteTest;
+
+import org.MyNote.AsyncNoteService;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.LogNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteRepository;
+import org.MyNote.NoteServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class AsyncNoteServiceTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * 1. Тест на асинхронное добавление и получение заметки и на ошибку проверки
+     */
+    @Test
+    public void addAndGetTest() throws Exception {
+        try (AsyncNoteService service = new AsyncNoteService(new NoteServiceImpl(new InMemoryNoteRepository()))) {
+            service.addNote(new Note(1, "Title", "Content")).get(5, TimeUnit.SECONDS);
+
+            assertThat(service.getNoteById(1).get(5, TimeUnit.SECONDS).getTitle()).isEqualTo("Title");
+            assertThatThrownBy(() -> service.addNote(new Note(2, " ", "Content")).get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class)
+                    .hasRootCauseMessage("Title cannot be null, or empty, or whitespace");
+        }
+    }
+
+    /**
+     * 2. Тест на ограничение числа одновременных обращений к хранилищу
+     */
+    @Test
+    public void concurrencyIsBoundedTest() throws Exception {
+        NoteRepository repository = mock(NoteRepository.class);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            active.decrementAndGet();
+            return true;
+        }).when(repository).deleteNoteIfPresent(anyInt());
+
+        try (AsyncNoteService service = new AsyncNoteService(new NoteServiceImpl(repository), 4, null)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int id = 1; id <= 100; id++) {
+                futures.add(service.deleteNote(id));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxActive.get()).isBetween(1, 4);
+    }
+
+    /**
+     * 3. Тест на тайм-аут без прерывания запущенной операции
+     */
+    @Test
+    public void timeoutDoesNotInterruptOperationTest() throws Exception {
+        NoteRepository repository = mock(NoteRepository.class);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        doAnswer(invocation -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+            }
+            finished.countDown();
+            return null;
+        }).when(repository).getNoteById(anyInt());
+
+        try (AsyncNoteService service = new AsyncNoteService(new NoteServiceImpl(repository), 4, Duration.ofMillis(100))) {
+            CompletableFuture<Note> future = service.getNoteById(1);
+
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(TimeoutException.class);
+            assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(interrupted.get()).isZero();
+        }
+    }
+
+    /**
+     * 4. Тест на десятки тысяч одновременно ожидающих операций
+     */
+    @Test
+    public void manyInFlightOperationsTest() throws Exception {
+        NoteRepository repository = mock(NoteRepository.class);
+        doAnswer(invocation -> {
+            Thread.sleep(20);
+            return true;
+        }).when(repository).addNoteIfAbsent(any(Note.class));
+
+        int operations = 20_000;
+        try (AsyncNoteService service = new AsyncNoteService(new NoteServiceImpl(repository), operations, null)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(operations);
+            for (int id = 1; id <= operations; id++) {
+                futures.add(service.addNote(new Note(id, "Title", "Content")));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+
+            assertThat(futures).allMatch(future -> future.isDone() && !future.isCompletedExceptionally());
+        }
+    }
+
+    /**
+     * 5. Тест на то, что тайм-аут записи не ломает журнал для следующих записей
+     */
+    @Test
+    public void timeoutKeepsLogWritableTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (LogNoteRepository log = new LogNoteRepository(directory) {
+            @Override
+            public boolean addNoteIfAbsent(Note note) {
+                if (note.getId() == 1) {
+                    // Медленная запись: прерывание потока здесь закрыло бы канал журнала
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.addNoteIfAbsent(note);
+            }
+        }; AsyncNoteService service = new AsyncNoteService(new NoteServiceImpl(log), 4, Duration.ofMillis(100))) {
+            CompletableFuture<Void> slow = service.addNote(new Note(1, "Title1", "Content1"));
+            assertThatThrownBy(() -> slow.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(TimeoutException.class);
+            release.countDown();
+
+            service.addNote(new Note(2, "Title2", "Content2")).get(5, TimeUnit.SECONDS);
+
+            assertThat(service.getNoteById(2).get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+    }
+
+    /**
+     * 6. Тест на отказ в операциях после закрытия
+     */
+    @Test
+    public void submitAfterCloseFailsTest() {
+        AsyncNoteService service = new AsyncNoteService(new NoteServiceImpl(new InMemoryNoteRepository()));
+        service.close();
+
+        assertThatThrownBy(() -> service.getNoteById(1).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
@@ -0,0 +1,147 @@
+package MyNoteTest;
+
+import org.MyNote.CacheStats;
+import org.MyNote.CachingNoteRepository;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CachingNoteRepositoryTest {
+
+    /**
+     * 1. Тест на чтение через кэш и отрицательное кэширование отсутствующих id
+     */
+    @Test
+    public void readThroughAndNegativeCachingTest() {
+        InMemoryNoteRepository backend = spy(new InMemoryNoteRepository());
+        backend.addNote(new Note(1, "Title", "Content"));
+        CachingNoteRepository repository = new CachingNoteRepository(backend, 100);
+
+        assertThat(repository.getNoteById(1).getTitle()).isEqualTo("Title");
+        assertThat(repository.getNoteById(1).getTitle()).isEqualTo("Title");
+        assertThat(repository.getNoteById(42)).isNull();
+        assertThat(repository.getNoteById(42)).isNull();
+        assertThat(repository.updateNoteIfPresent(new Note(42, "Title", "Content"))).isFalse();
+        assertThat(repository.deleteNoteIfPresent(42)).isFalse();
+
+        verify(backend, times(1)).getNoteValue(1);
+        verify(backend, times(1)).getNoteValue(42);
+        verify(backend, never()).updateNoteIfPresent(any());
+        verify(backend, never()).deleteNoteIfPresent(anyInt());
+
+        repository.addNote(new Note(42, "Added", "Content"));
+        assertThat(repository.getNoteById(42).getTitle()).isEqualTo("Added");
+        assertThat(backend.getNoteById(42).getTitle()).isEqualTo("Added");
+
+        CacheStats stats = repository.stats();
+        assertThat(stats.getMissCount()).isEqualTo(2);
+        assertThat(stats.getNegativeHitCount()).isEqualTo(3);
+        assertThat(stats.getHitCount()).isEqualTo(5);
+    }
+
+    /**
+     * 2. Тест на то, что однократный просмотр многих id не вытесняет часто читаемые заметки
+     */
+    @Test
+    public void frequentNotesSurviveScanTest() {
+        InMemoryNoteRepository backend = new InMemoryNoteRepository();
+        for (int id = 0; id < 10_000; id++) {
+            backend.addNote(new Note(id, "Title" + id, "Content"));
+        }
+        CachingNoteRepository repository = new CachingNoteRepository(backend, 100);
+        // Между однократными чтениями холодных id читаются 50 горячих заметок
+        for (int id = 50; id < 10_000; id++) {
+            repository.getNoteById(id);
+            repository.getNoteById(id % 50);
+        }
+
+        long missesBefore = repository.stats().getMissCount();
+        for (int id = 0; id < 50; id++) {
+            assertThat(repository.getNoteById(id).getTitle()).isEqualTo("Title" + id);
+        }
+
+        assertThat(repository.stats().getMissCount() - missesBefore).isZero();
+        assertThat(repository.stats().getEvictionCount()).isGreaterThan(9_000);
+        assertThat(repository.size()).isLessThanOrEqualTo(100);
+    }
+
+    /**
+     * 3. Тест на объединение изменений одного id при отложенной записи
+     */
+    @Test
+    public void writeBehindCoalescesChangesTest() {
+        InMemoryNoteRepository backend = spy(new InMemoryNoteRepository());
+        CachingNoteRepository repository = new CachingNoteRepository(backend, 100, null,
+                CachingNoteRepository.WriteMode.WRITE_BEHIND, Duration.ofHours(1));
+
+        repository.addNote(new Note(1, "Title1", "Content"));
+        repository.updateNote(new Note(1, "Title2", "Content"));
+        repository.updateNote(new Note(1, "Title3", "Content"));
+        repository.addNote(new Note(2, "Title", "Content"));
+        assertThat(repository.deleteNoteIfPresent(2)).isTrue();
+
+        assertThat(repository.getNoteById(1).getTitle()).isEqualTo("Title3");
+        assertThat(repository.getNoteById(2)).isNull();
+        assertThat(backend.getNoteById(1)).isNull();
+
+        repository.flush();
+
+        verify(backend, times(1)).addNotes(anyCollection());
+        assertThat(backend.getAllNotes()).extracting(Note::getTitle).containsExactly("Title3");
+        assertThat(repository.stats().getFlushCount()).isEqualTo(1);
+
+        repository.addNote(new Note(3, "Title", "Content"));
+        repository.close();
+        assertThat(backend.getNoteById(3)).isNotNull();
+    }
+
+    /**
+     * 4. Тест на ограничение кэша по весу заметок
+     */
+    @Test
+    public void weightBoundTest() {
+        InMemoryNoteRepository backend = new InMemoryNoteRepository();
+        CachingNoteRepository repository = new CachingNoteRepository(backend, 10_000,
+                CachingNoteRepository.WEIGH_BY_BYTES, CachingNoteRepository.WriteMode.WRITE_THROUGH, null);
+        String content = "x".repeat(1_000);
+        for (int id = 0; id < 1_000; id++) {
+            repository.addNote(new Note(id, "Title", content));
+        }
+
+        assertThat(repository.size()).isLessThanOrEqualTo(10);
+        assertThat(repository.stats().getEvictionCount()).isGreaterThanOrEqualTo(990);
+        assertThat(repository.getAllNotes()).hasSize(1_000);
+        assertThat(repository.getNoteById(0).getContent()).isEqualTo(content);
+    }
+
+    /**
+     * 5. Тест на то, что очередь отложенной записи не растет дальше MAX_PENDING
+     */
+    @Test
+    public void writeBehindQueueIsBoundedTest() {
+        InMemoryNoteRepository backend = new InMemoryNoteRepository();
+        int notes = CachingNoteRepository.MAX_PENDING + CachingNoteRepository.FLUSH_BATCH;
+        try (CachingNoteRepository repository = new CachingNoteRepository(backend, 100, null,
+                CachingNoteRepository.WriteMode.WRITE_BEHIND, Duration.ofHours(1))) {
+            for (int id = 1; id <= notes; id++) {
+                repository.addNote(new Note(id, "Title" + id, "Content"));
+            }
+
+            // Не дошли до хранилища только изменения, оставшиеся в очереди
+            assertThat(backend.getAllNotes().size()).isGreaterThanOrEqualTo(notes - CachingNoteRepository.MAX_PENDING);
+            assertThat(repository.getNoteById(notes).getTitle()).isEqualTo("Title" + notes);
+        }
+        assertThat(backend.getAllNotes()).hasSize(notes);
+    }
+}
@@ -0,0 +1,113 @@
+package MyNoteTest;
+
+import org.MyNote.ConcurrentNoteRepository;
+import org.MyNote.Note;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrentNoteRepositoryTest {
+    private ConcurrentNoteRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new ConcurrentNoteRepository(64);
+    }
+
+    /**
+     * 1. Тест на добавление, обновление и удаление заметки
+     */
+    @Test
+    public void basicOperationsTest() {
+        repository.addNote(new Note(1, "Title", "Content"));
+        Note updated = new Note(1, "Updated", "Content");
+        repository.updateNote(updated);
+        repository.updateNote(new Note(2, "Missing", "Content"));
+
+        assertThat(repository.getNoteById(1)).usingRecursiveComparison().isEqualTo(updated);
+        assertThat(repository.getNoteById(2)).isNull();
+
+        repository.deleteNote(1);
+
+        assertThat(repository.getAllNotes()).isEmpty();
+    }
+
+    /**
+     * 2. Тест на одновременное добавление и удаление из нескольких потоков
+     */
+    @Test
+    public void concurrentAddAndDeleteTest() throws Exception {
+        int threads = 8;
+        int perThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 1; i <= perThread; i++) {
+                    repository.addNote(new Note(base + i, "Title", "Content"));
+                    if (i % 2 == 0) {
+                        repository.deleteNote(base + i);
+                    }
+                    if (i % 100 == 0) {
+                        repository.getAllNotes();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(repository.getAllNotes()).hasSize(threads * perThread / 2);
+        assertThat(repository.getNoteById(1)).isNotNull();
+        assertThat(repository.getNoteById(2)).isNull();
+    }
+
+    /**
+     * 3. Тест на некорректную начальную емкость
+     */
+    @Test
+    public void invalidInitialCapacityTest() {
+        assertThatThrownBy(() -> new ConcurrentNoteRepository(-1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Initial capacity cannot be negative");
+    }
+
+    /**
+     * 4. Тест на пакетные операции
+     */
+    @Test
+    public void batchOperationsTest() {
+        List<Note> batch = new ArrayList<>();
+        for (int id = 1; id <= 100; id++) {
+            batch.add(new Note(id, "Title" + id, "Content" + id));
+        }
+        repository.addNotes(batch);
+
+        boolean[] updated = repository.updateNotes(List.of(new Note(10, "Updated", "Content"), new Note(500, "Missing", "Content")));
+        boolean[] deleted = repository.deleteNotes(new int[]{1, 2, 1000});
+
+        assertThat(updated).containsExactly(true, false);
+        assertThat(deleted).containsExactly(true, true, false);
+        assertThat(repository.getNotesByIds(new int[]{10, 1, 3}))
+                .extracting(note -> note == null ? null : note.getTitle())
+                .containsExactly("Updated", null, "Title3");
+        assertThat(repository.getAllNotes()).hasSize(98);
+    }
+}
@@ -0,0 +1,68 @@
+package MyNoteTest;
+
+import org.MyNote.ImmutableNote;
+import org.MyNote.Note;
+import org.MyNote.SnapshotNoteRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImmutableNoteTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 4, 12, 10, 0);
+
+    /**
+     * 1. Тест на методы with, которые не меняют исходную заметку
+     */
+    @Test
+    public void withMethodsReturnCopiesTest() {
+        ImmutableNote note = new ImmutableNote(1, "Title", "Content", TIME);
+
+        ImmutableNote renamed = note.withTitle("Renamed");
+        ImmutableNote later = note.withTimestamp(TIME.plusHours(1));
+
+        assertThat(note.getTitle()).isEqualTo("Title");
+        assertThat(renamed.getTitle()).isEqualTo("Renamed");
+        assertThat(renamed.getContent()).isEqualTo("Content");
+        assertThat(later.getTimestamp()).isEqualTo(TIME.plusHours(1));
+        assertThat(note.getTimestamp()).isEqualTo(TIME);
+        assertThat(note.withTimestamp(TIME)).isSameAs(note);
+        assertThat(note.withContent("Content")).isEqualTo(note);
+    }
+
+    /**
+     * 2. Тест на преобразование между Note и ImmutableNote
+     */
+    @Test
+    public void conversionWithNoteTest() {
+        Note mutable = new Note(1, "Title", "Content", TIME);
+        ImmutableNote value = mutable.toImmutable();
+        mutable.setTitle("Changed");
+
+        Note copy = value.toNote();
+        copy.setContent("Changed");
+
+        assertThat(value.getTitle()).isEqualTo("Title");
+        assertThat(value.getContent()).isEqualTo("Content");
+        assertThat(copy.getTimestamp()).isEqualTo(TIME);
+        assertThat(mutable.withTimestamp(TIME.plusDays(1)).getTimestamp()).isEqualTo(TIME.plusDays(1));
+        assertThat(mutable.getTimestamp()).isEqualTo(TIME);
+    }
+
+    /**
+     * 3. Тест на публикацию неизменяемых заметок хранилищем без копирования
+     */
+    @Test
+    public void repositoryPublishesValuesTest() {
+        SnapshotNoteRepository repository = new SnapshotNoteRepository();
+        Note note = new Note(1, "Title", "Content", TIME);
+        repository.addNote(note);
+        note.setTitle("Changed after add");
+        repository.getNoteById(1).setTitle("Changed after read");
+
+        assertThat(repository.getNoteValue(1)).isSameAs(repository.getNoteValue(1));
+        assertThat(repository.getNoteValue(1).getTitle()).isEqualTo("Title");
+        assertThat(repository.streamNoteValues()).containsExactly(new ImmutableNote(1, "Title", "Content", TIME));
+    }
+}
@@ -0,0 +1,192 @@
+package MyNoteTest;
+
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryNoteRepositoryTest {
+    private InMemoryNoteRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new InMemoryNoteRepository();
+    }
+
+    /**
+     * 1. Тест на получение добавленной заметки по ID
+     */
+    @Test
+    public void addAndGetNoteTest() {
+        Note note = new Note(1, "Title", "Content");
+        repository.addNote(note);
+
+        assertThat(repository.getNoteById(1)).usingRecursiveComparison().isEqualTo(note);
+        assertThat(repository.getNoteById(2)).isNull();
+    }
+
+    /**
+     * 2. Тест на обновление заметки без изменения порядка
+     */
+    @Test
+    public void updateNoteKeepsOrderTest() {
+        repository.addNote(new Note(1, "Title1", "Content1"));
+        repository.addNote(new Note(2, "Title2", "Content2"));
+        Note updated = new Note(1, "Updated", "Updated content");
+
+        repository.updateNote(updated);
+
+        assertThat(repository.getNoteById(1)).usingRecursiveComparison().isEqualTo(updated);
+        assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactly(1, 2);
+    }
+
+    /**
+     * 3. Тест на обновление несуществующей заметки
+     */
+    @Test
+    public void updateMissingNoteTest() {
+        repository.updateNote(new Note(5, "Title", "Content"));
+
+        assertThat(repository.getNoteById(5)).isNull();
+        assertThat(repository.getAllNotes()).isEmpty();
+    }
+
+    /**
+     * 4. Тест на удаление заметки
+     */
+    @Test
+    public void deleteNoteTest() {
+        repository.addNote(new Note(1, "Title1", "Content1"));
+        repository.addNote(new Note(2, "Title2", "Content2"));
+
+        repository.deleteNote(1);
+
+        assertThat(repository.getNoteById(1)).isNull();
+        assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactly(2);
+    }
+
+    /**
+     * 5. Тест на сохранение порядка добавления после множества удалений
+     */
+    @Test
+    public void insertionOrderAfterManyDeletesTest() {
+        for (int id = 1; id <= 1000; id++) {
+            repository.addNote(new Note(id, "Title" + id, "Content" + id));
+        }
+        for (int id = 1; id <= 1000; id++) {
+            if (id % 10 != 0) {
+                repository.deleteNote(id);
+            }
+        }
+        for (int id = 1001; id <= 1010; id++) {
+            repository.addNote(new Note(id, "Title" + id, "Content" + id));
+        }
+
+        List<Note> notes = repository.getAllNotes();
+
+        assertThat(notes).hasSize(110);
+        assertThat(notes.get(0).getId()).isEqualTo(10);
+        assertThat(notes.get(99).getId()).isEqualTo(1000);
+        assertThat(notes.get(109).getId()).isEqualTo(1010);
+        assertThat(repository.getNoteById(500).getTitle()).isEqualTo("Title500");
+        assertThat(repository.getNoteById(501)).isNull();
+    }
+
+    /**
+     * 6. Тест на замену заметки с повторяющимся ID
+     */
+    @Test
+    public void addDuplicateIdReplacesNoteTest() {
+        repository.addNote(new Note(1, "Title", "Content"));
+        Note replacement = new Note(1, "Other", "Other content");
+
+        repository.addNote(replacement);
+
+        assertThat(repository.getAllNotes()).usingRecursiveFieldByFieldElementComparator().containsExactly(replacement);
+    }
+
+    /**
+     * 7. Тест на работу с ID, равным нулю и отрицательным
+     */
+    @Test
+    public void zeroAndNegativeIdsTest() {
+        repository.addNote(new Note(0, "Zero", "Content"));
+        repository.addNote(new Note(-7, "Negative", "Content"));
+
+        assertThat(repository.getNoteById(0).getTitle()).isEqualTo("Zero");
+        assertThat(repository.getNoteById(-7).getTitle()).isEqualTo("Negative");
+
+        repository.deleteNote(0);
+
+        assertThat(repository.getNoteById(0)).isNull();
+        assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactly(-7);
+    }
+
+    /**
+     * 8. Тест на условные обновление и удаление
+     */
+    @Test
+    public void conditionalUpdateAndDeleteTest() {
+        repository.addNote(new Note(1, "Title", "Content"));
+
+        assertThat(repository.updateNoteIfPresent(new Note(1, "Updated", "Content"))).isTrue();
+        assertThat(repository.updateNoteIfPresent(new Note(2, "Missing", "Content"))).isFalse();
+        assertThat(repository.deleteNoteIfPresent(1)).isTrue();
+        assertThat(repository.deleteNoteIfPresent(1)).isFalse();
+        assertThat(repository.getAllNotes()).isEmpty();
+    }
+
+    /**
+     * 9. Тест на постраничное чтение по курсору
+     */
+    @Test
+    public void pagingByCursorTest() {
+        int[] ids = {7, 3, 9, 1, 5, 2};
+        for (int id : ids) {
+            repository.addNote(new Note(id, "Title" + id, "Content" + id));
+        }
+        repository.deleteNote(5);
+
+        List<Note> first = repository.getNotesPage(0, 2);
+        List<Note> second = repository.getNotesPage(first.get(1).getId(), 2);
+        List<Note> last = repository.getNotesPage(second.get(1).getId(), 2);
+
+        assertThat(first).extracting(Note::getId).containsExactly(1, 2);
+        assertThat(second).extracting(Note::getId).containsExactly(3, 7);
+        assertThat(last).extracting(Note::getId).containsExactly(9);
+        assertThat(repository.getNotesPage(9, 2)).isEmpty();
+        assertThat(repository.getNotesPage(2, Integer.MAX_VALUE)).extracting(Note::getId).containsExactly(3, 7, 9);
+    }
+
+    /**
+     * 10. Тест на ленивый поток заметок
+     */
+    @Test
+    public void streamNotesTest() {
+        repository.addNote(new Note(1, "Title1", "Content1"));
+        repository.addNote(new Note(2, "Title2", "Content2"));
+        repository.addNote(new Note(3, "Title3", "Content3"));
+        repository.deleteNote(2);
+
+        assertThat(repository.streamNotes().map(Note::getId)).containsExactly(1, 3);
+    }
+
+    /**
+     * 11. Тест на то, что изменение переданной и полученной заметки не меняет хранилище
+     */
+    @Test
+    public void storedNoteIsIsolatedTest() {
+        Note note = new Note(1, "Title", "Content");
+        repository.addNote(note);
+        note.setTitle("Changed");
+        repository.getNoteById(1).setContent("Changed");
+
+        assertThat(repository.getNoteById(1).getTitle()).isEqualTo("Title");
+        assertThat(repository.getNoteById(1).getContent()).isEqualTo("Content");
+        assertThat(repository.getNoteValue(1)).isSameAs(repository.getNoteValue(1));
+    }
+}
@@ -0,0 +1,211 @@
+package MyNoteTest;
+
+import org.MyNote.LogNoteRepository;
+import org.MyNote.Note;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LogNoteRepositoryTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * 1. Тест на восстановление состояния после повторного открытия
+     */
+    @Test
+    public void reopenRestoresStateTest() throws IOException {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 1, 12, 30, 15);
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            repository.addNote(new Note(1, "Title1", "Content1"));
+            Note note = new Note(2, "Заголовок", "Содержимое");
+            note.setTimestamp(timestamp);
+            repository.addNote(note);
+            repository.addNote(new Note(3, "Title3", "Content3"));
+            assertThat(repository.updateNoteIfPresent(new Note(1, "Updated", "Content1"))).isTrue();
+            assertThat(repository.deleteNoteIfPresent(3)).isTrue();
+            assertThat(repository.deleteNoteIfPresent(4)).isFalse();
+        }
+
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactlyInAnyOrder(1, 2);
+            assertThat(repository.getNoteById(1).getTitle()).isEqualTo("Updated");
+            assertThat(repository.getNoteById(2).getContent()).isEqualTo("Содержимое");
+            assertThat(repository.getNoteById(2).getTimestamp()).isEqualTo(timestamp);
+        }
+    }
+
+    /**
+     * 2. Тест на отбрасывание оборванной последней записи
+     */
+    @Test
+    public void tornTailIsDiscardedTest() throws IOException {
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            repository.addNote(new Note(1, "Title1", "Content1"));
+            repository.addNote(new Note(2, "Title2", "Content2"));
+        }
+        Path segment = onlySegment();
+        long size = Files.size(segment);
+        // Имитируем сбой посреди записи: отрезаем конец последней записи
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactly(1);
+            repository.addNote(new Note(3, "Title3", "Content3"));
+        }
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactlyInAnyOrder(1, 3);
+        }
+    }
+
+    /**
+     * 3. Тест на отбрасывание записи с неверной контрольной суммой
+     */
+    @Test
+    public void corruptedTailIsDiscardedTest() throws IOException {
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            repository.addNote(new Note(1, "Title1", "Content1"));
+            repository.addNote(new Note(2, "Title2", "Content2"));
+        }
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactly(1);
+        }
+    }
+
+    /**
+     * 4. Тест на уплотнение журнала без потери состояния
+     */
+    @Test
+    public void compactionKeepsStateTest() throws IOException {
+        try (LogNoteRepository repository = new LogNoteRepository(directory, 1024, 100)) {
+            for (int round = 0; round < 20; round++) {
+                for (int id = 1; id <= 10; id++) {
+                    repository.addNote(new Note(id, "Title" + round, "Content"));
+                }
+            }
+            repository.deleteNote(10);
+            assertThat(segmentCount()).isGreaterThan(3);
+
+            repository.compact();
+
+            assertThat(segmentCount()).isEqualTo(2);
+            repository.addNote(new Note(11, "Title11", "Content11"));
+        }
+
+        try (LogNoteRepository repository = new LogNoteRepository(directory, 1024, 100)) {
+            assertThat(repository.getAllNotes()).hasSize(10);
+            assertThat(repository.getNoteById(1).getTitle()).isEqualTo("Title19");
+            assertThat(repository.getNoteById(10)).isNull();
+            assertThat(repository.getNoteById(11)).isNotNull();
+        }
+    }
+
+    /**
+     * 5. Тест на одновременную запись с групповым fsync
+     */
+    @Test
+    public void concurrentWritersTest() throws Exception {
+        int threads = 4;
+        int perThread = 200;
+        try (LogNoteRepository repository = new LogNoteRepository(directory, 4096, 2)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 1; i <= perThread; i++) {
+                        repository.addNote(new Note(base + i, "Title", "Content"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        try (LogNoteRepository repository = new LogNoteRepository(directory, 4096, 2)) {
+            assertThat(repository.getAllNotes()).hasSize(threads * perThread);
+        }
+    }
+
+    /**
+     * 6. Тест на ошибку при повреждении записи в середине сегмента
+     */
+    @Test
+    public void corruptedMiddleRecordFailsTest() throws IOException {
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            repository.addNote(new Note(1, "Title1", "Content1"));
+            repository.addNote(new Note(2, "Title2", "Content2"));
+        }
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        // Портим тело первой записи: за ней идет целая вторая запись
+        bytes[12 + 8 + 2] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        assertThatThrownBy(() -> new LogNoteRepository(directory)).isInstanceOf(IOException.class);
+        assertThat(Files.size(segment)).isEqualTo(bytes.length);
+    }
+
+    /**
+     * 7. Тест на отбрасывание нулевого хвоста сегмента после сбоя
+     */
+    @Test
+    public void zeroFilledTailIsDiscardedTest() throws IOException {
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            repository.addNote(new Note(1, "Title1", "Content1"));
+            repository.addNote(new Note(2, "Title2", "Content2"));
+        }
+        Path segment = onlySegment();
+        long size = Files.size(segment);
+        // Имитируем место, выделенное файловой системой, но не дописанное до сбоя
+        Files.write(segment, new byte[4096], StandardOpenOption.APPEND);
+
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactlyInAnyOrder(1, 2);
+            assertThat(Files.size(segment)).isEqualTo(size);
+            repository.addNote(new Note(3, "Title3", "Content3"));
+        }
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            assertThat(repository.getAllNotes()).extracting(Note::getId).containsExactlyInAnyOrder(1, 2, 3);
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.filter(file -> file.toString().endsWith(".log")).toList();
+            assertThat(segments).hasSize(1);
+            return segments.get(0);
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).count();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package MyNoteTest;
+
+import org.MyNote.ConcurrentNoteRepository;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteArchive;
+import org.MyNote.NoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NoteArchiveTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * 1. Тест на выгрузку и загрузку хранилища через файл архива
+     */
+    @Test
+    public void exportImportRoundTripTest() throws IOException {
+        NoteRepository source = new InMemoryNoteRepository();
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 15, 8, 45, 30);
+        for (int id = 1; id <= 50_000; id++) {
+            Note note = new Note(id, "Заголовок " + id, "Content " + id);
+            note.setTimestamp(timestamp.plusSeconds(id));
+            source.addNote(note);
+        }
+        // Заметка больше блока архива
+        source.addNote(new Note(50_001, "Big", "x".repeat(3 << 20)));
+        Path archive = directory.resolve("notes.bin");
+        try (FileChannel out = FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertThat(source.exportNotes(out)).isEqualTo(50_001);
+        }
+
+        NoteRepository target = new ConcurrentNoteRepository();
+        try (FileChannel in = FileChannel.open(archive, StandardOpenOption.READ)) {
+            assertThat(target.importNotes(in)).isEqualTo(50_001);
+        }
+
+        assertThat(target.getAllNotes()).hasSize(50_001);
+        assertThat(target.getNoteById(777).getTitle()).isEqualTo("Заголовок 777");
+        assertThat(target.getNoteById(777).getTimestamp()).isEqualTo(timestamp.plusSeconds(777));
+        assertThat(target.getNoteById(50_001).getContent()).hasSize(3 << 20);
+    }
+
+    /**
+     * 2. Тест на копирование файла архива через transferTo
+     */
+    @Test
+    public void transferArchiveTest() throws IOException {
+        NoteRepository source = new InMemoryNoteRepository();
+        source.addNote(new Note(1, "Title1", "Content1"));
+        source.addNote(new Note(2, "Title2", "Content2"));
+        Path archive = directory.resolve("notes.bin");
+        Path copy = directory.resolve("copy.bin");
+        NoteArchive.write(source.streamNotes(), archive);
+
+        try (FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertThat(NoteArchive.transfer(archive, out)).isEqualTo(Files.size(archive));
+        }
+
+        NoteRepository target = new InMemoryNoteRepository();
+        assertThat(NoteArchive.read(copy, target::addNotes)).isEqualTo(2);
+        assertThat(target.getNoteById(2).getContent()).isEqualTo("Content2");
+    }
+
+    /**
+     * 3. Тест на обнаружение обрезанного архива
+     */
+    @Test
+    public void truncatedArchiveTest() throws IOException {
+        NoteRepository source = new InMemoryNoteRepository();
+        for (int id = 1; id <= 100; id++) {
+            source.addNote(new Note(id, "Title", "Content"));
+        }
+        Path archive = directory.resolve("notes.bin");
+        NoteArchive.write(source.streamNotes(), archive);
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+
+        assertThatThrownBy(() -> NoteArchive.read(archive, batch -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Note archive is truncated");
+    }
+
+    /**
+     * 4. Тест на отказ при поврежденной длине блока без выделения памяти под нее
+     */
+    @Test
+    public void corruptedBlockLengthTest() throws IOException {
+        NoteRepository source = new InMemoryNoteRepository();
+        source.addNote(new Note(1, "Title1", "Content1"));
+        Path archive = directory.resolve("notes.bin");
+        NoteArchive.write(source.streamNotes(), archive);
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+            // Длина первого блока идет после заголовка файла и числа заметок
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 8 + 4);
+        }
+
+        assertThatThrownBy(() -> NoteArchive.read(archive, batch -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Note archive is truncated");
+    }
+
+    /**
+     * 5. Тест на отказ, если заметок в блоке больше, чем в нем помещается с полем версии
+     */
+    @Test
+    public void corruptedBlockCountTest() throws IOException {
+        NoteRepository source = new InMemoryNoteRepository();
+        for (int id = 1; id <= 5; id++) {
+            source.addNote(new Note(id, "T", "C"));
+        }
+        Path archive = directory.resolve("notes.bin");
+        NoteArchive.write(source.streamNotes(), archive);
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+            // 5 заметок по 30 байт: 7 заметок помещаются в блок только без поля версии
+            channel.write(ByteBuffer.allocate(4).putInt(0, 7), 8);
+        }
+
+        assertThatThrownBy(() -> NoteArchive.read(archive, batch -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Corrupted note archive block");
+    }
+}
@@ -0,0 +1,215 @@
+package MyNoteTest;
+
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteChangeEvent;
+import org.MyNote.NoteChangePublisher;
+import org.MyNote.NoteServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NoteChangePublisherTest {
+
+    /** Подписчик, который запоминает события и запрашивает их по одному набору. */
+    private static class RecordingSubscriber implements Flow.Subscriber<NoteChangeEvent> {
+        final List<NoteChangeEvent> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        // Одно разрешение на каждое полученное событие
+        final Semaphore received = new Semaphore(0);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+        private final long initialRequest;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(NoteChangeEvent event) {
+            events.add(event);
+            received.release();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+
+    /**
+     * 1. Тест на доставку событий сервиса по порядку и с учетом запроса подписчика
+     */
+    @Test
+    public void serviceChangesArePublishedTest() throws InterruptedException {
+        NoteServiceImpl noteService = new NoteServiceImpl(new InMemoryNoteRepository());
+        NoteChangePublisher publisher = noteService.enableChangeEvents();
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        publisher.subscribe(subscriber);
+
+        noteService.addNote(new Note(1, "Title", "Content"));
+        noteService.updateNote(new Note(1, "New title", "Content"));
+        noteService.deleteNote(1);
+
+        assertThat(noteService.enableChangeEvents()).isSameAs(publisher);
+        assertThat(subscriber.received.tryAcquire(2, 5, TimeUnit.SECONDS)).isTrue();
+        // Запрошено только два события: третье не доставляется до нового запроса
+        assertThat(subscriber.received.tryAcquire(100, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(subscriber.events).hasSize(2);
+        subscriber.subscription.request(10);
+        publisher.close();
+
+        assertThat(subscriber.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.events).extracting(NoteChangeEvent::getSequence).containsExactly(0L, 1L, 2L);
+        assertThat(subscriber.events).extracting(NoteChangeEvent::getType).containsExactly(
+                NoteChangeEvent.Type.ADD, NoteChangeEvent.Type.UPDATE, NoteChangeEvent.Type.DELETE);
+        assertThat(subscriber.events.get(1).getNote().getTitle()).isEqualTo("New title");
+        assertThat(subscriber.events.get(2).getNote()).isNull();
+    }
+
+    /**
+     * 2. Тест на продолжение чтения с заданного номера события
+     */
+    @Test
+    public void subscriberResumesFromSequenceTest() {
+        NoteChangePublisher publisher = new NoteChangePublisher(16, Runnable::run);
+        for (int id = 1; id <= 5; id++) {
+            publisher.onAdd(new Note(id, "Title", "Content"));
+        }
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        publisher.subscribe(subscriber, 3);
+        publisher.onDelete(1);
+
+        assertThat(subscriber.events).extracting(NoteChangeEvent::getSequence).containsExactly(3L, 4L, 5L);
+        assertThat(subscriber.events).extracting(NoteChangeEvent::getId).containsExactly(4, 5, 1);
+        assertThat(publisher.getNextSequence()).isEqualTo(6);
+    }
+
+    /**
+     * 3. Тест на то, что медленный подписчик не останавливает писателей и получает ошибку
+     */
+    @Test
+    public void slowSubscriberDoesNotStallWritersTest() {
+        NoteChangePublisher publisher = new NoteChangePublisher(8, Runnable::run);
+        RecordingSubscriber slow = new RecordingSubscriber(1);
+        RecordingSubscriber fast = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(slow);
+        publisher.subscribe(fast);
+
+        for (int id = 1; id <= 100; id++) {
+            publisher.onAdd(new Note(id, "Title", "Content"));
+        }
+        slow.subscription.request(1);
+
+        assertThat(fast.events).hasSize(100);
+        assertThat(slow.events).hasSize(1);
+        assertThat(slow.error).isInstanceOf(IllegalStateException.class)
+                .hasMessage("Subscriber fell behind the change stream at sequence 1");
+        assertThat(publisher.getOldestSequence()).isEqualTo(92);
+
+        RecordingSubscriber resumed = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(resumed, publisher.getOldestSequence());
+        assertThat(resumed.events).extracting(NoteChangeEvent::getId).startsWith(93).hasSize(8);
+    }
+
+    /**
+     * 4. Тест на то, что события не доставляются до возврата из onSubscribe
+     */
+    @Test
+    public void noDeliveryBeforeOnSubscribeReturnsTest() throws InterruptedException {
+        NoteChangePublisher publisher = new NoteChangePublisher(8, ForkJoinPool.commonPool());
+        publisher.onAdd(new Note(1, "Title", "Content"));
+        AtomicBoolean subscribing = new AtomicBoolean();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        RecordingSubscriber subscriber = new RecordingSubscriber(0) {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscribing.set(true);
+                subscription.request(Long.MAX_VALUE);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                subscribing.set(false);
+            }
+
+            @Override
+            public void onNext(NoteChangeEvent event) {
+                overlapped.compareAndSet(false, subscribing.get());
+                super.onNext(event);
+            }
+        };
+
+        publisher.subscribe(subscriber, 0);
+        publisher.close();
+
+        assertThat(subscriber.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(overlapped.get()).isFalse();
+        assertThat(subscriber.events).extracting(NoteChangeEvent::getId).containsExactly(1);
+    }
+
+    /**
+     * 5. Тест на то, что изменения, одновременные с close, не теряются после получения номера
+     */
+    @Test
+    public void closeRacingWritersTest() throws InterruptedException {
+        NoteChangePublisher publisher = new NoteChangePublisher(1 << 16, ForkJoinPool.commonPool());
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread writer = new Thread(() -> {
+                started.countDown();
+                for (int id = 1; id <= 10_000; id++) {
+                    publisher.onDelete(id);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+
+        started.await();
+        publisher.close();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertThat(subscriber.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.completed).isTrue();
+        long end = publisher.getNextSequence();
+        assertThat(subscriber.events).hasSize((int) end);
+        assertThat(subscriber.events).extracting(NoteChangeEvent::getSequence)
+                .containsExactlyElementsOf(LongStream.range(0, end).boxed().toList());
+    }
+}
@@ -0,0 +1,171 @@
+package MyNoteTest;
+
+import org.MyNote.ConcurrentNoteRepository;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteIdSequence;
+import org.MyNote.NoteServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NoteIdSequenceTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * 1. Тест на уникальность id, выданных из нескольких потоков
+     */
+    @Test
+    public void idsAreUniqueAcrossThreadsTest() throws Exception {
+        NoteIdSequence sequence = new NoteIdSequence(1, 16);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    int[] ids = new int[50_000];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = sequence.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            Set<Integer> all = new HashSet<>();
+            for (Future<int[]> future : futures) {
+                for (int id : future.get()) {
+                    assertThat(id).isPositive();
+                    all.add(id);
+                }
+            }
+            assertThat(all).hasSize(400_000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 2. Тест на продолжение сохраненной последовательности после перезапуска
+     */
+    @Test
+    public void persistedSequenceDoesNotRepeatIdsTest() throws IOException {
+        Path file = directory.resolve("note-ids");
+        NoteIdSequence sequence = NoteIdSequence.open(file, 8);
+        int last = 0;
+        for (int i = 0; i < 100; i++) {
+            last = Math.max(last, sequence.nextId());
+        }
+
+        NoteIdSequence reopened = NoteIdSequence.open(file, 8);
+
+        assertThat(reopened.nextId()).isGreaterThan(last);
+        assertThat(new NoteIdSequence(Integer.MAX_VALUE, 8).nextId()).isEqualTo(Integer.MAX_VALUE);
+        NoteIdSequence exhausted = new NoteIdSequence(Integer.MAX_VALUE, 8);
+        exhausted.nextId();
+        assertThatThrownBy(exhausted::nextId).isInstanceOf(IllegalStateException.class)
+                .hasMessage("Note ID space is exhausted");
+    }
+
+    /**
+     * 3. Тест на назначение id сервисом и отказ при повторном id
+     */
+    @Test
+    public void serviceAssignsIdsTest() {
+        NoteServiceImpl noteService = new NoteServiceImpl(new InMemoryNoteRepository());
+        noteService.addNote(new Note(1, "Title", "Content"));
+
+        int first = noteService.addNote("Title", "Content");
+        int second = noteService.addNote("Title", "Content");
+
+        assertThat(first).isEqualTo(2);
+        assertThat(second).isEqualTo(3);
+        assertThat(noteService.getNoteById(1).getTitle()).isEqualTo("Title");
+        assertThat(noteService.getNoteById(second).getTimestamp()).isNotNull();
+        assertThatThrownBy(() -> noteService.addNote(" ", "Content"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Title cannot be null, or empty, or whitespace");
+        assertThatThrownBy(() -> noteService.addNoteIfAbsent(new Note(first, "Other", "Content")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Note with the given ID already exists");
+        assertThat(noteService.getNoteById(first).getTitle()).isEqualTo("Title");
+    }
+
+    /**
+     * 4. Тест на атомарное добавление с одним и тем же id из нескольких потоков
+     */
+    @Test
+    public void addNoteIfAbsentIsAtomicTest() throws Exception {
+        ConcurrentNoteRepository repository = new ConcurrentNoteRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    int added = 0;
+                    for (int id = 1; id <= 10_000; id++) {
+                        if (repository.addNoteIfAbsent(new Note(id, "Title" + thread, "Content"))) {
+                            added++;
+                        }
+                    }
+                    return added;
+                }));
+            }
+            int added = 0;
+            for (Future<Integer> future : futures) {
+                added += future.get();
+            }
+            assertThat(added).isEqualTo(10_000);
+            assertThat(repository.getAllNotes()).hasSize(10_000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 5. Тест на то, что короткоживущие потоки не теряют арендованные блоки
+     */
+    @Test
+    public void shortLivedThreadsDoNotWasteIdsTest() throws Exception {
+        NoteIdSequence sequence = new NoteIdSequence(1, 64);
+        int threads = 2_000;
+        int[] ids = new int[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> ids[index] = sequence.nextId());
+            thread.start();
+            thread.join();
+        }
+
+        assertThat(Arrays.stream(ids).distinct().count()).isEqualTo(threads);
+        assertThat(Arrays.stream(ids).max().getAsInt())
+                .isLessThan(threads + 64 * 8 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 6. Тест на то, что сервис начинает назначать id за наибольшим сохраненным
+     */
+    @Test
+    public void serviceStartsAfterStoredIdsTest() {
+        InMemoryNoteRepository repository = new InMemoryNoteRepository();
+        for (int id = 1; id <= 1000; id++) {
+            repository.addNote(new Note(id, "Title", "Content"));
+        }
+        NoteServiceImpl noteService = new NoteServiceImpl(repository);
+
+        assertThat(noteService.addNote("Title", "Content")).isEqualTo(1001);
+    }
+}
@@ -0,0 +1,166 @@
+package MyNoteTest;
+
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteImporter;
+import org.MyNote.NoteServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NoteImporterTest {
+
+    @TempDir
+    Path directory;
+
+    /** Запоминает ход загрузки и отклоненные записи. */
+    private static final class RecordingListener implements NoteImporter.Listener {
+        final List<NoteImporter.Progress> progress = new ArrayList<>();
+        final List<String> rejected = new ArrayList<>();
+
+        @Override
+        public void onProgress(NoteImporter.Progress progress) {
+            this.progress.add(progress);
+        }
+
+        @Override
+        public void onRejected(long line, String reason) {
+            rejected.add(line + ": " + reason);
+        }
+    }
+
+    /**
+     * 1. Тест на загрузку CSV с кавычками, переносами строк и отклоненными записями
+     */
+    @Test
+    void testImportsCsvAndReportsRejectedRecords() throws Exception {
+        Path file = directory.resolve("notes.csv");
+        Files.writeString(file, "title,id,extra,content,timestamp\r\n"
+                + "\"Hello, world\",1,x,\"Line one\nLine \"\"two\"\"\",2023-05-01T10:15:30\r\n"
+                + "\n"
+                + "Plain,2,,Text,\n"
+                + "Bad,abc,,Text,\n"
+                + " ,3,,Text,\n"
+                + "\"Broken,4,,Text,\n", StandardCharsets.UTF_8);
+        NoteServiceImpl service = new NoteServiceImpl(new InMemoryNoteRepository());
+        RecordingListener listener = new RecordingListener();
+
+        NoteImporter.Progress result = new NoteImporter(service, 2, 2).importFile(file, NoteImporter.Format.CSV, listener);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(result.getPosition()).isEqualTo(Files.size(file));
+        Note first = service.getNoteById(1);
+        assertThat(first.getTitle()).isEqualTo("Hello, world");
+        assertThat(first.getContent()).isEqualTo("Line one\nLine \"two\"");
+        assertThat(first.getTimestamp()).isEqualTo(LocalDateTime.of(2023, 5, 1, 10, 15, 30));
+        assertThat(service.getNoteById(2).getTimestamp()).isNotNull();
+        assertThat(listener.rejected).containsExactly(
+                "6: Invalid id",
+                "7: Title cannot be null, or empty, or whitespace",
+                "8: Malformed CSV record");
+    }
+
+    /**
+     * 2. Тест на параллельную загрузку JSON Lines с сохранением порядка пакетов
+     */
+    @Test
+    void testImportsJsonLinesInParallel() throws Exception {
+        Path file = directory.resolve("notes.jsonl");
+        StringBuilder text = new StringBuilder();
+        int count = 10_000;
+        for (int id = 1; id <= count; id++) {
+            text.append("{\"id\": ").append(id)
+                    .append(", \"title\": \"Title \\u00e9").append(id)
+                    .append("\", \"tags\": [\"a\", {\"b\": null}], \"content\": \"Content\\n").append(id)
+                    .append("\", \"timestamp\": 1700000000000}\n");
+        }
+        text.append("{\"title\": \"No id\", \"content\": \"Text\"}\n");
+        text.append("{\"id\": 1, \"title\": \n");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        NoteServiceImpl service = new NoteServiceImpl(new InMemoryNoteRepository());
+        RecordingListener listener = new RecordingListener();
+
+        NoteImporter.Progress result = new NoteImporter(service, 256, 4)
+                .importFile(file, NoteImporter.Format.JSON_LINES, listener);
+
+        assertThat(result.getImported()).isEqualTo(count);
+        assertThat(service.getAllNotes()).hasSize(count);
+        assertThat(service.getNoteById(777).getTitle()).isEqualTo("Title é777");
+        assertThat(service.getNoteById(777).getContent()).isEqualTo("Content\n777");
+        assertThat(service.getNoteById(777).getTimestampMillis()).isEqualTo(1700000000000L);
+        assertThat(listener.rejected).containsExactly(
+                (count + 1) + ": Missing id",
+                (count + 2) + ": Malformed JSON record");
+        assertThat(listener.progress).extracting(NoteImporter.Progress::getPosition).isSorted();
+        assertThat(listener.progress.get(listener.progress.size() - 1).getLine()).isEqualTo(count + 3);
+    }
+
+    /**
+     * 3. Тест на продолжение загрузки после сбоя хранилища
+     */
+    @Test
+    void testResumesAfterFailure() throws Exception {
+        Path file = directory.resolve("resume.csv");
+        StringBuilder text = new StringBuilder("id,title,content\n");
+        for (int id = 1; id <= 100; id++) {
+            text.append(id).append(",Title ").append(id).append(",Content\n");
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        AtomicInteger batches = new AtomicInteger();
+        InMemoryNoteRepository repository = new InMemoryNoteRepository() {
+            @Override
+            public void addNotes(Collection<Note> notes) {
+                if (batches.incrementAndGet() == 3) {
+                    throw new IllegalStateException("Storage is unavailable");
+                }
+                super.addNotes(notes);
+            }
+        };
+        NoteServiceImpl service = new NoteServiceImpl(repository);
+        NoteImporter importer = new NoteImporter(service, 10, 2);
+        RecordingListener listener = new RecordingListener();
+
+        assertThatThrownBy(() -> importer.importFile(file, NoteImporter.Format.CSV, listener))
+                .isInstanceOf(IllegalStateException.class);
+        NoteImporter.Progress last = listener.progress.get(listener.progress.size() - 1);
+        assertThat(last.getImported()).isEqualTo(20);
+        assertThat(last.getLine()).isEqualTo(22);
+
+        NoteImporter.Progress result = importer.importFile(file, NoteImporter.Format.CSV, last, null);
+
+        assertThat(result.getImported()).isEqualTo(100);
+        assertThat(result.getLine()).isEqualTo(102);
+        assertThat(service.getAllNotes()).hasSize(100);
+        assertThat(service.getNoteById(21).getTitle()).isEqualTo("Title 21");
+    }
+
+    /**
+     * 4. Тест на проверку параметров загрузчика и заголовка CSV
+     */
+    @Test
+    void testRejectsInvalidArguments() throws Exception {
+        NoteServiceImpl service = new NoteServiceImpl(new InMemoryNoteRepository());
+        assertThatThrownBy(() -> new NoteImporter(service, 0, 1))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Batch size must be positive");
+        assertThatThrownBy(() -> new NoteImporter(service, 1, 0))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Parallelism must be positive");
+
+        Path file = directory.resolve("header.csv");
+        Files.writeString(file, "id,name\n1,Title\n", StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> new NoteImporter(service).importFile(file, NoteImporter.Format.CSV, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("CSV header must contain id, title and content columns");
+    }
+}
@@ -0,0 +1,115 @@
+package MyNoteTest;
+
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.LatencyHistogram;
+import org.MyNote.MetricsNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteMetrics;
+import org.MyNote.NoteServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class NoteMetricsTest {
+
+    /**
+     * 1. Тест на точность квантилей гистограммы задержек
+     */
+    @Test
+    public void histogramQuantilesTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1_000);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat(histogram.getMaxNanos()).isEqualTo(100_000_000);
+        assertThat((double) histogram.valueAtQuantile(0.5)).isCloseTo(50_000_000, within(50_000_000 / 16.0));
+        assertThat((double) histogram.valueAtQuantile(0.99)).isCloseTo(99_000_000, within(99_000_000 / 16.0));
+        assertThat((double) histogram.valueAtQuantile(0.999)).isCloseTo(99_900_000, within(99_900_000 / 16.0));
+        assertThat(histogram.valueAtQuantile(1)).isEqualTo(100_000_000);
+    }
+
+    /**
+     * 2. Тест на учет операций хранилища, ошибок и отказов проверки по причинам
+     */
+    @Test
+    public void serviceAndRepositoryMetricsTest() {
+        NoteMetrics repositoryMetrics = new NoteMetrics();
+        NoteMetrics serviceMetrics = new NoteMetrics();
+        NoteServiceImpl service = new NoteServiceImpl(
+                new MetricsNoteRepository(new InMemoryNoteRepository(), repositoryMetrics));
+        service.setMetrics(serviceMetrics);
+
+        service.addNote(new Note(1, "Title", "Content"));
+        service.getNoteById(1);
+        service.getNoteById(2);
+        assertThatThrownBy(() -> service.addNote(new Note(3, " ", "Content"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.updateNote(new Note(2, "Title", "Content"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.deleteNote(2)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(repositoryMetrics.getLatency(NoteMetrics.Operation.ADD_NOTE).getCount()).isEqualTo(1);
+        assertThat(repositoryMetrics.getLatency(NoteMetrics.Operation.GET_NOTE).getCount()).isEqualTo(2);
+        assertThat(repositoryMetrics.getLatency(NoteMetrics.Operation.UPDATE_NOTE).getCount()).isEqualTo(1);
+        assertThat(repositoryMetrics.getErrorCount(NoteMetrics.Operation.UPDATE_NOTE)).isZero();
+
+        assertThat(serviceMetrics.getLatency(NoteMetrics.Operation.ADD_NOTE).getCount()).isEqualTo(2);
+        assertThat(serviceMetrics.getErrorCount(NoteMetrics.Operation.ADD_NOTE)).isEqualTo(1);
+        assertThat(serviceMetrics.getErrorCount(NoteMetrics.Operation.DELETE_NOTE)).isEqualTo(1);
+        assertThat(serviceMetrics.getValidationFailures()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "Title cannot be null, or empty, or whitespace", 1L,
+                "Note with the given ID does not exist", 2L));
+    }
+
+    /**
+     * 3. Тест на публикацию метрик через JMX
+     */
+    @Test
+    public void mbeansTest() throws Exception {
+        NoteMetrics metrics = new NoteMetrics();
+        metrics.record(NoteMetrics.Operation.GET_NOTE, 2_000);
+        metrics.recordValidationFailure("Title is too long");
+        metrics.registerMBeans("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName get = new ObjectName("org.MyNote:type=NoteMetrics,name=\"test\",operation=GET_NOTE");
+            ObjectName validation = new ObjectName("org.MyNote:type=NoteMetrics,name=\"test\",operation=VALIDATION");
+
+            assertThat(server.getAttribute(get, "Count")).isEqualTo(1L);
+            assertThat((Double) server.getAttribute(get, "P99Micros")).isCloseTo(2.0, within(0.2));
+            assertThat(server.getAttribute(validation, "FailureCount")).isEqualTo(1L);
+            assertThatThrownBy(() -> metrics.registerMBeans("test")).isInstanceOf(IllegalStateException.class);
+        } finally {
+            metrics.unregisterMBeans();
+        }
+        assertThat(ManagementFactory.getPlatformMBeanServer().queryNames(
+                new ObjectName("org.MyNote:type=NoteMetrics,name=\"test\",*"), null)).isEmpty();
+    }
+
+    /**
+     * 4. Тест на то, что запись задержки не выделяет память
+     */
+    @Test
+    public void recordingDoesNotAllocateTest() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        NoteMetrics metrics = new NoteMetrics();
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record(NoteMetrics.Operation.GET_NOTE, i);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1_000_000; i++) {
+            metrics.record(NoteMetrics.Operation.GET_NOTE, i);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertThat(allocated).isLessThan(1_024);
+    }
+}
@@ -0,0 +1,119 @@
+package MyNoteTest;
+
+import org.MyNote.ConcurrentNoteRepository;
+import org.MyNote.ImmutableNote;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteQuery;
+import org.MyNote.NoteRepository;
+import org.MyNote.NoteServiceImpl;
+import org.MyNote.ShardedNoteRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class NoteQueryTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static List<Note> notes(int count) {
+        List<Note> notes = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            Note note = new Note(id, (id % 2 == 0 ? "Отчет " : "Заметка ") + id, "Содержимое " + (id % 10 == 0 ? "важно" : "обычно"));
+            note.setTimestamp(START.plusMinutes(count - id));
+            notes.add(note);
+        }
+        return notes;
+    }
+
+    /**
+     * 1. Тест на фильтрацию, сортировку, ограничение и проекцию результатов запроса
+     */
+    @Test
+    public void queryFiltersSortsAndProjectsTest() {
+        NoteServiceImpl noteService = new NoteServiceImpl(new InMemoryNoteRepository());
+        noteService.addNotes(notes(100));
+
+        NoteQuery query = NoteQuery.builder()
+                .titleStartsWith("Отчет")
+                .contentContains("важно")
+                .orderBy(NoteQuery.Order.ID_DESCENDING)
+                .limit(3)
+                .build();
+
+        assertThat(noteService.query(query, ImmutableNote::getId)).containsExactly(100, 90, 80);
+        assertThat(noteService.query(NoteQuery.builder().titleContains("Заметка 9").build(), ImmutableNote::getTitle))
+                .containsExactlyInAnyOrder("Заметка 9", "Заметка 91", "Заметка 93", "Заметка 95", "Заметка 97", "Заметка 99");
+        assertThat(noteService.query(NoteQuery.builder().limit(7).build())).hasSize(7);
+        assertThatThrownBy(() -> NoteQuery.builder().limit(0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limit must be positive");
+        assertThatThrownBy(() -> noteService.query(null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Query cannot be null");
+    }
+
+    /**
+     * 2. Тест на использование индекса по времени вместо обхода хранилища
+     */
+    @Test
+    public void timeRangeQueryUsesTimestampIndexTest() {
+        NoteRepository repository = spy(new ConcurrentNoteRepository());
+        // Сервис ставит текущее время при добавлении, поэтому заметки кладем прямо в хранилище
+        repository.addNotes(notes(100));
+        NoteServiceImpl noteService = new NoteServiceImpl(repository);
+        noteService.enableTimestampIndex();
+        // Построение индекса обходит хранилище один раз; дальше запросы не должны его обходить
+        clearInvocations(repository);
+
+        NoteQuery query = NoteQuery.builder()
+                .changedSince(START.plusMinutes(10))
+                .changedBefore(START.plusMinutes(20))
+                .orderBy(NoteQuery.Order.NEWEST_FIRST)
+                .limit(4)
+                .build();
+
+        // Заметка id изменена в START + (100 - id) минут
+        assertThat(noteService.query(query, ImmutableNote::getId)).containsExactly(81, 82, 83, 84);
+        assertThat(noteService.query(NoteQuery.builder().changedSince(START.plusMinutes(95))
+                .titleStartsWith("Отчет").orderBy(NoteQuery.Order.ID_ASCENDING).build(), ImmutableNote::getId))
+                .containsExactly(2, 4);
+        verify(repository, never()).findNoteValues(any(), any(), anyInt());
+        verify(repository, never()).streamNoteValues();
+    }
+
+    /**
+     * 3. Тест на одинаковый результат параллельного обхода большого и шардированного хранилищ
+     */
+    @Test
+    public void largeAndShardedScansAgreeTest() {
+        List<Note> notes = notes(50_000);
+        NoteRepository plain = new InMemoryNoteRepository();
+        plain.addNotes(notes);
+        NoteRepository sharded = new ShardedNoteRepository(8, index -> new InMemoryNoteRepository(), ForkJoinPool.commonPool());
+        sharded.addNotes(notes);
+        NoteQuery query = NoteQuery.builder()
+                .contentContains("важно")
+                .orderBy(NoteQuery.Order.OLDEST_FIRST)
+                .limit(5)
+                .build();
+
+        List<ImmutableNote> expected = new NoteServiceImpl(plain).query(query);
+
+        assertThat(expected).extracting(ImmutableNote::getId).containsExactly(50_000, 49_990, 49_980, 49_970, 49_960);
+        assertThat(new NoteServiceImpl(sharded).query(query)).isEqualTo(expected);
+        assertThat(sharded.findNoteValues(query::matches, null, 10)).hasSize(10)
+                .allSatisfy(note -> assertThat(note.getContent()).endsWith("важно"));
+    }
+}
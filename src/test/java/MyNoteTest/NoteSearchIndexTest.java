@@ -0,0 +1,148 @@
+package MyNoteTest;
+
+import org.MyNote.ImmutableNote;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteSearchIndex;
+import org.MyNote.NoteServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NoteSearchIndexTest {
+    private NoteSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new NoteSearchIndex();
+        index.index(new Note(1, "Заметка 1", "Dei voluntas"));
+        index.index(new Note(2, "Обновленная заметка 2", "Терпение и устремленность"));
+        index.index(new Note(3, "Заметка 3", "Patientia et perseverantia, терпение, ТЕРПЕНИЕ"));
+        index.index(new Note(4, "Ёлка", "Новогодняя ёлка"));
+    }
+
+    /**
+     * 1. Тест на поиск слова без учета регистра
+     */
+    @Test
+    public void termSearchIgnoresCaseTest() {
+        assertThat(index.search("ТЕРПЕНИЕ", 10)).containsExactly(3, 2);
+        assertThat(index.search("voluntas", 10)).containsExactly(1);
+        assertThat(index.search("voluntas", Integer.MAX_VALUE)).containsExactly(1);
+        assertThat(index.search("отсутствует", 10)).isEmpty();
+    }
+
+    /**
+     * 2. Тест на поиск нескольких слов (AND) и альтернатив (OR)
+     */
+    @Test
+    public void andOrSearchTest() {
+        assertThat(index.search("заметка терпение", 10)).containsExactlyInAnyOrder(2, 3);
+        assertThat(index.search("заметка dei", 10)).containsExactly(1);
+        assertThat(index.search("voluntas OR устремленность", 10)).containsExactlyInAnyOrder(1, 2);
+    }
+
+    /**
+     * 3. Тест на поиск по префиксу и нормализацию буквы ё
+     */
+    @Test
+    public void prefixSearchTest() {
+        assertThat(index.search("perse*", 10)).containsExactly(3);
+        assertThat(index.search("зам*", 10)).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(index.search("елка", 10)).containsExactly(4);
+    }
+
+    /**
+     * 4. Тест на обновление и удаление заметки из индекса
+     */
+    @Test
+    public void incrementalUpdateTest() {
+        index.index(new Note(1, "Заметка 1", "Honor et virtus"));
+        index.remove(3);
+
+        assertThat(index.search("voluntas", 10)).isEmpty();
+        assertThat(index.search("virtus", 10)).containsExactly(1);
+        assertThat(index.search("терпение", 10)).containsExactly(2);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    /**
+     * 5. Тест на ограничение числа результатов
+     */
+    @Test
+    public void limitTest() {
+        assertThat(index.search("заметка", 2)).hasSize(2);
+    }
+
+    /**
+     * 6. Тест на поиск через сервис с поддержкой индекса при изменениях
+     */
+    @Test
+    public void serviceSearchTest() {
+        NoteServiceImpl service = new NoteServiceImpl(new InMemoryNoteRepository());
+        service.addNote(new Note(1, "Заметка 1", "Dei voluntas"));
+
+        assertThatThrownBy(() -> service.search("voluntas", 10))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Search index is not enabled");
+
+        service.enableSearchIndex();
+        service.addNote(new Note(2, "Заметка 2", "Honor et virtus"));
+        service.updateNote(new Note(1, "Заметка 1", "Patientia"));
+        service.deleteNote(2);
+
+        assertThat(service.search("заметка", 10)).extracting(Note::getId).containsExactly(1);
+        assertThat(service.search("voluntas", 10)).isEmpty();
+        assertThat(service.search("patientia", 10)).extracting(Note::getId).containsExactly(1);
+        assertThatThrownBy(() -> service.search(" ", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Query cannot be null, or empty, or whitespace");
+    }
+
+    /**
+     * 7. Тест на построение индекса при изменении заметок во время обхода хранилища
+     */
+    @Test
+    public void enableDuringChangesTest() {
+        AtomicReference<Runnable> onFirstNote = new AtomicReference<>();
+        InMemoryNoteRepository repository = new InMemoryNoteRepository() {
+            @Override
+            public Stream<ImmutableNote> streamNoteValues() {
+                // Обход отдает снимок, а после первой заметки хранилище меняется
+                List<ImmutableNote> snapshot = super.streamNoteValues().toList();
+                return snapshot.stream().peek(note -> {
+                    Runnable change = onFirstNote.getAndSet(null);
+                    if (change != null) {
+                        change.run();
+                    }
+                });
+            }
+
+            @Override
+            public Stream<Note> streamNotes() {
+                return streamNoteValues().map(ImmutableNote::toNote);
+            }
+        };
+        NoteServiceImpl service = new NoteServiceImpl(repository);
+        service.addNote(new Note(1, "Первая", "Dei voluntas"));
+        service.addNote(new Note(2, "Вторая", "Honor et virtus"));
+        service.addNote(new Note(3, "Третья", "Amor fati"));
+        onFirstNote.set(() -> {
+            service.deleteNote(2);
+            service.updateNote(new Note(3, "Третья", "Patientia"));
+        });
+
+        service.enableSearchIndex();
+
+        assertThat(service.search("virtus", 10)).isEmpty();
+        assertThat(service.search("fati", 10)).isEmpty();
+        assertThat(service.search("patientia", 10)).extracting(Note::getId).containsExactly(3);
+        assertThat(service.search("voluntas", 10)).extracting(Note::getId).containsExactly(1);
+    }
+}
@@ -1,8 +1,10 @@
 package MyNoteTest;
 
+import org.MyNote.BatchResult;
 import org.MyNote.Note;
 import org.MyNote.NoteRepository;
 import org.MyNote.NoteServiceImpl;
+import org.MyNote.RestrictedWordsMatcher;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
@@ -39,6 +41,7 @@ public class NoteServiceImplTest {
     public void setUp() {
         System.out.println("Test "+this+" started" );
         noteRepository = mock(NoteRepository.class);
+        when(noteRepository.addNoteIfAbsent(any(Note.class))).thenReturn(true);
         noteService = new NoteServiceImpl(noteRepository);
         noteCaptor = ArgumentCaptor.forClass(Note.class);
         idCaptor = ArgumentCaptor.forClass(Integer.class);
@@ -59,7 +62,7 @@ public class NoteServiceImplTest {
         Note note = new Note(1, "Title", "Content");
         noteService.addNote(note);
 
-        verify(noteRepository).addNote(noteCaptor.capture());
+        verify(noteRepository).addNoteIfAbsent(noteCaptor.capture());
         Note capturedNote = noteCaptor.getValue();
 
         assertThat(capturedNote).isEqualToComparingFieldByField(note);
@@ -96,11 +99,12 @@ public class NoteServiceImplTest {
     @Test
     public void updateNoteTest() {
         Note note = new Note(1, "Title", "Content");
-        when(noteRepository.getNoteById(1)).thenReturn(note);
+        when(noteRepository.updateNoteIfPresent(note)).thenReturn(true);
 
         noteService.updateNote(note);
 
-        verify(noteRepository).updateNote(noteCaptor.capture());
+        verify(noteRepository).updateNoteIfPresent(noteCaptor.capture());
+        verify(noteRepository, never()).getNoteById(anyInt());
         Note capturedNote = noteCaptor.getValue();
 
         assertThat(capturedNote).isEqualToComparingFieldByField(note);
@@ -112,7 +116,7 @@ public class NoteServiceImplTest {
     @Test
     public void updateNonExistingNoteTest() {
         Note note = new Note(1, "Title", "Content");
-        when(noteRepository.getNoteById(1)).thenReturn(null);
+        when(noteRepository.updateNoteIfPresent(note)).thenReturn(false);
 
         assertThatThrownBy(() -> noteService.updateNote(note))
                 .isInstanceOf(IllegalArgumentException.class)
@@ -125,11 +129,12 @@ public class NoteServiceImplTest {
     @Test
     public void deleteNoteTest() {
         Note note = new Note(1, "Title", "Content");
-        when(noteRepository.getNoteById(1)).thenReturn(note);
+        when(noteRepository.deleteNoteIfPresent(1)).thenReturn(true);
 
         noteService.deleteNote(1);
 
-        verify(noteRepository).deleteNote(idCaptor.capture());
+        verify(noteRepository).deleteNoteIfPresent(idCaptor.capture());
+        verify(noteRepository, never()).getNoteById(anyInt());
         int capturedId = idCaptor.getValue();
 
         assertThat(capturedId).isEqualTo(1);
@@ -140,7 +145,7 @@ public class NoteServiceImplTest {
      */
     @Test
     public void deleteNonExistingNoteTest() {
-        when(noteRepository.getNoteById(1)).thenReturn(null);
+        when(noteRepository.deleteNoteIfPresent(1)).thenReturn(false);
 
         assertThatThrownBy(() -> noteService.deleteNote(1))
                 .isInstanceOf(IllegalArgumentException.class)
@@ -361,7 +366,7 @@ public class NoteServiceImplTest {
         Note note = new Note(1, "Title", "Content");
         noteService.addNote(note);
 
-        verify(noteRepository, times(1)).addNote(noteCaptor.capture());
+        verify(noteRepository, times(1)).addNoteIfAbsent(noteCaptor.capture());
     }
 
     /**
@@ -370,11 +375,11 @@ public class NoteServiceImplTest {
     @Test
     public void updateNoteCalledOnceTest() {
         Note note = new Note(1, "Title", "Content");
-        when(noteRepository.getNoteById(1)).thenReturn(note);
+        when(noteRepository.updateNoteIfPresent(note)).thenReturn(true);
 
         noteService.updateNote(note);
 
-        verify(noteRepository, times(1)).updateNote(noteCaptor.capture());
+        verify(noteRepository, times(1)).updateNoteIfPresent(noteCaptor.capture());
     }
 
     /**
@@ -383,11 +388,11 @@ public class NoteServiceImplTest {
     @Test
     public void deleteNoteCalledOnceTest() {
         Note note = new Note(1, "Title", "Content");
-        when(noteRepository.getNoteById(1)).thenReturn(note);
+        when(noteRepository.deleteNoteIfPresent(1)).thenReturn(true);
 
         noteService.deleteNote(1);
 
-        verify(noteRepository, times(1)).deleteNote(idCaptor.capture());
+        verify(noteRepository, times(1)).deleteNoteIfPresent(idCaptor.capture());
     }
 
     /**
@@ -458,20 +463,16 @@ public class NoteServiceImplTest {
      */
     @Test
     public void updateNoteCalledInOrderTest() {
-        Note note1 = new Note(1, "Title1", "Content1");
-        Note note2 = new Note(2, "Title2", "Content2");
-        when(noteRepository.getNoteById(1)).thenReturn(note1);
-        when(noteRepository.getNoteById(2)).thenReturn(note2);
-
         Note updatedNote1 = new Note(1, "Updated Title1", "Updated Content1");
         Note updatedNote2 = new Note(2, "Updated Title2", "Updated Content2");
+        when(noteRepository.updateNoteIfPresent(any(Note.class))).thenReturn(true);
 
         noteService.updateNote(updatedNote1);
         noteService.updateNote(updatedNote2);
 
         InOrder inOrder = inOrder(noteRepository);
-        inOrder.verify(noteRepository).updateNote(updatedNote1);
-        inOrder.verify(noteRepository).updateNote(updatedNote2);
+        inOrder.verify(noteRepository).updateNoteIfPresent(updatedNote1);
+        inOrder.verify(noteRepository).updateNoteIfPresent(updatedNote2);
     }
 
     /**
@@ -479,17 +480,14 @@ public class NoteServiceImplTest {
      */
     @Test
     public void deleteNoteCalledInOrderTest() {
-        Note note1 = new Note(1, "Title1", "Content1");
-        Note note2 = new Note(2, "Title2", "Content2");
-        when(noteRepository.getNoteById(1)).thenReturn(note1);
-        when(noteRepository.getNoteById(2)).thenReturn(note2);
+        when(noteRepository.deleteNoteIfPresent(anyInt())).thenReturn(true);
 
         noteService.deleteNote(1);
         noteService.deleteNote(2);
 
         InOrder inOrder = inOrder(noteRepository);
-        inOrder.verify(noteRepository).deleteNote(1);
-        inOrder.verify(noteRepository).deleteNote(2);
+        inOrder.verify(noteRepository).deleteNoteIfPresent(1);
+        inOrder.verify(noteRepository).deleteNoteIfPresent(2);
     }
 
     /**
@@ -620,7 +618,7 @@ public class NoteServiceImplTest {
      */
     @Test
     public void addNoteNotCalledTest() {
-        verify(noteRepository, never()).addNote(any(Note.class));
+        verify(noteRepository, never()).addNoteIfAbsent(any(Note.class));
     }
 
     /**
@@ -628,7 +626,7 @@ public class NoteServiceImplTest {
      */
     @Test
     public void updateNoteNotCalledTest() {
-        verify(noteRepository, never()).updateNote(any(Note.class));
+        verify(noteRepository, never()).updateNoteIfPresent(any(Note.class));
     }
 
     /**
@@ -636,7 +634,7 @@ public class NoteServiceImplTest {
      */
     @Test
     public void deleteNoteNotCalledTest() {
-        verify(noteRepository, never()).deleteNote(anyInt());
+        verify(noteRepository, never()).deleteNoteIfPresent(anyInt());
     }
 
     /**
@@ -666,46 +664,165 @@ public class NoteServiceImplTest {
         noteService.addNote(note2);
 
         InOrder inOrder = inOrder(noteRepository);
-        inOrder.verify(noteRepository).addNote(note1);
-        inOrder.verify(noteRepository).addNote(note2);
+        inOrder.verify(noteRepository).addNoteIfAbsent(note1);
+        inOrder.verify(noteRepository).addNoteIfAbsent(note2);
     }
 
-//    /**
-//     * 49. ТЕст проверки запрета на добавление некоторых слов
-//     */
-//    @Test
-//    public void addNoteWithRestrictedWordsTest() {
-//            List<String> restrictedWords = Arrays.asList("бля", "пиздец", "нахуй");
-//            Note note = new Note(1, "Good Title", "Good Content");
-//            Note noteWithRestrictedWord = new Note(2, "Bad Title", "Content with a restricted word");
-//
-//            noteService.addNoteWithRestrictedWords(note, restrictedWords);
-//
-//            assertThatThrownBy(() -> noteService.addNoteWithRestrictedWords(noteWithRestrictedWord, restrictedWords))
-//                    .isInstanceOf(IllegalArgumentException.class)
-//                    .hasMessage("Note contains a restricted word");
-//        }
-//        List<String> restrictedWords = Arrays.asList("бля", "пиздец", "нахуй");
-//        Note note = new Note(1, "Good Title", "Good Content");
-//        Note noteWithRestrictedWord = new Note(2, "Bad Title", "Content with a restricted word");
-//
-//        noteService.addNoteWithRestrictedWords(note, restrictedWords);
-//
-//        try {
-//            noteService.addNoteWithRestrictedWords(noteWithRestrictedWord, restrictedWords);
-//            fail("Expected an IllegalArgumentException to be thrown");
-//        } catch (IllegalArgumentException e) {
-//            assertThat(e.getMessage()).isEqualTo("Note contains a restricted word");
-//        }
-//        List<String> restrictedWords = Arrays.asList("бля", "пиздец", "нахуй");
-//        Note note = new Note(1, "Good Title", "Good Content");
-//        Note noteWithRestrictedWord = new Note(2, "Bad Title", "Content with a restricted word");
-//
-//        noteService.addNoteWithRestrictedWords(note, restrictedWords);
-//
-//        assertThatThrownBy(() -> noteService.addNoteWithRestrictedWords(noteWithRestrictedWord, restrictedWords))
-//                .isInstanceOf(IllegalArgumentException.class)
-//                .hasMessage("Note contains a restricted word");
+    /**
+     * 49. Тест проверки запрета на добавление некоторых слов
+     */
+    @Test
+    public void addNoteWithRestrictedWordsTest() {
+        noteService.setRestrictedWords(Arrays.asList("запрет", "forbidden"));
+        Note note = new Note(1, "Good Title", "Good Content");
+        Note noteWithRestrictedWord = new Note(2, "Bad Title", "Content with a FORBIDDEN word");
+        Note noteWithCyrillicWord = new Note(3, "Это Запретное слово", "Content");
+
+        noteService.addNote(note);
+
+        assertThatThrownBy(() -> noteService.addNote(noteWithRestrictedWord))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Note contains a restricted word");
+        assertThatThrownBy(() -> noteService.addNote(noteWithCyrillicWord))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Note contains a restricted word");
+        verify(noteRepository, times(1)).addNoteIfAbsent(any(Note.class));
+    }
+
+    /**
+     * 49.1. Тест на замену списка запрещенных слов при обновлении заметки
+     */
+    @Test
+    public void updateNoteWithReplacedRestrictedWordsTest() {
+        Note note = new Note(1, "Title", "Honor et virtus");
+        when(noteRepository.updateNoteIfPresent(note)).thenReturn(true);
+
+        noteService.updateNote(note);
+        noteService.setRestrictedWords(List.of("virtus"));
+
+        assertThatThrownBy(() -> noteService.updateNote(note))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Note contains a restricted word");
+
+        noteService.setRestrictedWords(List.of());
+        noteService.updateNote(note);
+
+        verify(noteRepository, times(2)).updateNoteIfPresent(note);
+    }
+
+    /**
+     * 49.2. Тест автомата на пересекающиеся слова
+     */
+    @Test
+    public void restrictedWordsMatcherTest() {
+        RestrictedWordsMatcher matcher = RestrictedWordsMatcher.compile(Arrays.asList("he", "she", "his", "hers", "ёж", ""));
+
+        assertThat(matcher.size()).isEqualTo(5);
+        assertThat(matcher.containsAny("ushers")).isTrue();
+        assertThat(matcher.containsAny("xxhixs")).isFalse();
+        assertThat(matcher.containsAny("ahis")).isTrue();
+        assertThat(matcher.containsAny("Ежик")).isTrue();
+        assertThat(matcher.containsAny("")).isFalse();
+        assertThat(RestrictedWordsMatcher.EMPTY.containsAny("anything")).isFalse();
+    }
+
+    /**
+     * 50. Тест на пакетное добавление с некорректной заметкой в середине пакета
+     */
+    @Test
+    public void addNotesSkipsInvalidNoteTest() {
+        Note note1 = new Note(1, "Title1", "Content1");
+        Note invalid = new Note(2, "", "Content2");
+        Note note3 = new Note(3, "Title3", "Content3");
+
+        BatchResult result = noteService.addNotes(Arrays.asList(note1, invalid, note3));
+
+        assertThat(result.size()).isEqualTo(3);
+        assertThat(result.getSuccessCount()).isEqualTo(2);
+        assertThat(result.isSuccess(0)).isTrue();
+        assertThat(result.getError(1)).isEqualTo("Title cannot be null, or empty, or whitespace");
+        assertThat(result.isSuccess(2)).isTrue();
+        verify(noteRepository, times(1)).addNotes(Arrays.asList(note1, note3));
+        verify(noteRepository, never()).addNoteIfAbsent(any(Note.class));
+        assertThat(note1.getTimestamp()).isEqualTo(note3.getTimestamp());
+    }
+
+    /**
+     * 51. Тест на пакетное обновление с отсутствующей заметкой
+     */
+    @Test
+    public void updateNotesReportsMissingNoteTest() {
+        Note note1 = new Note(1, "Title1", "Content1");
+        Note note2 = new Note(2, "Title2", "Content2");
+        Note invalid = new Note(-3, "Title3", "Content3");
+        when(noteRepository.updateNotes(Arrays.asList(note1, note2))).thenReturn(new boolean[]{true, false});
+
+        BatchResult result = noteService.updateNotes(Arrays.asList(note1, note2, invalid));
+
+        assertThat(result.isSuccess(0)).isTrue();
+        assertThat(result.getError(1)).isEqualTo("Note with the given ID does not exist");
+        assertThat(result.getError(2)).isEqualTo("ID cannot be negative");
+        assertThat(result.getFailureCount()).isEqualTo(2);
+    }
+
+    /**
+     * 52. Тест на пакетное удаление
+     */
+    @Test
+    public void deleteNotesTest() {
+        when(noteRepository.deleteNotes(new int[]{1, 2})).thenReturn(new boolean[]{true, false});
+
+        BatchResult result = noteService.deleteNotes(new int[]{1, 0, 2});
+
+        assertThat(result.isSuccess(0)).isTrue();
+        assertThat(result.getError(1)).isEqualTo("ID cannot be zero");
+        assertThat(result.getError(2)).isEqualTo("Note with the given ID does not exist");
+        verify(noteRepository, never()).deleteNoteIfPresent(anyInt());
+    }
+
+    /**
+     * 53. Тест на пакетное получение заметок
+     */
+    @Test
+    public void getNotesByIdsTest() {
+        Note note1 = new Note(1, "Title1", "Content1");
+        when(noteRepository.getNotesByIds(new int[]{1, 5})).thenReturn(Arrays.asList(note1, null));
+
+        List<Note> result = noteService.getNotesByIds(new int[]{1, -2, 5});
+
+        assertThat(result).containsExactly(note1, null, null);
+    }
+
+
+    /**
+     * 54. Тест на получение страницы с некорректными параметрами
+     */
+    @Test
+    public void getNotesPageWithInvalidArgumentsTest() {
+        assertThatThrownBy(() -> noteService.getNotesPage(-1, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor cannot be negative");
+        assertThatThrownBy(() -> noteService.getNotesPage(0, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limit must be positive");
+        verify(noteRepository, never()).getNotesPage(anyInt(), anyInt());
+    }
+
+    /**
+     * 55. Тест на отказ в добавлении заметки с уже существующим id
+     */
+    @Test
+    public void addNoteWithExistingIdTest() {
+        Note note = new Note(1, "Title", "Content");
+        long timestamp = note.getTimestampMillis();
+        when(noteRepository.addNoteIfAbsent(note)).thenReturn(false);
+
+        assertThatThrownBy(() -> noteService.addNote(note))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Note with the given ID already exists");
+        assertThat(note.getTimestampMillis()).isEqualTo(timestamp);
+        verify(noteRepository, never()).addNote(any(Note.class));
+    }
 
 
     @AfterAll
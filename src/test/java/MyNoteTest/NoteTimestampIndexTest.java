@@ -0,0 +1,202 @@
+package MyNoteTest;
+
+import org.MyNote.ConcurrentNoteRepository;
+import org.MyNote.ImmutableNote;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteServiceImpl;
+import org.MyNote.NoteTimestampIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NoteTimestampIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2023, 5, 1, 12, 0);
+
+    private NoteTimestampIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new NoteTimestampIndex();
+        for (int id = 1; id <= 5; id++) {
+            index.index(noteAt(id, BASE.plusMinutes(id * 10L)));
+        }
+        // Две заметки с одинаковым временем
+        index.index(noteAt(6, BASE.plusMinutes(30)));
+    }
+
+    /**
+     * 1. Тест на запрос по диапазону времени
+     */
+    @Test
+    public void rangeQueryTest() {
+        assertThat(index.idsBetween(BASE.plusMinutes(20), BASE.plusMinutes(40))).containsExactly(2, 3, 6);
+        assertThat(index.idsBetween(BASE, BASE.plusMinutes(5))).isEmpty();
+    }
+
+    /**
+     * 2. Тест на запрос изменений с момента времени и последних заметок
+     */
+    @Test
+    public void changedSinceAndNewestTest() {
+        assertThat(index.idsChangedSince(BASE.plusMinutes(40))).containsExactly(4, 5);
+        assertThat(index.newestIds(3)).containsExactly(5, 4, 6);
+        assertThat(index.newestIds(100)).hasSize(6);
+    }
+
+    /**
+     * 3. Тест на переиндексацию и удаление заметки
+     */
+    @Test
+    public void reindexAndRemoveTest() {
+        index.index(noteAt(1, BASE.plusHours(5)));
+        index.remove(5);
+
+        assertThat(index.newestIds(2)).containsExactly(1, 4);
+        assertThat(index.idsBetween(BASE, BASE.plusMinutes(15))).isEmpty();
+        assertThat(index.size()).isEqualTo(5);
+    }
+
+    /**
+     * 4. Тест на запросы по времени через сервис
+     */
+    @Test
+    public void serviceQueriesTest() throws InterruptedException {
+        NoteServiceImpl service = new NoteServiceImpl(new InMemoryNoteRepository());
+        service.addNote(new Note(1, "Title1", "Content1"));
+
+        assertThatThrownBy(() -> service.getNewestNotes(1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Timestamp index is not enabled");
+
+        service.enableTimestampIndex();
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+        service.addNote(new Note(2, "Title2", "Content2"));
+        // Метки хранятся с точностью до миллисекунды
+        Thread.sleep(2);
+        service.updateNote(new Note(1, "Updated", "Content1"));
+
+        assertThat(service.getNewestNotes(1)).extracting(Note::getId).containsExactly(1);
+        assertThat(service.getNotesChangedSince(before)).extracting(Note::getId).containsExactlyInAnyOrder(1, 2);
+        assertThatThrownBy(() -> service.getNotesBetween(BASE.plusDays(1), BASE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Start of time range cannot be after its end");
+    }
+
+    private static Note noteAt(int id, LocalDateTime timestamp) {
+        Note note = new Note(id, "Title" + id, "Content" + id);
+        note.setTimestamp(timestamp);
+        return note;
+    }
+
+    /**
+     * 5. Тест на то, что одновременные обновление и удаление не оставляют в индексе удаленных заметок
+     */
+    @Test
+    public void concurrentUpdateAndDeleteTest() throws Exception {
+        ConcurrentNoteRepository repository = new ConcurrentNoteRepository();
+        int kept = 10;
+        // Оставшиеся заметки старше любых обновлений, поэтому устаревшие записи обогнали бы их в выборке
+        for (int id = 1; id <= kept; id++) {
+            repository.addNote(noteAt(id, BASE.plusMinutes(id)));
+        }
+        NoteServiceImpl service = new NoteServiceImpl(repository);
+        // Полнотекстовый индекс уведомляется первым и растягивает окно между записью и индексом по времени
+        service.enableSearchIndex();
+        service.enableTimestampIndex();
+        String content = "слово ".repeat(300);
+        int raced = 2000;
+        for (int id = kept + 1; id <= kept + raced; id++) {
+            service.addNote(new Note(id, "Raced" + id, "Content"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int part = 0; part < 2; part++) {
+                int first = kept + 1 + part;
+                // Обновление и удаление каждой заметки начинаются одновременно
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                futures.add(executor.submit(() -> {
+                    for (int id = first; id <= kept + raced; id += 2) {
+                        barrier.await();
+                        try {
+                            service.updateNote(new Note(id, "Updated", content));
+                        } catch (IllegalArgumentException e) {
+                            // Заметку уже удалили
+                        }
+                    }
+                    return null;
+                }));
+                futures.add(executor.submit(() -> {
+                    for (int id = first; id <= kept + raced; id += 2) {
+                        barrier.await();
+                        service.deleteNote(id);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Устаревшие записи обновленных заметок были бы новее оставшихся и заняли бы места в выборке
+        assertThat(service.getNewestNotes(kept)).hasSize(kept);
+        assertThat(service.getNotesChangedSince(BASE)).hasSize(kept);
+    }
+
+    /**
+     * 6. Тест на построение индекса при удалении и обновлении заметок во время обхода хранилища
+     */
+    @Test
+    public void enableDuringChangesTest() {
+        AtomicReference<Runnable> onFirstNote = new AtomicReference<>();
+        InMemoryNoteRepository repository = new InMemoryNoteRepository() {
+            @Override
+            public Stream<ImmutableNote> streamNoteValues() {
+                // Обход отдает снимок, а после первой заметки хранилище меняется
+                List<ImmutableNote> snapshot = super.streamNoteValues().toList();
+                return snapshot.stream().peek(note -> {
+                    Runnable change = onFirstNote.getAndSet(null);
+                    if (change != null) {
+                        change.run();
+                    }
+                });
+            }
+
+            @Override
+            public Stream<Note> streamNotes() {
+                return streamNoteValues().map(ImmutableNote::toNote);
+            }
+        };
+        for (int id = 1; id <= 3; id++) {
+            repository.addNote(noteAt(id, BASE.plusMinutes(id)));
+        }
+        NoteServiceImpl service = new NoteServiceImpl(repository);
+        onFirstNote.set(() -> {
+            service.deleteNote(2);
+            // Сервис ставит заметке текущее время
+            service.updateNote(new Note(3, "Title", "Content"));
+        });
+
+        service.enableTimestampIndex();
+
+        assertThat(service.getNotesBetween(BASE, BASE.plusHours(1))).extracting(Note::getId).containsExactly(1);
+        assertThat(service.getNewestNotes(10)).extracting(Note::getId).containsExactly(3, 1);
+    }
+}
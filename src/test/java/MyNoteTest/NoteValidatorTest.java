@@ -0,0 +1,91 @@
+package MyNoteTest;
+
+import org.MyNote.BatchResult;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteServiceImpl;
+import org.MyNote.NoteValidator;
+import org.MyNote.RestrictedWordsMatcher;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NoteValidatorTest {
+    private static final NoteValidator VALIDATOR = NoteValidator.builder()
+            .requireNote("null")
+            .requirePositiveId("id")
+            .requireNonBlank(NoteValidator.Field.TITLE, "blank title")
+            .requireNonEmpty(NoteValidator.Field.CONTENT, "empty content")
+            .maxLength(NoteValidator.Field.TITLE, 10, "long title")
+            .rejectRestrictedWords("restricted")
+            .compile();
+
+    /**
+     * 1. Тест на совпадение проверок по байтам с проверками String.trim и String.length
+     */
+    @Test
+    public void textRulesMatchStringSemanticsTest() {
+        RestrictedWordsMatcher none = RestrictedWordsMatcher.EMPTY;
+
+        assertThat(VALIDATOR.validate(null, none)).isEqualTo("null");
+        assertThat(VALIDATOR.validate(new Note(0, "Title", "Content"), none)).isEqualTo("id");
+        assertThat(VALIDATOR.validate(new Note(1, " \t\n\u0000 ", "Content"), none)).isEqualTo("blank title");
+        assertThat(VALIDATOR.validate(new Note(1, null, "Content"), none)).isEqualTo("blank title");
+        assertThat(VALIDATOR.validate(new Note(1, "\u00A0", "Content"), none)).isNull();
+        assertThat(VALIDATOR.validate(new Note(1, "Title", ""), none)).isEqualTo("empty content");
+        assertThat(VALIDATOR.validate(new Note(1, "Title", " "), none)).isNull();
+
+        // 10 символов кириллицы - 20 байт, но 10 символов; эмодзи - 4 байта и 2 символа UTF-16
+        assertThat(VALIDATOR.validate(new Note(1, "ЗаголовокЪ", "Content"), none)).isNull();
+        assertThat(VALIDATOR.validate(new Note(1, "😀😀😀😀😀", "Content"), none)).isNull();
+        assertThat(VALIDATOR.validate(new Note(1, "😀😀😀😀😀a", "Content"), none)).isEqualTo("long title");
+        assertThatThrownBy(() -> VALIDATOR.check(new Note(1, "ЗаголовокЪЪ", "Content"), none))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("long title");
+    }
+
+    /**
+     * 2. Тест на поиск запрещенных слов в тексте UTF-8
+     */
+    @Test
+    public void restrictedWordsInUtf8Test() {
+        RestrictedWordsMatcher matcher = RestrictedWordsMatcher.compile(List.of("запрет", "😀x"));
+
+        assertThat(VALIDATOR.validate(new Note(1, "Title", "тут ЗАПРЁТ"), matcher)).isEqualTo("restricted");
+        assertThat(VALIDATOR.validate(new Note(1, "a😀X", "Content"), matcher)).isEqualTo("restricted");
+        assertThat(VALIDATOR.validate(new Note(1, "a😀 x", "запре т"), matcher)).isNull();
+    }
+
+    /**
+     * 3. Тест на проверку пакета без исключений и без выделения памяти для корректных заметок
+     */
+    @Test
+    public void resultModeTest() {
+        NoteServiceImpl service = new NoteServiceImpl(new InMemoryNoteRepository(), List.of("spam"));
+        BatchResult result = service.validateNotes(List.of(
+                new Note(1, "Title", "Content"),
+                new Note(2, " ", "Content"),
+                new Note(3, "Title", "spam")));
+
+        assertThat(result.isSuccess(0)).isTrue();
+        assertThat(result.getError(1)).isEqualTo("Title cannot be null, or empty, or whitespace");
+        assertThat(result.getError(2)).isEqualTo("Note contains a restricted word");
+        assertThat(service.getAllNotes()).isEmpty();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        RestrictedWordsMatcher matcher = RestrictedWordsMatcher.compile(List.of("spam"));
+        Note note = new Note(1, "Заголовок", "Содержимое заметки");
+        for (int i = 0; i < 100_000; i++) {
+            VALIDATOR.validate(note, matcher);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1_000_000; i++) {
+            VALIDATOR.validate(note, matcher);
+        }
+        assertThat(threads.getCurrentThreadAllocatedBytes() - before).isLessThan(1_024);
+    }
+}
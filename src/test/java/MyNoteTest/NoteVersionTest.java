@@ -0,0 +1,147 @@
+package MyNoteTest;
+
+import org.MyNote.ConcurrentNoteRepository;
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.LogNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteRepository;
+import org.MyNote.NoteServiceImpl;
+import org.MyNote.SnapshotNoteRepository;
+import org.MyNote.UpdateResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NoteVersionTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * 1. Тест на увеличение версии при каждой записи и на проверку ожидаемой версии
+     */
+    @Test
+    void testVersionIncrementsAndIsChecked() {
+        SnapshotNoteRepository repository = new SnapshotNoteRepository();
+        Note note = new Note(1, "Title", "Content");
+        repository.addNote(note);
+        assertThat(note.getVersion()).isEqualTo(1);
+        repository.updateNote(new Note(1, "Title", "Second"));
+        assertThat(repository.getNoteValue(1).getVersion()).isEqualTo(2);
+
+        assertThat(repository.updateNoteIfVersion(new Note(1, "Title", "Stale"), 1))
+                .isEqualTo(UpdateResult.VERSION_CONFLICT);
+        Note current = new Note(1, "Title", "Third");
+        assertThat(repository.updateNoteIfVersion(current, 2)).isEqualTo(UpdateResult.UPDATED);
+        assertThat(current.getVersion()).isEqualTo(3);
+        assertThat(repository.getNoteById(1).getContent()).isEqualTo("Third");
+        assertThat(repository.updateNoteIfVersion(new Note(2, "Title", "Content"), 1))
+                .isEqualTo(UpdateResult.NOT_FOUND);
+    }
+
+    /**
+     * 2. Тест на то, что одновременные условные обновления не теряют изменений
+     */
+    @Test
+    void testConcurrentCompareAndSetLosesNoUpdates() throws Exception {
+        ConcurrentNoteRepository repository = new ConcurrentNoteRepository();
+        repository.addNote(new Note(1, "Counter", "0"));
+        int threads = 8;
+        int increments = 500;
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < increments; i++) {
+                        while (true) {
+                            Note read = repository.getNoteById(1);
+                            int value = Integer.parseInt(read.getContent());
+                            Note next = new Note(1, "Counter", String.valueOf(value + 1));
+                            if (repository.updateNoteIfVersion(next, read.getVersion()) == UpdateResult.UPDATED) {
+                                break;
+                            }
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Note result = repository.getNoteById(1);
+        assertThat(result.getContent()).isEqualTo(String.valueOf(threads * increments));
+        assertThat(result.getVersion()).isEqualTo(1 + threads * increments);
+    }
+
+    /**
+     * 3. Тест на результаты условного обновления в сервисе
+     */
+    @Test
+    void testServiceReportsConflictWithoutChangingNote() {
+        NoteServiceImpl service = new NoteServiceImpl(new InMemoryNoteRepository());
+        service.addNote(new Note(1, "Title", "Content"));
+        long version = service.getNoteById(1).getVersion();
+        service.updateNote(new Note(1, "Title", "Other editor"));
+
+        Note stale = new Note(1, "Title", "My edit");
+        long timestamp = stale.getTimestampMillis();
+        assertThat(service.updateNoteIfVersion(stale, version)).isEqualTo(UpdateResult.VERSION_CONFLICT);
+        assertThat(stale.getTimestampMillis()).isEqualTo(timestamp);
+        assertThat(service.getNoteById(1).getContent()).isEqualTo("Other editor");
+        assertThat(service.updateNoteIfVersion(new Note(2, "Title", "Content"), 1))
+                .isEqualTo(UpdateResult.NOT_FOUND);
+    }
+
+    /**
+     * 4. Тест на сохранение версий в журнале после повторного открытия
+     */
+    @Test
+    void testLogRepositoryRestoresVersions() throws Exception {
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            repository.addNote(new Note(1, "Title", "Content"));
+            repository.updateNote(new Note(1, "Title", "Second"));
+        }
+        try (LogNoteRepository repository = new LogNoteRepository(directory)) {
+            assertThat(repository.getNoteById(1).getVersion()).isEqualTo(2);
+            assertThat(repository.updateNoteIfVersion(new Note(1, "Title", "Stale"), 1))
+                    .isEqualTo(UpdateResult.VERSION_CONFLICT);
+            assertThat(repository.updateNoteIfVersion(new Note(1, "Title", "Third"), 2))
+                    .isEqualTo(UpdateResult.UPDATED);
+        }
+    }
+
+    /**
+     * 5. Тест на конфликт двух читателей, правящих одну заметку
+     */
+    @Test
+    void testSecondReaderGetsConflict() {
+        for (NoteRepository repository : List.of(new InMemoryNoteRepository(), new ConcurrentNoteRepository())) {
+            repository.addNote(new Note(1, "Title", "Content"));
+            Note first = repository.getNoteById(1);
+            Note second = repository.getNoteById(1);
+
+            first.setContent("First edit");
+            assertThat(repository.updateNoteIfVersion(first, first.getVersion())).isEqualTo(UpdateResult.UPDATED);
+            second.setContent("Second edit");
+            assertThat(repository.updateNoteIfVersion(second, second.getVersion()))
+                    .isEqualTo(UpdateResult.VERSION_CONFLICT);
+            assertThat(repository.getNoteById(1).getContent()).isEqualTo("First edit");
+            assertThat(second.getVersion()).isEqualTo(1);
+        }
+    }
+}
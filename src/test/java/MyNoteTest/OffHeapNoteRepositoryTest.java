@@ -0,0 +1,80 @@
+package MyNoteTest;
+
+import org.MyNote.Note;
+import org.MyNote.OffHeapNoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapNoteRepositoryTest {
+    private OffHeapNoteRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new OffHeapNoteRepository();
+    }
+
+    /**
+     * 1. Тест на сохранение и чтение заметки вне кучи
+     */
+    @Test
+    public void storeAndLoadTest() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 2, 29, 23, 59, 59);
+        Note note = new Note(1, "Заголовок", "Содержимое ё");
+        note.setTimestamp(timestamp);
+        repository.addNote(note);
+        note.setTitle("Changed");
+
+        Note loaded = repository.getNoteById(1);
+        loaded.setContent("Changed");
+
+        assertThat(loaded.getTitle()).isEqualTo("Заголовок");
+        assertThat(loaded.getTimestamp()).isEqualTo(timestamp);
+        assertThat(repository.getNoteById(1).getContent()).isEqualTo("Содержимое ё");
+        assertThat(repository.getNoteById(2)).isNull();
+    }
+
+    /**
+     * 2. Тест на обновление с изменением размера записи
+     */
+    @Test
+    public void updateChangesSizeTest() {
+        repository.addNote(new Note(1, "Title1", "Short"));
+        repository.addNote(new Note(2, "Title2", "Content2"));
+
+        assertThat(repository.updateNoteIfPresent(new Note(1, "Title1", "x".repeat(2000)))).isTrue();
+        assertThat(repository.updateNoteIfPresent(new Note(3, "Title3", "Content3"))).isFalse();
+        repository.updateNote(new Note(2, "Title2", "Content2!"));
+
+        assertThat(repository.getNoteById(1).getContent()).hasSize(2000);
+        assertThat(repository.getNoteById(2).getContent()).isEqualTo("Content2!");
+        assertThat(repository.streamNotes().count()).isEqualTo(2);
+    }
+
+    /**
+     * 3. Тест на повторное использование освобожденной памяти
+     */
+    @Test
+    public void freedMemoryIsReusedTest() {
+        for (int round = 0; round < 5; round++) {
+            for (int id = 1; id <= 100_000; id++) {
+                repository.addNote(new Note(id, "Title" + id, "Content" + round));
+            }
+            int[] ids = new int[100_000];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = i + 1;
+            }
+            if (round < 4) {
+                assertThat(repository.deleteNotes(ids)).containsOnly(true);
+            }
+        }
+        long reserved = repository.getReservedBytes();
+
+        assertThat(reserved).isLessThanOrEqualTo(8L << 20);
+        assertThat(repository.getAllNotes()).hasSize(100_000);
+        assertThat(repository.getNoteById(100_000).getContent()).isEqualTo("Content4");
+    }
+}
@@ -0,0 +1,122 @@
+package MyNoteTest;
+
+import org.MyNote.InMemoryNoteRepository;
+import org.MyNote.Note;
+import org.MyNote.NoteRepository;
+import org.MyNote.ShardedNoteRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShardedNoteRepositoryTest {
+
+    private static ShardedNoteRepository repository(int shards, List<NoteRepository> created) {
+        return new ShardedNoteRepository(shards, index -> {
+            NoteRepository shard = new InMemoryNoteRepository();
+            created.add(shard);
+            return shard;
+        }, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 1. Тест на распределение заметок по шардам и обращение к одному шарду по id
+     */
+    @Test
+    public void notesAreSpreadAcrossShardsTest() {
+        List<NoteRepository> shards = new ArrayList<>();
+        ShardedNoteRepository repository = repository(8, shards);
+
+        for (int id = 1; id <= 1000; id++) {
+            repository.addNote(new Note(id, "Title" + id, "Content"));
+        }
+
+        assertThat(repository.getShardCount()).isEqualTo(8);
+        assertThat(shards).allSatisfy(shard -> assertThat(shard.getAllNotes()).hasSizeBetween(50, 200));
+        assertThat(shards.stream().filter(shard -> shard.getNoteById(500) != null)).hasSize(1);
+        assertThat(repository.getNoteById(500).getTitle()).isEqualTo("Title500");
+        assertThat(repository.addNoteIfAbsent(new Note(500, "Other", "Content"))).isFalse();
+        assertThat(repository.deleteNoteIfPresent(500)).isTrue();
+        assertThat(repository.getNoteById(500)).isNull();
+        assertThatThrownBy(() -> repository(0, new ArrayList<>()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Shard count must be positive");
+    }
+
+    /**
+     * 2. Тест на объединение результатов обхода всех шардов
+     */
+    @Test
+    public void scansMergeShardResultsTest() {
+        ShardedNoteRepository repository = repository(4, new ArrayList<>());
+        List<Note> notes = new ArrayList<>();
+        for (int id = 1; id <= 100; id++) {
+            notes.add(new Note(id, "Title" + id, "Content"));
+        }
+        repository.addNotes(notes);
+
+        assertThat(repository.getAllNotes()).hasSize(100);
+        assertThat(repository.count()).isEqualTo(100);
+        assertThat(repository.count(note -> note.getId() % 10 == 0)).isEqualTo(10);
+        assertThat(repository.findNotes(note -> note.getId() > 95)).extracting(Note::getId)
+                .containsExactlyInAnyOrder(96, 97, 98, 99, 100);
+        assertThat(repository.streamNotes().count()).isEqualTo(100);
+        assertThat(repository.getNotesPage(10, 5)).extracting(Note::getId).containsExactly(11, 12, 13, 14, 15);
+        assertThat(repository.getNotesPage(98, 5)).extracting(Note::getId).containsExactly(99, 100);
+        assertThat(repository.getNotesPage(98, Integer.MAX_VALUE)).extracting(Note::getId).containsExactly(99, 100);
+    }
+
+    /**
+     * 3. Тест на порядок результатов пакетных операций
+     */
+    @Test
+    public void batchResultsKeepInputOrderTest() {
+        ShardedNoteRepository repository = repository(4, new ArrayList<>());
+        for (int id = 1; id <= 10; id += 2) {
+            repository.addNote(new Note(id, "Title", "Content"));
+        }
+
+        boolean[] updated = repository.updateNotes(List.of(
+                new Note(1, "New", "Content"), new Note(2, "New", "Content"),
+                new Note(9, "New", "Content"), new Note(4, "New", "Content")));
+        boolean[] deleted = repository.deleteNotes(new int[]{6, 3, 8, 7});
+
+        assertThat(updated).containsExactly(true, false, true, false);
+        assertThat(deleted).containsExactly(false, true, false, true);
+        assertThat(repository.getNotesByIds(new int[]{9, 3, 1})).extracting(note -> note == null ? null : note.getTitle())
+                .containsExactly("New", null, "New");
+    }
+
+    /**
+     * 4. Тест на одновременную запись в непотокобезопасные шарды из нескольких потоков
+     */
+    @Test
+    public void concurrentWritesAreSafeTest() throws Exception {
+        ShardedNoteRepository repository = repository(16, new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        repository.addNote(new Note(thread * 5_000 + i + 1, "Title", "Content"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertThat(repository.count()).isEqualTo(40_000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package MyNoteTest;
+
+import org.MyNote.Note;
+import org.MyNote.NoteSnapshot;
+import org.MyNote.SnapshotNoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotNoteRepositoryTest {
+    private SnapshotNoteRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository = new SnapshotNoteRepository();
+    }
+
+    /**
+     * 1. Тест на неизменность снимка после записей
+     */
+    @Test
+    public void snapshotIsIsolatedFromWritesTest() {
+        repository.addNote(new Note(1, "Title1", "Content1"));
+        repository.addNote(new Note(2, "Title2", "Content2"));
+        NoteSnapshot snapshot = repository.snapshot();
+
+        repository.updateNote(new Note(1, "Updated", "Content1"));
+        repository.deleteNote(2);
+        repository.addNote(new Note(3, "Title3", "Content3"));
+
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.getNoteById(1).getTitle()).isEqualTo("Title1");
+        assertThat(snapshot.getNoteById(2)).isNotNull();
+        assertThat(snapshot.getNoteById(3)).isNull();
+        assertThat(repository.snapshot().getVersion()).isGreaterThan(snapshot.getVersion());
+        assertThat(repository.getAllNotes()).extracting(Note::getTitle).containsExactlyInAnyOrder("Updated", "Title3");
+    }
+
+    /**
+     * 2. Тест на большое число заметок с удалением половины
+     */
+    @Test
+    public void manyNotesTest() {
+        for (int id = -5_000; id <= 50_000; id++) {
+            repository.addNote(new Note(id, "Title" + id, "Content"));
+        }
+        for (int id = -5_000; id <= 50_000; id += 2) {
+            assertThat(repository.deleteNoteIfPresent(id)).isTrue();
+        }
+
+        NoteSnapshot snapshot = repository.snapshot();
+
+        assertThat(snapshot.size()).isEqualTo(27_500);
+        assertThat(snapshot.streamNotes().count()).isEqualTo(27_500);
+        assertThat(snapshot.getNoteById(49_999).getTitle()).isEqualTo("Title49999");
+        assertThat(snapshot.getNoteById(50_000)).isNull();
+        assertThat(repository.deleteNoteIfPresent(50_000)).isFalse();
+        assertThat(repository.updateNoteIfPresent(new Note(50_000, "Missing", "Content"))).isFalse();
+    }
+
+    /**
+     * 3. Тест на одновременную запись без потери изменений
+     */
+    @Test
+    public void concurrentWritersTest() throws Exception {
+        int threads = 4;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            futures.add(executor.submit(() -> {
+                for (int i = 1; i <= perThread; i++) {
+                    repository.addNote(new Note(base + i, "Title", "Content"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(repository.snapshot().size()).isEqualTo(threads * perThread);
+    }
+
+    /**
+     * 4. Тест на публикацию пакета одной версией
+     */
+    @Test
+    public void batchPublishesSingleVersionTest() {
+        long before = repository.snapshot().getVersion();
+
+        repository.addNotes(List.of(new Note(1, "Title1", "Content1"), new Note(2, "Title2", "Content2")));
+
+        assertThat(repository.snapshot().getVersion()).isEqualTo(before + 1);
+        assertThat(repository.deleteNotes(new int[]{1, 3})).containsExactly(true, false);
+    }
+}